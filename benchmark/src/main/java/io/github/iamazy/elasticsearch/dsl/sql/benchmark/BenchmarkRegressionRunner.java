@@ -0,0 +1,156 @@
+package io.github.iamazy.elasticsearch.dsl.sql.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 运行基准测试(带GC profiler),并与基线文件比较
+ * <p>
+ * 任何一项的耗时或每次操作分配的字节数超出基线的容忍比例时,进程以非0状态退出,使构建失败
+ * 只有benchmark.update=true时才用本次结果写入(覆盖)基线,否则基线文件不存在也会使构建失败
+ * 基线是绝对耗时,只能和同一台机器上生成的基线比较,不作为CI门禁
+ *
+ * @author iamazy
+ * @date 2019/5/12
+ * @descrition
+ **/
+public class BenchmarkRegressionRunner {
+
+    private static final String ALLOC_RATE_NORM = "\u00b7gc.alloc.rate.norm";
+    /**
+     * 分配字节数很小时比例没有意义,额外允许的绝对误差
+     */
+    private static final double ALLOC_SLACK_BYTES = 64;
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    public static void main(String[] args) throws Exception {
+        File baselineFile = new File(System.getProperty("benchmark.baseline", "baseline.json"));
+        double timeTolerance = Double.parseDouble(System.getProperty("benchmark.time.tolerance", "0.15"));
+        double allocTolerance = Double.parseDouble(System.getProperty("benchmark.alloc.tolerance", "0.10"));
+        boolean update = Boolean.parseBoolean(System.getProperty("benchmark.update", "false"));
+        String include = System.getProperty("benchmark.include", ".*");
+        //没有基线时不跑基准测试,直接失败,避免悄悄生成新基线
+        if (!update && !baselineFile.exists()) {
+            System.err.println("Benchmark baseline " + baselineFile.getAbsolutePath() + " does not exist, run with -Dbenchmark.update=true to create it");
+            System.exit(1);
+        }
+
+        Options options = new OptionsBuilder()
+                .include(Sql2DslBenchmark.class.getSimpleName() + "." + include)
+                .addProfiler(GCProfiler.class)
+                .build();
+        Collection<RunResult> runResults = new Runner(options).run();
+
+        Map<String, Baseline> current = new TreeMap<>();
+        for (RunResult runResult : runResults) {
+            String benchmark = runResult.getParams().getBenchmark();
+            String key = benchmark.substring(benchmark.lastIndexOf('.') + 1) + ":" + runResult.getParams().getParam("statement");
+            Result alloc = runResult.getSecondaryResults().get(ALLOC_RATE_NORM);
+            current.put(key, new Baseline(runResult.getPrimaryResult().getScore(), alloc == null ? -1 : alloc.getScore()));
+        }
+
+        if (update) {
+            OBJECT_MAPPER.writerWithDefaultPrettyPrinter().writeValue(baselineFile, new Baselines(current));
+            System.out.println("Benchmark baseline written to " + baselineFile.getAbsolutePath());
+            return;
+        }
+
+        Map<String, Baseline> baselines = OBJECT_MAPPER.readValue(baselineFile, Baselines.class).getBenchmarks();
+        int regressions = 0;
+        System.out.println(String.format("%-32s %14s %14s %14s %14s", "benchmark", "ns/op", "base ns/op", "B/op", "base B/op"));
+        for (Map.Entry<String, Baseline> entry : current.entrySet()) {
+            Baseline result = entry.getValue();
+            Baseline baseline = baselines.get(entry.getKey());
+            String flag = "";
+            if (baseline == null) {
+                flag = "  (no baseline)";
+            } else {
+                if (result.getScore() > baseline.getScore() * (1 + timeTolerance)) {
+                    flag += "  TIME REGRESSION";
+                }
+                if (baseline.getAllocBytes() >= 0 && result.getAllocBytes() >
+                        Math.max(baseline.getAllocBytes() * (1 + allocTolerance), baseline.getAllocBytes() + ALLOC_SLACK_BYTES)) {
+                    flag += "  ALLOC REGRESSION";
+                }
+            }
+            if (flag.contains("REGRESSION")) {
+                regressions++;
+            }
+            System.out.println(String.format("%-32s %14.1f %14s %14.1f %14s%s", entry.getKey(),
+                    result.getScore(), baseline == null ? "-" : String.format("%.1f", baseline.getScore()),
+                    result.getAllocBytes(), baseline == null ? "-" : String.format("%.1f", baseline.getAllocBytes()), flag));
+        }
+        if (regressions > 0) {
+            System.err.println(String.format("%s benchmark(s) regressed beyond tolerance (time %.0f%%, alloc %.0f%%)",
+                    regressions, timeTolerance * 100, allocTolerance * 100));
+            System.exit(1);
+        }
+    }
+
+    public static class Baselines {
+
+        private Map<String, Baseline> benchmarks;
+
+        public Baselines() {
+        }
+
+        Baselines(Map<String, Baseline> benchmarks) {
+            this.benchmarks = benchmarks;
+        }
+
+        public Map<String, Baseline> getBenchmarks() {
+            return benchmarks;
+        }
+
+        public void setBenchmarks(Map<String, Baseline> benchmarks) {
+            this.benchmarks = benchmarks;
+        }
+    }
+
+    public static class Baseline {
+
+        /**
+         * 每次操作的平均耗时(ns)
+         */
+        private double score;
+        /**
+         * 每次操作分配的字节数,没有GC profiler数据时为-1
+         */
+        private double allocBytes;
+
+        public Baseline() {
+        }
+
+        Baseline(double score, double allocBytes) {
+            this.score = score;
+            this.allocBytes = allocBytes;
+        }
+
+        public double getScore() {
+            return score;
+        }
+
+        public void setScore(double score) {
+            this.score = score;
+        }
+
+        public double getAllocBytes() {
+            return allocBytes;
+        }
+
+        public void setAllocBytes(double allocBytes) {
+            this.allocBytes = allocBytes;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package io.github.iamazy.elasticsearch.dsl.sql.benchmark;
+
+import io.github.iamazy.elasticsearch.dsl.sql.model.ElasticSqlParseResult;
+import io.github.iamazy.elasticsearch.dsl.sql.model.ElasticSqlPlan;
+import io.github.iamazy.elasticsearch.dsl.sql.parser.ElasticSql2DslParser;
+import io.github.iamazy.elasticsearch.dsl.sql.parser.ElasticSqlPreparedStatement;
+import org.elasticsearch.action.search.SearchRequest;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分阶段测量SQL转DSL的耗时:
+ * <ul>
+ * <li>lex: Druid词法/语法解析(ElasticSql2DslParser.prepare)</li>
+ * <li>chain: QueryParser解析器链(ElasticSqlPreparedStatement.bind)</li>
+ * <li>toRequest: ElasticSqlParseResult.toRequest()/toDelRequest(),解析结果会保存编译好的计划,每次从计划拷贝出新的解析结果,测量组装SearchSourceBuilder的开销</li>
+ * <li>toDsl: ElasticSqlParseResult.toDsl()</li>
+ * <li>toPrettyDsl: ElasticSqlParseResult.toPrettyDsl()</li>
+ * </ul>
+ * or10k/and10k是1万个条件的机器生成SQL,chain阶段的耗时应该在毫秒级
+ *
+ * @author iamazy
+ * @date 2019/5/12
+ * @descrition
+ **/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class Sql2DslBenchmark {
+
+    @Param({"simpleWhere", "deepAndOr", "nestedField", "groupByTerms", "functionScore", "highlight", "scroll", "delete", "or10k", "and10k"})
+    public String statement;
+
+    private ElasticSql2DslParser parser;
+    private String sql;
+    private ElasticSqlPreparedStatement preparedStatement;
+    private ElasticSqlParseResult parseResult;
+    private ElasticSqlPlan plan;
+    private SearchRequest searchRequest;
+
+    @Setup
+    public void setup() {
+        parser = new ElasticSql2DslParser();
+        sql = SqlCorpus.STATEMENTS.get(statement);
+        preparedStatement = parser.prepare(sql);
+        parseResult = preparedStatement.bind();
+        plan = parseResult.toPlan();
+        searchRequest = preparedStatement.isDelete()
+                ? parseResult.toDelRequest().getSearchRequest() : parseResult.toRequest();
+    }
+
+    @Benchmark
+    public ElasticSqlPreparedStatement lex() {
+        return parser.prepare(sql);
+    }
+
+    @Benchmark
+    public ElasticSqlParseResult chain() {
+        return preparedStatement.bind();
+    }
+
+    @Benchmark
+    public Object toRequest() {
+        ElasticSqlParseResult copy = plan.toParseResult();
+        return preparedStatement.isDelete() ? copy.toDelRequest() : copy.toRequest();
+    }
+
+    @Benchmark
+    public String toDsl() {
+        return parseResult.toDsl(searchRequest);
+    }
+
+    @Benchmark
+    public String toPrettyDsl() {
+        return parseResult.toPrettyDsl(searchRequest);
+    }
+}
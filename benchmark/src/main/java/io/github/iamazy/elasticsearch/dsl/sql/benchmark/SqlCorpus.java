@@ -0,0 +1,54 @@
+package io.github.iamazy.elasticsearch.dsl.sql.benchmark;
+
+import com.google.common.collect.ImmutableMap;
+
+import java.util.Map;
+
+/**
+ * 基准测试使用的代表性SQL,key为@Param中的名称
+ *
+ * @author iamazy
+ * @date 2019/5/12
+ * @descrition
+ **/
+public final class SqlCorpus {
+
+    public static final Map<String, String> STATEMENTS = ImmutableMap.<String, String>builder()
+            .put("simpleWhere",
+                    "select * from fruit where name='apple' and weight>100 limit 0,20")
+            .put("deepAndOr",
+                    "select * from fruit where (a=1 or b=2) and (c=3 or (d=4 and (e=5 or f=6))) and (g between 1 and 10 or h in (1,2,3,4)) " +
+                            "and not (i='x' or j='y') and (k>1 or (l<2 and (m>=3 or (n<=4 and o is not null))))")
+            .put("nestedField",
+                    "select * from fruit where $productInfo.name='apple' and $productInfo$specs.color in ('red','green') and $productInfo.weight>100")
+            .put("groupByTerms",
+                    "select * from regions where population>1000 group by terms(country,100)>terms(province,50) limit 0,0")
+            .put("functionScore",
+                    "select * from fruit query function_score(name='apple',script_score(weight>10,'Math.log(2 + doc.weight.value) * params.a','a:1'),random_score(age>90,101092339,'date'),weight(a>1,3))")
+            .put("highlight",
+                    "select * from fruit query match(h#name,'苹果','prefix_length:2,boost:2.0f') and match_phrase(h#desc,'red apple') where h#color='red'")
+            .put("scroll",
+                    "select * from search where lastModified>'2019-01-01 00:00:00' order by lastModified desc routing by 'r1' scroll by '2m' limit 0,1000")
+            .put("delete",
+                    "delete from fruit where weight<10 and color='green' limit 1000")
+            .put("or10k", generated("or", "=", 10000))
+            .put("and10k", generated("and", "!=", 10000))
+            .build();
+
+    private SqlCorpus() {
+    }
+
+    /**
+     * 模拟机器生成的SQL,count个条件用同一个运算符连接,Druid解析后是一棵count层的左深树
+     */
+    private static String generated(String operator, String comparison, int count) {
+        StringBuilder sql = new StringBuilder("select * from fruit where ");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sql.append(' ').append(operator).append(' ');
+            }
+            sql.append("field").append(i % 100).append(comparison).append(i);
+        }
+        return sql.toString();
+    }
+}
@@ -17,4 +17,8 @@ public interface CoreConstants {
     String POUND="#";
     String HIGHLIGHTER="h#";
     String DEFAULT_ES_DATE_FORMAT = "yyyy-MM-dd'T'HH:mm:ss.SSSZ";
+    /**
+     * index.max_terms_count的默认值,一个terms查询最多包含的值的个数
+     */
+    int MAX_TERMS_COUNT = 65536;
 }
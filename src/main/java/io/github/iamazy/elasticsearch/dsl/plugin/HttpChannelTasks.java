@@ -0,0 +1,107 @@
+package io.github.iamazy.elasticsearch.dsl.plugin;
+
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.admin.cluster.node.tasks.cancel.CancelTasksRequest;
+import org.elasticsearch.client.node.NodeClient;
+import org.elasticsearch.http.HttpChannel;
+import org.elasticsearch.tasks.Task;
+import org.elasticsearch.tasks.TaskId;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 记录每个http连接上正在执行的_isql任务,连接断开时取消这些任务
+ * <p>
+ * 每个连接只注册一次关闭监听,任务完成时从连接上移除,keep-alive连接上的多次请求不会累积监听器
+ *
+ * @author iamazy
+ * @date 2019/5/21
+ * @descrition
+ **/
+@Slf4j
+final class HttpChannelTasks {
+
+    private final Map<HttpChannel, ChannelTasks> httpChannels = new ConcurrentHashMap<>();
+
+    void execute(NodeClient client, HttpChannel httpChannel, SqlRequest request, ActionListener<SqlResponse> listener) {
+        ChannelTasks channelTasks = httpChannels.computeIfAbsent(httpChannel, channel -> new ChannelTasks());
+        if (channelTasks.closeListenerAdded.compareAndSet(false, true)) {
+            //连接已经关闭时监听器会立即执行
+            httpChannel.addCloseListener(ActionListener.wrap(() -> {
+                httpChannels.remove(httpChannel, channelTasks);
+                channelTasks.cancelAll(client);
+            }));
+        }
+        TaskHolder taskHolder = new TaskHolder();
+        Task task = client.executeLocally(SqlAction.INSTANCE, request, ActionListener.wrap(response -> {
+            channelTasks.remove(taskHolder);
+            listener.onResponse(response);
+        }, e -> {
+            channelTasks.remove(taskHolder);
+            listener.onFailure(e);
+        }));
+        taskHolder.taskId = new TaskId(client.getLocalNodeId(), task.getId());
+        if (!channelTasks.add(taskHolder)) {
+            //注册之前连接已经断开
+            cancel(client, taskHolder.taskId);
+        }
+    }
+
+    private static final class TaskHolder {
+        private TaskId taskId;
+        private boolean completed;
+    }
+
+    private static final class ChannelTasks {
+
+        private final AtomicBoolean closeListenerAdded = new AtomicBoolean(false);
+        private final Set<TaskHolder> tasks = new HashSet<>();
+        private boolean closed;
+
+        /**
+         * 任务可能在executeLocally返回之前就已经完成,这时不再加入,连接已经关闭时返回false
+         */
+        private synchronized boolean add(TaskHolder taskHolder) {
+            if (taskHolder.completed) {
+                return true;
+            }
+            if (closed) {
+                return false;
+            }
+            tasks.add(taskHolder);
+            return true;
+        }
+
+        private synchronized void remove(TaskHolder taskHolder) {
+            taskHolder.completed = true;
+            tasks.remove(taskHolder);
+        }
+
+        private void cancelAll(NodeClient client) {
+            List<TaskId> taskIds = new ArrayList<>();
+            synchronized (this) {
+                closed = true;
+                for (TaskHolder taskHolder : tasks) {
+                    taskIds.add(taskHolder.taskId);
+                }
+                tasks.clear();
+            }
+            taskIds.forEach(taskId -> cancel(client, taskId));
+        }
+    }
+
+    private static void cancel(NodeClient client, TaskId taskId) {
+        CancelTasksRequest cancelTasksRequest = new CancelTasksRequest();
+        cancelTasksRequest.setTaskId(taskId);
+        cancelTasksRequest.setReason("http channel closed");
+        client.admin().cluster().cancelTasks(cancelTasksRequest, ActionListener.wrap(response -> {},
+                e -> log.warn("failed to cancel task [{}]", taskId, e)));
+    }
+}
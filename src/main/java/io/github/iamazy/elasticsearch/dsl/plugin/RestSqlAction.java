@@ -1,18 +1,18 @@
 package io.github.iamazy.elasticsearch.dsl.plugin;
 
-import io.github.iamazy.elasticsearch.dsl.sql.exception.ElasticSql2DslException;
-import io.github.iamazy.elasticsearch.dsl.sql.model.ElasticSqlParseResult;
-import io.github.iamazy.elasticsearch.dsl.sql.parser.ElasticSql2DslParser;
+import io.github.iamazy.elasticsearch.dsl.sql.enums.SqlResponseFormat;
 import org.apache.commons.lang3.StringUtils;
+import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.client.node.NodeClient;
 import org.elasticsearch.common.settings.Settings;
-import org.elasticsearch.common.xcontent.XContentBuilder;
-import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.util.concurrent.AbstractRunnable;
 import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.rest.*;
+import org.elasticsearch.rest.action.RestStatusToXContentListener;
 
 import java.io.IOException;
+import java.util.List;
 
 
 /**
@@ -22,8 +22,15 @@ import java.io.IOException;
  **/
 public class RestSqlAction extends BaseRestHandler {
 
-    RestSqlAction(Settings settings, RestController restController){
+    /**
+     * 请求完成之前连接断开时取消任务,search子任务在各个分片上的执行也会被取消
+     */
+    private final HttpChannelTasks httpChannelTasks=new HttpChannelTasks();
+    private final SqlPlanCache planCache;
+
+    RestSqlAction(Settings settings, RestController restController, SqlPlanCache planCache){
         super(settings);
+        this.planCache=planCache;
         restController.registerHandler(RestRequest.Method.POST,"/_isql/_explain",this);
         restController.registerHandler(RestRequest.Method.GET,"/_isql/_explain",this);
         restController.registerHandler(RestRequest.Method.POST,"/_isql",this);
@@ -43,22 +50,30 @@ public class RestSqlAction extends BaseRestHandler {
         }catch (IOException e){
             return channel -> channel.sendResponse(new BytesRestResponse(RestStatus.BAD_REQUEST,XContentType.JSON.mediaType(),"please use json format params, like: {\"sql\":\"select * from test\"}"));
         }
-        try {
-            String sql=restRequest.param("sql");
-            if(StringUtils.isBlank(sql)){
-                return channel -> channel.sendResponse(new BytesRestResponse(RestStatus.BAD_REQUEST,XContentType.JSON.mediaType(),"{\"error\":\"sql语句不能为空!!!\"}"));
-            }
-            ElasticSql2DslParser sql2DslParser=new ElasticSql2DslParser();
-            ElasticSqlParseResult parseResult = sql2DslParser.parse(sql);
-            XContentBuilder builder = XContentFactory.jsonBuilder().prettyPrint();
-            if(restRequest.path().endsWith("/_explain")){
-                return channel -> channel.sendResponse(new BytesRestResponse(RestStatus.OK, builder.value(parseResult.toRequest().source())));
-            }else{
-                return channel -> channel.sendResponse(new BytesRestResponse(RestStatus.OK,builder.value(nodeClient.search(parseResult.toRequest()).actionGet())));
-            }
-        }catch (ElasticSql2DslException e){
-            return channel -> channel.sendResponse(new BytesRestResponse(RestStatus.INTERNAL_SERVER_ERROR,XContentType.JSON.mediaType(),"{\"error\":\""+e.getMessage()+"\"}"));
+        String sql=restRequest.param("sql");
+        if(StringUtils.isBlank(sql)){
+            return channel -> channel.sendResponse(new BytesRestResponse(RestStatus.BAD_REQUEST,XContentType.JSON.mediaType(),"{\"error\":\"sql语句不能为空!!!\"}"));
         }
+        //format=rows|columnar时只返回select的列
+        SqlResponseFormat format=SqlResponseFormat.of(restRequest.param("format"));
+        boolean explain=restRequest.path().endsWith("/_explain");
+        return channel -> {
+            ActionListener<SqlResponse> listener=new RestStatusToXContentListener<>(channel);
+            //开启安全认证时按请求中的索引鉴权,先在isql线程池中解析Sql得到索引,生成的计划留在缓存中,TransportSqlAction直接使用
+            nodeClient.threadPool().executor(SqlPlugin.THREAD_POOL_NAME).execute(new AbstractRunnable() {
+                @Override
+                protected void doRun() {
+                    List<String> indices=planCache.plan(sql).getIndices();
+                    SqlRequest sqlRequest=new SqlRequest(sql,explain,format,indices.toArray(new String[0]));
+                    httpChannelTasks.execute(nodeClient, restRequest.getHttpChannel(), sqlRequest, listener);
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    listener.onFailure(e);
+                }
+            });
+        };
     }
 
 }
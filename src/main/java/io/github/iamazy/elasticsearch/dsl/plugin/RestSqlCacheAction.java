@@ -0,0 +1,63 @@
+package io.github.iamazy.elasticsearch.dsl.plugin;
+
+import io.github.iamazy.elasticsearch.dsl.sql.cache.ElasticSqlParseCacheStats;
+import org.elasticsearch.client.node.NodeClient;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.rest.*;
+
+import java.io.IOException;
+
+/**
+ * 查看和清空当前节点的执行计划缓存
+ *
+ * @author iamazy
+ * @date 2019/5/20
+ * @descrition
+ **/
+public class RestSqlCacheAction extends BaseRestHandler {
+
+    private final SqlPlanCache planCache;
+
+    RestSqlCacheAction(Settings settings, RestController restController, SqlPlanCache planCache) {
+        super(settings);
+        this.planCache = planCache;
+        restController.registerHandler(RestRequest.Method.GET, "/_isql/_cache/stats", this);
+        restController.registerHandler(RestRequest.Method.POST, "/_isql/_cache/clear", this);
+    }
+
+    @Override
+    public String getName() {
+        return "isql_cache";
+    }
+
+    @Override
+    protected RestChannelConsumer prepareRequest(RestRequest restRequest, NodeClient nodeClient) throws IOException {
+        String nodeId = nodeClient.getLocalNodeId();
+        if (restRequest.path().endsWith("/clear")) {
+            return channel -> {
+                planCache.clear();
+                XContentBuilder builder = channel.newBuilder();
+                builder.startObject().field("node_id", nodeId).field("acknowledged", true).endObject();
+                channel.sendResponse(new BytesRestResponse(RestStatus.OK, builder));
+            };
+        }
+        return channel -> {
+            ElasticSqlParseCacheStats stats = planCache.stats();
+            XContentBuilder builder = channel.newBuilder();
+            builder.startObject()
+                    .field("node_id", nodeId)
+                    .field("limit_in_bytes", planCache.getLimitInBytes())
+                    .field("size", stats.getSize())
+                    .field("hit_count", stats.getHitCount())
+                    .field("miss_count", stats.getMissCount())
+                    .field("eviction_count", stats.getEvictionCount())
+                    .field("hit_rate", stats.hitRate())
+                    .field("negative_size", stats.getNegativeSize())
+                    .field("negative_hit_count", stats.getNegativeHitCount())
+                    .field("negative_eviction_count", stats.getNegativeEvictionCount())
+                    .endObject();
+            channel.sendResponse(new BytesRestResponse(RestStatus.OK, builder));
+        };
+    }
+}
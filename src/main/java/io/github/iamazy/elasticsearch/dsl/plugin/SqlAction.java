@@ -0,0 +1,23 @@
+package io.github.iamazy.elasticsearch.dsl.plugin;
+
+import org.elasticsearch.action.Action;
+
+/**
+ * @author iamazy
+ * @date 2019/5/20
+ * @descrition
+ **/
+public class SqlAction extends Action<SqlResponse> {
+
+    public static final SqlAction INSTANCE = new SqlAction();
+    public static final String NAME = "indices:data/read/isql";
+
+    private SqlAction() {
+        super(NAME);
+    }
+
+    @Override
+    public SqlResponse newResponse() {
+        return new SqlResponse();
+    }
+}
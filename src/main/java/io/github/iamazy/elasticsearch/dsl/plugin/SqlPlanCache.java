@@ -0,0 +1,57 @@
+package io.github.iamazy.elasticsearch.dsl.plugin;
+
+import io.github.iamazy.elasticsearch.dsl.sql.cache.ElasticSqlParseCache;
+import io.github.iamazy.elasticsearch.dsl.sql.cache.ElasticSqlParseCacheStats;
+import io.github.iamazy.elasticsearch.dsl.sql.exception.ElasticSql2DslException;
+import io.github.iamazy.elasticsearch.dsl.sql.model.ElasticSqlPlan;
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+
+/**
+ * 节点级别的执行计划缓存,_isql和_isql/_explain请求相同的Sql时不再重新解析
+ * <p>
+ * 容量由动态配置isql.plan_cache.size控制,可以是字节数或者堆内存的百分比,按Sql的长度和查询子句、排序、聚合的个数估算的内存淘汰
+ *
+ * @author iamazy
+ * @date 2019/5/20
+ * @descrition
+ **/
+public class SqlPlanCache {
+
+    public static final Setting<ByteSizeValue> PLAN_CACHE_SIZE = Setting.memorySizeSetting("isql.plan_cache.size", "1%",
+            Setting.Property.NodeScope, Setting.Property.Dynamic);
+
+    private volatile ElasticSqlParseCache parseCache;
+    private volatile long limitInBytes;
+
+    SqlPlanCache(Settings settings, ClusterSettings clusterSettings) {
+        resize(PLAN_CACHE_SIZE.get(settings));
+        clusterSettings.addSettingsUpdateConsumer(PLAN_CACHE_SIZE, this::resize);
+    }
+
+    public ElasticSqlPlan plan(String sql) throws ElasticSql2DslException {
+        return parseCache.plan(sql);
+    }
+
+    public ElasticSqlParseCacheStats stats() {
+        return parseCache.stats();
+    }
+
+    public long getLimitInBytes() {
+        return limitInBytes;
+    }
+
+    public void clear() {
+        parseCache.invalidateAll();
+    }
+
+    /**
+     * Guava的缓存不能修改容量,容量变化时换成新的缓存,已缓存的计划和统计信息都会丢弃
+     */
+    private synchronized void resize(ByteSizeValue size) {
+        limitInBytes = size.getBytes();
+        parseCache = ElasticSqlParseCache.builder().maximumMemoryBytes(limitInBytes).build();
+    }
+}
@@ -1,16 +1,33 @@
 package io.github.iamazy.elasticsearch.dsl.plugin;
 
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.ActionResponse;
+import org.elasticsearch.client.Client;
 import org.elasticsearch.cluster.metadata.IndexNameExpressionResolver;
 import org.elasticsearch.cluster.node.DiscoveryNodes;
+import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
 import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.IndexScopedSettings;
+import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.settings.SettingsFilter;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.common.xcontent.NamedXContentRegistry;
+import org.elasticsearch.env.Environment;
+import org.elasticsearch.env.NodeEnvironment;
 import org.elasticsearch.plugins.ActionPlugin;
 import org.elasticsearch.plugins.Plugin;
 import org.elasticsearch.rest.RestController;
 import org.elasticsearch.rest.RestHandler;
+import org.elasticsearch.script.ScriptService;
+import org.elasticsearch.threadpool.ExecutorBuilder;
+import org.elasticsearch.threadpool.FixedExecutorBuilder;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.watcher.ResourceWatcherService;
 
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.function.Supplier;
@@ -22,6 +39,15 @@ import java.util.function.Supplier;
  **/
 public class SqlPlugin extends Plugin implements ActionPlugin {
 
+    /**
+     * 解析Sql和生成DSL使用的线程池,大小和队列长度通过isql.thread_pool.size/isql.thread_pool.queue_size配置
+     */
+    static final String THREAD_POOL_NAME = "isql";
+
+    private static final int DEFAULT_QUEUE_SIZE = 1000;
+
+    private SqlPlanCache planCache;
+
     public SqlPlugin(){}
 
     public String name(){
@@ -33,8 +59,36 @@ public class SqlPlugin extends Plugin implements ActionPlugin {
     }
 
 
+    @Override
+    public Collection<Object> createComponents(Client client, ClusterService clusterService, ThreadPool threadPool,
+                                               ResourceWatcherService resourceWatcherService, ScriptService scriptService,
+                                               NamedXContentRegistry xContentRegistry, Environment environment,
+                                               NodeEnvironment nodeEnvironment, NamedWriteableRegistry namedWriteableRegistry) {
+        planCache = new SqlPlanCache(clusterService.getSettings(), clusterService.getClusterSettings());
+        return Collections.singletonList(planCache);
+    }
+
+    @Override
+    public List<Setting<?>> getSettings() {
+        return Collections.singletonList(SqlPlanCache.PLAN_CACHE_SIZE);
+    }
+
+    @Override
+    public List<ActionHandler<? extends ActionRequest, ? extends ActionResponse>> getActions() {
+        return Collections.singletonList(new ActionHandler<>(SqlAction.INSTANCE, TransportSqlAction.class));
+    }
+
     @Override
     public List<RestHandler> getRestHandlers(Settings settings, RestController restController, ClusterSettings clusterSettings, IndexScopedSettings indexScopedSettings, SettingsFilter settingsFilter, IndexNameExpressionResolver indexNameExpressionResolver, Supplier<DiscoveryNodes> nodesInCluster) {
-        return Collections.singletonList(new RestSqlAction(settings,restController));
+        return Arrays.asList(new RestSqlAction(settings,restController,planCache), new RestSqlCacheAction(settings,restController,planCache));
+    }
+
+    /**
+     * 固定大小的线程池,队列满时拒绝并返回429,限制同时进行的Sql解析数量,不占用网络线程
+     */
+    @Override
+    public List<ExecutorBuilder<?>> getExecutorBuilders(Settings settings) {
+        return Collections.singletonList(new FixedExecutorBuilder(settings, THREAD_POOL_NAME,
+                EsExecutors.numberOfProcessors(settings), DEFAULT_QUEUE_SIZE, "isql.thread_pool"));
     }
 }
@@ -0,0 +1,105 @@
+package io.github.iamazy.elasticsearch.dsl.plugin;
+
+import io.github.iamazy.elasticsearch.dsl.sql.enums.SqlResponseFormat;
+import lombok.Getter;
+import org.apache.commons.lang3.StringUtils;
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.ActionRequestValidationException;
+import org.elasticsearch.action.IndicesRequest;
+import org.elasticsearch.action.support.IndicesOptions;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.tasks.CancellableTask;
+import org.elasticsearch.tasks.Task;
+import org.elasticsearch.tasks.TaskId;
+
+import java.io.IOException;
+import java.util.Map;
+
+import static org.elasticsearch.action.ValidateActions.addValidationError;
+
+/**
+ * SqlAction的名字在indices:下,开启安全认证时按请求中的索引鉴权,索引由RestSqlAction解析Sql得到
+ *
+ * @author iamazy
+ * @date 2019/5/20
+ * @descrition
+ **/
+@Getter
+public class SqlRequest extends ActionRequest implements IndicesRequest {
+
+    private String sql;
+    /**
+     * 只返回生成的DSL,不执行查询
+     */
+    private boolean explain;
+    private SqlResponseFormat format = SqlResponseFormat.SEARCH;
+    /**
+     * Sql中from的索引,与生成的search请求一致
+     */
+    private String[] indices;
+
+    public SqlRequest() {
+    }
+
+    public SqlRequest(String sql, boolean explain, SqlResponseFormat format, String... indices) {
+        this.sql = sql;
+        this.explain = explain;
+        this.format = format;
+        this.indices = indices;
+    }
+
+    @Override
+    public String[] indices() {
+        return indices;
+    }
+
+    @Override
+    public IndicesOptions indicesOptions() {
+        return IndicesOptions.strictExpandOpenAndForbidClosed();
+    }
+
+    @Override
+    public ActionRequestValidationException validate() {
+        if (StringUtils.isBlank(sql)) {
+            return addValidationError("sql语句不能为空!!!", null);
+        }
+        return null;
+    }
+
+    /**
+     * 取消时同时取消作为子任务的search请求
+     */
+    @Override
+    public Task createTask(long id, String type, String action, TaskId parentTaskId, Map<String, String> headers) {
+        return new CancellableTask(id, type, action, getDescription(), parentTaskId, headers) {
+            @Override
+            public boolean shouldCancelChildrenOnCancellation() {
+                return true;
+            }
+        };
+    }
+
+    @Override
+    public String getDescription() {
+        return (explain ? "explain[" : "sql[") + sql + "]";
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        super.readFrom(in);
+        sql = in.readString();
+        explain = in.readBoolean();
+        format = in.readEnum(SqlResponseFormat.class);
+        indices = in.readStringArray();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeString(sql);
+        out.writeBoolean(explain);
+        out.writeEnum(format);
+        out.writeStringArray(indices);
+    }
+}
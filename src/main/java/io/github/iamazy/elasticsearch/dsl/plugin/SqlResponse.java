@@ -0,0 +1,88 @@
+package io.github.iamazy.elasticsearch.dsl.plugin;
+
+import io.github.iamazy.elasticsearch.dsl.sql.enums.SqlResponseFormat;
+import lombok.Getter;
+import org.elasticsearch.action.ActionResponse;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.xcontent.StatusToXContentObject;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 执行Sql时是search的结果(按format输出),explain时是生成的DSL
+ *
+ * @author iamazy
+ * @date 2019/5/20
+ * @descrition
+ **/
+@Getter
+public class SqlResponse extends ActionResponse implements StatusToXContentObject {
+
+    private SearchResponse searchResponse;
+    private SearchSourceBuilder source;
+    private SqlResponseFormat format = SqlResponseFormat.SEARCH;
+    /**
+     * select的字段,rows/columnar格式只输出这些列
+     */
+    private List<String> selectFields = Collections.emptyList();
+
+    SqlResponse() {
+    }
+
+    SqlResponse(SearchResponse searchResponse, SqlResponseFormat format, List<String> selectFields) {
+        this.searchResponse = searchResponse;
+        this.format = format;
+        this.selectFields = selectFields;
+    }
+
+    SqlResponse(SearchSourceBuilder source) {
+        this.source = source;
+    }
+
+    @Override
+    public RestStatus status() {
+        return searchResponse == null ? RestStatus.OK : searchResponse.status();
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        if (searchResponse != null) {
+            switch (format) {
+                case ROWS:
+                    SqlResponseWriter.writeRows(builder, searchResponse, selectFields);
+                    return builder;
+                case COLUMNAR:
+                    SqlResponseWriter.writeColumnar(builder, searchResponse, selectFields);
+                    return builder;
+                default:
+                    return searchResponse.toXContent(builder, params);
+            }
+        }
+        return source.toXContent(builder, params);
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        super.readFrom(in);
+        searchResponse = in.readOptionalStreamable(SearchResponse::new);
+        source = in.readOptionalWriteable(SearchSourceBuilder::new);
+        format = in.readEnum(SqlResponseFormat.class);
+        selectFields = in.readStringList();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeOptionalStreamable(searchResponse);
+        out.writeOptionalWriteable(source);
+        out.writeEnum(format);
+        out.writeStringCollection(selectFields);
+    }
+}
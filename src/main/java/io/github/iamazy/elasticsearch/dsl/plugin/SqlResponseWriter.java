@@ -0,0 +1,379 @@
+package io.github.iamazy.elasticsearch.dsl.plugin;
+
+import org.apache.lucene.search.TotalHits;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.CheckedConsumer;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.regex.Regex;
+import org.elasticsearch.common.xcontent.DeprecationHandler;
+import org.elasticsearch.common.xcontent.NamedXContentRegistry;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.support.XContentMapValues;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.aggregations.Aggregation;
+import org.elasticsearch.search.aggregations.Aggregations;
+import org.elasticsearch.search.aggregations.bucket.MultiBucketsAggregation;
+import org.elasticsearch.search.aggregations.bucket.SingleBucketAggregation;
+import org.elasticsearch.search.aggregations.metrics.ExtendedStats;
+import org.elasticsearch.search.aggregations.metrics.NumericMetricsAggregation;
+import org.elasticsearch.search.aggregations.metrics.Percentile;
+import org.elasticsearch.search.aggregations.metrics.PercentileRanks;
+import org.elasticsearch.search.aggregations.metrics.Percentiles;
+import org.elasticsearch.search.aggregations.metrics.Stats;
+import org.elasticsearch.search.lookup.SourceLookup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 把SearchResponse按rows/columnar格式写到XContentBuilder中,只输出select的列,嵌套对象展开为a.b形式的列名
+ * <p>
+ * rows格式逐个hit解析_source并直接写出一行,不保留解析结果;columnar格式需要按列输出,解析时把每个值追加到所在列的缓冲区,同时建立字典
+ * 聚合的每个最内层桶是一行,桶的key、doc_count以及数值指标各是一列,stats/extended_stats/percentiles展开为<聚合名>.<指标名>,
+ * top_hits、geo_bounds等非数值的指标不输出
+ *
+ * @author iamazy
+ * @date 2019/5/21
+ * @descrition
+ **/
+final class SqlResponseWriter {
+
+    private static final String DOC_COUNT = "doc_count";
+
+    private SqlResponseWriter() {
+    }
+
+    static void writeRows(XContentBuilder builder, SearchResponse response, List<String> selectFields) throws IOException {
+        builder.startObject();
+        writeHeader(builder, response);
+        writeRows(builder, new HitsSource(response.getHits().getHits(), selectFields));
+        if (response.getAggregations() != null) {
+            builder.startObject("aggregations");
+            writeRows(builder, new AggregationsSource(response.getAggregations()));
+            builder.endObject();
+        }
+        builder.endObject();
+    }
+
+    static void writeColumnar(XContentBuilder builder, SearchResponse response, List<String> selectFields) throws IOException {
+        builder.startObject();
+        writeHeader(builder, response);
+        writeColumnar(builder, new HitsSource(response.getHits().getHits(), selectFields));
+        if (response.getAggregations() != null) {
+            builder.startObject("aggregations");
+            writeColumnar(builder, new AggregationsSource(response.getAggregations()));
+            builder.endObject();
+        }
+        builder.endObject();
+    }
+
+    private static void writeHeader(XContentBuilder builder, SearchResponse response) throws IOException {
+        if (response.getScrollId() != null) {
+            builder.field("_scroll_id", response.getScrollId());
+        }
+        builder.field("took", response.getTook().millis());
+        builder.field("timed_out", response.isTimedOut());
+        TotalHits totalHits = response.getHits().getTotalHits();
+        if (totalHits != null) {
+            builder.field("total", totalHits.value);
+        }
+    }
+
+    private static void writeRows(XContentBuilder builder, RowSource source) throws IOException {
+        builder.field("columns", source.columns());
+        builder.startArray("rows");
+        source.forEachRow(row -> {
+            builder.startArray();
+            for (Object value : row) {
+                builder.value(value);
+            }
+            builder.endArray();
+        });
+        builder.endArray();
+    }
+
+    private static void writeColumnar(XContentBuilder builder, RowSource source) throws IOException {
+        List<String> columns = source.columns();
+        List<ColumnBuffer> buffers = new ArrayList<>(columns.size());
+        for (int idx = 0; idx < columns.size(); idx++) {
+            buffers.add(new ColumnBuffer());
+        }
+        int[] size = new int[1];
+        source.forEachRow(row -> {
+            for (int idx = 0; idx < row.length; idx++) {
+                buffers.get(idx).add(row[idx]);
+            }
+            size[0]++;
+        });
+        builder.field("size", size[0]);
+        builder.startArray("columns");
+        for (int idx = 0; idx < columns.size(); idx++) {
+            buffers.get(idx).write(builder, columns.get(idx));
+        }
+        builder.endArray();
+    }
+
+    /**
+     * 按行产生数据,行数组会被复用,消费方不能保留
+     */
+    private interface RowSource {
+
+        List<String> columns();
+
+        void forEachRow(CheckedConsumer<Object[], IOException> consumer) throws IOException;
+    }
+
+    /**
+     * 一列的值,全是字符串时按出现顺序编号,遇到非字符串的值后不再做字典编码
+     */
+    private static final class ColumnBuffer {
+
+        private final List<Object> values = new ArrayList<>();
+        private Map<String, Integer> dictionary = new LinkedHashMap<>();
+        private int stringCount;
+
+        private void add(Object value) {
+            values.add(value);
+            if (value == null || dictionary == null) {
+                return;
+            }
+            if (value instanceof String) {
+                dictionary.putIfAbsent((String) value, dictionary.size());
+                stringCount++;
+            } else {
+                dictionary = null;
+            }
+        }
+
+        /**
+         * 有重复的字符串时输出dictionary和codes,codes中的值是dictionary的下标,null仍然是null
+         */
+        private void write(XContentBuilder builder, String name) throws IOException {
+            builder.startObject();
+            builder.field("name", name);
+            if (dictionary != null && dictionary.size() < stringCount) {
+                builder.field("dictionary", dictionary.keySet());
+                builder.startArray("codes");
+                for (Object value : values) {
+                    if (value == null) {
+                        builder.nullValue();
+                    } else {
+                        builder.value(dictionary.get(value).intValue());
+                    }
+                }
+                builder.endArray();
+            } else {
+                builder.startArray("values");
+                for (Object value : values) {
+                    builder.value(value);
+                }
+                builder.endArray();
+            }
+            builder.endObject();
+        }
+    }
+
+    private static final class HitsSource implements RowSource {
+
+        private final SearchHit[] hits;
+        private final List<String> columns;
+
+        private HitsSource(SearchHit[] hits, List<String> selectFields) throws IOException {
+            this.hits = hits;
+            this.columns = resolveColumns(hits, selectFields);
+        }
+
+        @Override
+        public List<String> columns() {
+            return columns;
+        }
+
+        @Override
+        public void forEachRow(CheckedConsumer<Object[], IOException> consumer) throws IOException {
+            Object[] row = new Object[columns.size()];
+            for (SearchHit hit : hits) {
+                //不使用hit.getSourceAsMap(),它会把解析结果缓存在hit上,这里的map写完一行就可以回收
+                Map<String, Object> source = hit.hasSource() ? SourceLookup.sourceAsMap(hit.getSourceRef()) : Collections.emptyMap();
+                for (int idx = 0; idx < row.length; idx++) {
+                    row[idx] = XContentMapValues.extractValue(columns.get(idx), source);
+                }
+                consumer.accept(row);
+            }
+        }
+
+        /**
+         * select *或者带通配符的字段从返回的_source中展开得到列名,只扫描字段名,不解析成map
+         */
+        private static List<String> resolveColumns(SearchHit[] hits, List<String> selectFields) throws IOException {
+            boolean hasPattern = selectFields.isEmpty();
+            for (String selectField : selectFields) {
+                hasPattern |= Regex.isSimpleMatchPattern(selectField);
+            }
+            if (!hasPattern) {
+                return new ArrayList<>(selectFields);
+            }
+            Set<String> sourceFields = new LinkedHashSet<>();
+            for (SearchHit hit : hits) {
+                if (hit.hasSource()) {
+                    collectFields(hit.getSourceRef(), sourceFields);
+                }
+            }
+            if (selectFields.isEmpty()) {
+                return new ArrayList<>(sourceFields);
+            }
+            Set<String> columns = new LinkedHashSet<>();
+            for (String selectField : selectFields) {
+                if (!Regex.isSimpleMatchPattern(selectField)) {
+                    columns.add(selectField);
+                    continue;
+                }
+                for (String sourceField : sourceFields) {
+                    if (Regex.simpleMatch(selectField, sourceField)) {
+                        columns.add(sourceField);
+                    }
+                }
+            }
+            return new ArrayList<>(columns);
+        }
+
+        private static void collectFields(BytesReference source, Set<String> fields) throws IOException {
+            try (XContentParser parser = XContentHelper.createParser(NamedXContentRegistry.EMPTY,
+                    DeprecationHandler.THROW_UNSUPPORTED_OPERATION, source, XContentHelper.xContentType(source))) {
+                if (parser.nextToken() == XContentParser.Token.START_OBJECT) {
+                    collectFields(parser, "", fields);
+                }
+            }
+        }
+
+        /**
+         * 对象展开为a.b,数组(包括对象数组)整体作为一列
+         */
+        private static void collectFields(XContentParser parser, String prefix, Set<String> fields) throws IOException {
+            while (parser.nextToken() == XContentParser.Token.FIELD_NAME) {
+                String field = prefix + parser.currentName();
+                if (parser.nextToken() == XContentParser.Token.START_OBJECT) {
+                    collectFields(parser, field + ".", fields);
+                } else {
+                    fields.add(field);
+                    parser.skipChildren();
+                }
+            }
+        }
+    }
+
+    /**
+     * 先遍历一次桶得到所有的列,再遍历一次逐行写出
+     */
+    private static final class AggregationsSource implements RowSource {
+
+        private final Aggregations aggregations;
+        private final List<String> columns;
+
+        private AggregationsSource(Aggregations aggregations) throws IOException {
+            this.aggregations = aggregations;
+            Set<String> columns = new LinkedHashSet<>();
+            walk(aggregations, Collections.emptyMap(), -1, row -> columns.addAll(row.keySet()));
+            this.columns = new ArrayList<>(columns);
+        }
+
+        @Override
+        public List<String> columns() {
+            return columns;
+        }
+
+        @Override
+        public void forEachRow(CheckedConsumer<Object[], IOException> consumer) throws IOException {
+            Map<String, Integer> indexes = new HashMap<>();
+            for (int idx = 0; idx < columns.size(); idx++) {
+                indexes.put(columns.get(idx), idx);
+            }
+            Object[] row = new Object[columns.size()];
+            walk(aggregations, Collections.emptyMap(), -1, values -> {
+                Arrays.fill(row, null);
+                for (Map.Entry<String, Object> entry : values.entrySet()) {
+                    row[indexes.get(entry.getKey())] = entry.getValue();
+                }
+                consumer.accept(row);
+            });
+        }
+
+        private static void walk(Aggregations aggregations, Map<String, Object> parent, long docCount,
+                                 CheckedConsumer<Map<String, Object>, IOException> consumer) throws IOException {
+            Map<String, Object> row = new LinkedHashMap<>(parent);
+            List<Aggregation> bucketAggregations = new ArrayList<>();
+            for (Aggregation aggregation : aggregations) {
+                if (aggregation instanceof MultiBucketsAggregation || aggregation instanceof SingleBucketAggregation) {
+                    bucketAggregations.add(aggregation);
+                } else {
+                    putMetrics(aggregation, row);
+                }
+            }
+            if (bucketAggregations.isEmpty()) {
+                if (docCount >= 0) {
+                    row.put(DOC_COUNT, docCount);
+                }
+                consumer.accept(row);
+                return;
+            }
+            for (Aggregation aggregation : bucketAggregations) {
+                if (aggregation instanceof SingleBucketAggregation) {
+                    SingleBucketAggregation singleBucket = (SingleBucketAggregation) aggregation;
+                    walk(singleBucket.getAggregations(), row, singleBucket.getDocCount(), consumer);
+                    continue;
+                }
+                for (MultiBucketsAggregation.Bucket bucket : ((MultiBucketsAggregation) aggregation).getBuckets()) {
+                    Object key = bucket.getKey();
+                    if (!(key instanceof String) && !(key instanceof Number)) {
+                        key = bucket.getKeyAsString();
+                    }
+                    Map<String, Object> child = new LinkedHashMap<>(row);
+                    child.put(aggregation.getName(), key);
+                    walk(bucket.getAggregations(), child, bucket.getDocCount(), consumer);
+                }
+            }
+        }
+
+        private static void putMetrics(Aggregation aggregation, Map<String, Object> row) {
+            String name = aggregation.getName();
+            if (aggregation instanceof NumericMetricsAggregation.SingleValue) {
+                row.put(name, finite(((NumericMetricsAggregation.SingleValue) aggregation).value()));
+            } else if (aggregation instanceof Stats) {
+                Stats stats = (Stats) aggregation;
+                row.put(name + ".count", stats.getCount());
+                row.put(name + ".min", finite(stats.getMin()));
+                row.put(name + ".max", finite(stats.getMax()));
+                row.put(name + ".avg", stats.getCount() == 0 ? null : finite(stats.getAvg()));
+                row.put(name + ".sum", finite(stats.getSum()));
+                if (aggregation instanceof ExtendedStats) {
+                    ExtendedStats extendedStats = (ExtendedStats) aggregation;
+                    row.put(name + ".sum_of_squares", finite(extendedStats.getSumOfSquares()));
+                    row.put(name + ".variance", finite(extendedStats.getVariance()));
+                    row.put(name + ".std_deviation", finite(extendedStats.getStdDeviation()));
+                }
+            } else if (aggregation instanceof Percentiles || aggregation instanceof PercentileRanks) {
+                @SuppressWarnings("unchecked")
+                Iterable<Percentile> percentiles = (Iterable<Percentile>) aggregation;
+                for (Percentile percentile : percentiles) {
+                    row.put(name + "." + percentile.getPercent(), finite(percentile.getValue()));
+                }
+            }
+        }
+
+        /**
+         * 没有文档时min/max是Infinity,avg是NaN,输出null
+         */
+        private static Double finite(double value) {
+            return Double.isFinite(value) ? value : null;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package io.github.iamazy.elasticsearch.dsl.plugin;
+
+import io.github.iamazy.elasticsearch.dsl.sql.model.ElasticSqlPlan;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.support.ActionFilters;
+import org.elasticsearch.action.support.HandledTransportAction;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.util.concurrent.AbstractRunnable;
+import org.elasticsearch.tasks.CancellableTask;
+import org.elasticsearch.tasks.Task;
+import org.elasticsearch.tasks.TaskCancelledException;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.TransportService;
+
+/**
+ * Sql查询注册为可取消的任务,生成的search请求作为它的子任务,取消时一起取消
+ *
+ * @author iamazy
+ * @date 2019/5/20
+ * @descrition
+ **/
+public class TransportSqlAction extends HandledTransportAction<SqlRequest, SqlResponse> {
+
+    private final ThreadPool threadPool;
+    private final ClusterService clusterService;
+    private final Client client;
+    private final SqlPlanCache planCache;
+
+    @Inject
+    public TransportSqlAction(TransportService transportService, ActionFilters actionFilters, ThreadPool threadPool,
+                              ClusterService clusterService, Client client, SqlPlanCache planCache) {
+        super(SqlAction.NAME, transportService, actionFilters, SqlRequest::new);
+        this.threadPool = threadPool;
+        this.clusterService = clusterService;
+        this.client = client;
+        this.planCache = planCache;
+    }
+
+    @Override
+    protected void doExecute(Task task, SqlRequest request, ActionListener<SqlResponse> listener) {
+        //Sql解析和DSL生成放到isql线程池中执行,队列满时返回429
+        threadPool.executor(SqlPlugin.THREAD_POOL_NAME).execute(new AbstractRunnable() {
+            @Override
+            protected void doRun() {
+                //相同的Sql直接使用缓存的执行计划
+                ElasticSqlPlan plan = planCache.plan(request.getSql());
+                if (request.isExplain()) {
+                    listener.onResponse(new SqlResponse(plan.toRequest().source()));
+                    return;
+                }
+                //结果一定为空时直接在本节点返回,不访问分片
+                if (plan.canRespondLocally()) {
+                    listener.onResponse(new SqlResponse(ElasticSqlPlan.emptyResponse(), request.getFormat(), plan.getQueryFieldList()));
+                    return;
+                }
+                //排队期间已经被取消时不再发送search请求
+                if (((CancellableTask) task).isCancelled()) {
+                    throw new TaskCancelledException("cancelled");
+                }
+                SearchRequest searchRequest = plan.toRequest();
+                searchRequest.setParentTask(clusterService.localNode().getId(), task.getId());
+                client.search(searchRequest, ActionListener.wrap(searchResponse ->
+                        listener.onResponse(new SqlResponse(searchResponse, request.getFormat(), plan.getQueryFieldList())), listener::onFailure));
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                listener.onFailure(e);
+            }
+        });
+    }
+}
@@ -0,0 +1,29 @@
+package io.github.iamazy.elasticsearch.dsl.sql.batch;
+
+import io.github.iamazy.elasticsearch.dsl.sql.model.ElasticSqlParseResult;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 批量解析中单条SQL的结果,parseResult和failure只有一个不为null
+ *
+ * @author iamazy
+ * @date 2019/5/11
+ * @descrition
+ **/
+@Getter
+@AllArgsConstructor
+public class ElasticSqlBatchItem {
+
+    /**
+     * 在输入中的位置
+     */
+    private final int index;
+    private final String sql;
+    private final ElasticSqlParseResult parseResult;
+    private final RuntimeException failure;
+
+    public boolean isSuccess() {
+        return failure == null;
+    }
+}
@@ -0,0 +1,172 @@
+package io.github.iamazy.elasticsearch.dsl.sql.batch;
+
+import io.github.iamazy.elasticsearch.dsl.sql.exception.ElasticSql2DslException;
+import io.github.iamazy.elasticsearch.dsl.sql.model.ElasticSqlParseResult;
+import io.github.iamazy.elasticsearch.dsl.sql.parser.ElasticSql2DslParser;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 在ForkJoinPool上并行地将一批SQL转换为DSL
+ * <p>
+ * 解析器链无状态,所有线程共享同一个ElasticSql2DslParser;单条SQL解析失败不影响其他SQL,
+ * 失败原因记录在对应的ElasticSqlBatchItem中
+ *
+ * @author iamazy
+ * @date 2019/5/11
+ * @descrition
+ **/
+public class ElasticSqlBatchParser implements AutoCloseable {
+
+    private static final int DEFAULT_BATCH_THRESHOLD = 16;
+
+    private final ElasticSql2DslParser parser;
+    private final ForkJoinPool pool;
+    /**
+     * 只关闭自己创建的线程池
+     */
+    private final boolean ownPool;
+    private final int threshold;
+
+    private ElasticSqlBatchParser(Builder builder) {
+        this.parser = builder.parser;
+        if (builder.pool != null) {
+            this.pool = builder.pool;
+            this.ownPool = false;
+        } else if (builder.parallelism > 0) {
+            this.pool = new ForkJoinPool(builder.parallelism);
+            this.ownPool = true;
+        } else {
+            this.pool = ForkJoinPool.commonPool();
+            this.ownPool = false;
+        }
+        this.threshold = builder.threshold;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public ElasticSqlBatchResult parse(Stream<String> sqls) {
+        return parse(sqls.collect(Collectors.toList()));
+    }
+
+    public ElasticSqlBatchResult parse(List<String> sqls) {
+        if (sqls == null || sqls.isEmpty()) {
+            return new ElasticSqlBatchResult(Collections.emptyList(), 0, 0);
+        }
+        String[] input = sqls.toArray(new String[0]);
+        ElasticSqlBatchItem[] output = new ElasticSqlBatchItem[input.length];
+        long start = System.nanoTime();
+        pool.invoke(new BatchParseAction(input, output, 0, input.length));
+        long elapsedNanos = System.nanoTime() - start;
+
+        int failureCount = 0;
+        for (ElasticSqlBatchItem item : output) {
+            if (!item.isSuccess()) {
+                failureCount++;
+            }
+        }
+        return new ElasticSqlBatchResult(Collections.unmodifiableList(Arrays.asList(output)), failureCount, elapsedNanos);
+    }
+
+    private ElasticSqlBatchItem parseOne(int index, String sql) {
+        try {
+            if (sql == null) {
+                throw new ElasticSql2DslException("[syntax error] Sql cannot be null");
+            }
+            ElasticSqlParseResult parseResult = parser.parse(sql);
+            return new ElasticSqlBatchItem(index, sql, parseResult, null);
+        } catch (RuntimeException ex) {
+            return new ElasticSqlBatchItem(index, sql, null, ex);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (ownPool) {
+            pool.shutdown();
+        }
+    }
+
+    private class BatchParseAction extends RecursiveAction {
+
+        private final String[] input;
+        private final ElasticSqlBatchItem[] output;
+        private final int from;
+        private final int to;
+
+        BatchParseAction(String[] input, ElasticSqlBatchItem[] output, int from, int to) {
+            this.input = input;
+            this.output = output;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= threshold) {
+                for (int i = from; i < to; i++) {
+                    output[i] = parseOne(i, input[i]);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new BatchParseAction(input, output, from, middle),
+                    new BatchParseAction(input, output, middle, to));
+        }
+    }
+
+    public static class Builder {
+
+        private ElasticSql2DslParser parser = new ElasticSql2DslParser();
+        private ForkJoinPool pool;
+        private int parallelism = -1;
+        private int threshold = DEFAULT_BATCH_THRESHOLD;
+
+        private Builder() {
+        }
+
+        public Builder parser(ElasticSql2DslParser parser) {
+            this.parser = parser;
+            return this;
+        }
+
+        /**
+         * 使用外部的线程池,close时不会关闭
+         */
+        public Builder pool(ForkJoinPool pool) {
+            this.pool = pool;
+            return this;
+        }
+
+        /**
+         * 创建一个指定并行度的专用线程池,未指定pool和parallelism时使用ForkJoinPool.commonPool()
+         */
+        public Builder parallelism(int parallelism) {
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * 每个子任务最多顺序解析的SQL条数
+         */
+        public Builder threshold(int threshold) {
+            if (threshold < 1) {
+                throw new IllegalArgumentException("threshold must be positive");
+            }
+            this.threshold = threshold;
+            return this;
+        }
+
+        public ElasticSqlBatchParser build() {
+            return new ElasticSqlBatchParser(this);
+        }
+    }
+}
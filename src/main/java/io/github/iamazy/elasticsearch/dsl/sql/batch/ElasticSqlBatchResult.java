@@ -0,0 +1,51 @@
+package io.github.iamazy.elasticsearch.dsl.sql.batch;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 批量解析的结果,items与输入的SQL顺序一致
+ *
+ * @author iamazy
+ * @date 2019/5/11
+ * @descrition
+ **/
+@Getter
+@AllArgsConstructor
+public class ElasticSqlBatchResult {
+
+    private final List<ElasticSqlBatchItem> items;
+    private final int failureCount;
+    private final long elapsedNanos;
+
+    public int size() {
+        return items.size();
+    }
+
+    public int successCount() {
+        return items.size() - failureCount;
+    }
+
+    public boolean hasFailures() {
+        return failureCount > 0;
+    }
+
+    /**
+     * 每秒解析的SQL条数(包含解析失败的)
+     */
+    public double throughput() {
+        if (elapsedNanos <= 0) {
+            return 0;
+        }
+        return items.size() * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ElasticSqlBatchResult(size=%s, failureCount=%s, elapsedMillis=%s, throughput=%.1f/s)",
+                items.size(), failureCount, TimeUnit.NANOSECONDS.toMillis(elapsedNanos), throughput());
+    }
+}
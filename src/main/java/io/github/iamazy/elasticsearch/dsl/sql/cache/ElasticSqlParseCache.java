@@ -0,0 +1,277 @@
+package io.github.iamazy.elasticsearch.dsl.sql.cache;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.github.iamazy.elasticsearch.dsl.sql.exception.ElasticSql2DslException;
+import io.github.iamazy.elasticsearch.dsl.sql.model.ElasticSqlParseResult;
+import io.github.iamazy.elasticsearch.dsl.sql.model.ElasticSqlPlan;
+import io.github.iamazy.elasticsearch.dsl.sql.parser.ElasticSql2DslParser;
+import org.apache.commons.lang3.StringUtils;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.search.aggregations.AggregationBuilder;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 以规范化后的SQL为key缓存编译好的执行计划,命中时不再经过Druid词法/语法解析、解析器链以及SearchSourceBuilder的组装
+ * 同一条SQL并发未命中时只有一个线程解析,其余线程等待它的结果
+ * 解析失败(ElasticSql2DslException)的SQL会进入负缓存,再次请求时按缓存的错误信息抛出新的异常
+ *
+ * @author iamazy
+ * @date 2019/5/6
+ * @descrition
+ **/
+public class ElasticSqlParseCache {
+
+    private static final long DEFAULT_MAXIMUM_SIZE = 1000;
+    private static final long DEFAULT_NEGATIVE_MAXIMUM_SIZE = 200;
+    /**
+     * 一个QueryBuilder/SortBuilder/AggregationBuilder及其字段名、取值的大致内存占用
+     */
+    private static final long BYTES_PER_CLAUSE = 256;
+
+    private final ElasticSql2DslParser parser;
+    private final Cache<String, ElasticSqlPlan> planCache;
+    /**
+     * 只缓存错误信息,每次抛出新的异常,避免不同请求共享同一个异常实例的堆栈和suppressed
+     */
+    private final Cache<String, String> negativeCache;
+
+    private ElasticSqlParseCache(Builder builder) {
+        this.parser = builder.parser;
+        CacheBuilder<Object, Object> planCacheBuilder = CacheBuilder.newBuilder()
+                .concurrencyLevel(builder.concurrencyLevel)
+                .recordStats();
+        if (builder.maximumMemoryBytes >= 0) {
+            planCacheBuilder.maximumWeight(builder.maximumMemoryBytes)
+                    .weigher((String key, ElasticSqlPlan value) -> estimateBytes(key, value));
+        } else if (builder.maximumWeight > 0) {
+            //权重为规范化后SQL的字符数,SQL越长解析出的QueryBuilder通常越大
+            planCacheBuilder.maximumWeight(builder.maximumWeight)
+                    .weigher((String key, ElasticSqlPlan value) -> key.length());
+        } else {
+            planCacheBuilder.maximumSize(builder.maximumSize);
+        }
+        if (builder.expireAfterAccessMillis > 0) {
+            planCacheBuilder.expireAfterAccess(builder.expireAfterAccessMillis, TimeUnit.MILLISECONDS);
+        }
+        this.planCache = planCacheBuilder.build();
+        this.negativeCache = CacheBuilder.newBuilder()
+                .concurrencyLevel(builder.concurrencyLevel)
+                .maximumSize(builder.negativeMaximumSize)
+                .recordStats()
+                .build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 命中时返回缓存计划生成的解析结果,调用方修改from/size等不会影响缓存
+     */
+    public ElasticSqlParseResult parse(String sql) throws ElasticSql2DslException {
+        return plan(sql).toParseResult();
+    }
+
+    /**
+     * 缓存的执行计划是不可变的,可以直接共享,需要不同的from/size/scroll时使用plan.withXxx
+     */
+    public ElasticSqlPlan plan(String sql) throws ElasticSql2DslException {
+        return getOrParse(sql);
+    }
+
+    public SearchRequest toRequest(String sql) throws ElasticSql2DslException {
+        return getOrParse(sql).toRequest();
+    }
+
+    private ElasticSqlPlan getOrParse(String sql) {
+        if (StringUtils.isBlank(sql)) {
+            throw new ElasticSql2DslException("[syntax error] Sql cannot be blank");
+        }
+        String key = normalize(sql);
+        String failure = negativeCache.getIfPresent(key);
+        if (failure != null) {
+            throw new ElasticSql2DslException(failure);
+        }
+        try {
+            return planCache.get(key, () -> {
+                try {
+                    return parser.parse(sql).toPlan();
+                } catch (ElasticSql2DslException ex) {
+                    negativeCache.put(key, ex.getMessage() == null ? ex.toString() : ex.getMessage());
+                    throw ex;
+                }
+            });
+        } catch (UncheckedExecutionException | ExecutionException ex) {
+            //每个调用方各自得到一个新的异常,解析时的原始异常作为cause
+            Throwable cause = ex.getCause();
+            if (cause instanceof ElasticSql2DslException) {
+                throw new ElasticSql2DslException(cause.getMessage(), cause);
+            }
+            Throwables.throwIfUnchecked(cause);
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    public ElasticSqlParseCacheStats stats() {
+        CacheStats planStats = planCache.stats();
+        CacheStats negativeStats = negativeCache.stats();
+        return new ElasticSqlParseCacheStats(
+                planCache.size(), planStats.hitCount(), planStats.missCount(), planStats.evictionCount(),
+                negativeCache.size(), negativeStats.hitCount(), negativeStats.evictionCount()
+        );
+    }
+
+    public long size() {
+        return planCache.size();
+    }
+
+    public void invalidate(String sql) {
+        String key = normalize(sql);
+        planCache.invalidate(key);
+        negativeCache.invalidate(key);
+    }
+
+    public void invalidateAll() {
+        planCache.invalidateAll();
+        negativeCache.invalidateAll();
+    }
+
+    /**
+     * 估算缓存项占用的内存(字节),不渲染DSL: 规范化后的SQL按UTF-16计算,
+     * 每个查询子句、排序和聚合再按BYTES_PER_CLAUSE计算,IN列表等取值的大小已经体现在SQL的长度中
+     */
+    private static int estimateBytes(String key, ElasticSqlPlan plan) {
+        long clauses = countClauses(plan.getWhereCondition()) + countClauses(plan.getMatchCondition())
+                + (plan.getOrderBy() == null ? 0 : plan.getOrderBy().size()) + countAggregations(plan.getGroupBy());
+        long bytes = 2L * key.length() + BYTES_PER_CLAUSE * clauses;
+        return (int) Math.min(bytes, Integer.MAX_VALUE);
+    }
+
+    private static long countClauses(QueryBuilder query) {
+        if (!(query instanceof BoolQueryBuilder)) {
+            return query == null ? 0 : 1;
+        }
+        BoolQueryBuilder boolQuery = (BoolQueryBuilder) query;
+        long count = 1;
+        for (List<QueryBuilder> clauses : Arrays.asList(boolQuery.must(), boolQuery.filter(), boolQuery.should(), boolQuery.mustNot())) {
+            for (QueryBuilder clause : clauses) {
+                count += countClauses(clause);
+            }
+        }
+        return count;
+    }
+
+    private static long countAggregations(Collection<AggregationBuilder> aggregations) {
+        if (aggregations == null) {
+            return 0;
+        }
+        long count = 0;
+        for (AggregationBuilder aggregation : aggregations) {
+            count += 1 + countAggregations(aggregation.getSubAggregations());
+        }
+        return count;
+    }
+
+    /**
+     * 去掉首尾空白,并将引号之外的连续空白字符折叠为一个空格
+     */
+    static String normalize(String sql) {
+        String trimmed = sql.trim();
+        StringBuilder normalized = new StringBuilder(trimmed.length());
+        char quote = 0;
+        boolean lastWhitespace = false;
+        for (int i = 0; i < trimmed.length(); i++) {
+            char ch = trimmed.charAt(i);
+            if (quote == 0 && Character.isWhitespace(ch)) {
+                if (!lastWhitespace) {
+                    normalized.append(' ');
+                }
+                lastWhitespace = true;
+                continue;
+            }
+            lastWhitespace = false;
+            if (quote == 0) {
+                if (ch == '\'' || ch == '"' || ch == '`') {
+                    quote = ch;
+                }
+            } else if (ch == quote) {
+                quote = 0;
+            }
+            normalized.append(ch);
+        }
+        return normalized.toString();
+    }
+
+    public static class Builder {
+
+        private ElasticSql2DslParser parser = new ElasticSql2DslParser();
+        private long maximumSize = DEFAULT_MAXIMUM_SIZE;
+        private long maximumWeight = -1;
+        private long maximumMemoryBytes = -1;
+        private long negativeMaximumSize = DEFAULT_NEGATIVE_MAXIMUM_SIZE;
+        private long expireAfterAccessMillis = -1;
+        private int concurrencyLevel = 4;
+
+        private Builder() {
+        }
+
+        public Builder parser(ElasticSql2DslParser parser) {
+            this.parser = parser;
+            return this;
+        }
+
+        /**
+         * 最多缓存的SQL条数,与maximumWeight二选一
+         */
+        public Builder maximumSize(long maximumSize) {
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        /**
+         * 缓存的SQL总字符数上限,设置后maximumSize不再生效
+         */
+        public Builder maximumWeight(long maximumWeight) {
+            this.maximumWeight = maximumWeight;
+            return this;
+        }
+
+        /**
+         * 缓存估算占用内存的上限(字节),设置后maximumSize和maximumWeight不再生效,0表示不缓存
+         */
+        public Builder maximumMemoryBytes(long maximumMemoryBytes) {
+            this.maximumMemoryBytes = maximumMemoryBytes;
+            return this;
+        }
+
+        public Builder negativeMaximumSize(long negativeMaximumSize) {
+            this.negativeMaximumSize = negativeMaximumSize;
+            return this;
+        }
+
+        public Builder expireAfterAccess(long duration, TimeUnit unit) {
+            this.expireAfterAccessMillis = unit.toMillis(duration);
+            return this;
+        }
+
+        public Builder concurrencyLevel(int concurrencyLevel) {
+            this.concurrencyLevel = concurrencyLevel;
+            return this;
+        }
+
+        public ElasticSqlParseCache build() {
+            return new ElasticSqlParseCache(this);
+        }
+    }
+}
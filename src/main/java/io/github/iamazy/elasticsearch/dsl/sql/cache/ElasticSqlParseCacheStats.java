@@ -0,0 +1,34 @@
+package io.github.iamazy.elasticsearch.dsl.sql.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 解析缓存的统计信息快照
+ *
+ * @author iamazy
+ * @date 2019/5/6
+ * @descrition
+ **/
+@Getter
+@ToString
+@AllArgsConstructor
+public class ElasticSqlParseCacheStats {
+
+    private final long size;
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+    /**
+     * 负缓存(解析失败的SQL)
+     */
+    private final long negativeSize;
+    private final long negativeHitCount;
+    private final long negativeEvictionCount;
+
+    public double hitRate() {
+        long requestCount = hitCount + missCount;
+        return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+    }
+}
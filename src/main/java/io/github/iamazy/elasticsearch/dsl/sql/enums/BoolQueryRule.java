@@ -0,0 +1,49 @@
+package io.github.iamazy.elasticsearch.dsl.sql.enums;
+
+/**
+ * BoolQueryOptimizer的优化规则,可以单独开启或关闭
+ *
+ * @author iamazy
+ * @date 2019/5/17
+ * @descrition
+ **/
+public enum BoolQueryRule {
+    /**
+     * 子bool只有一种子句且有多个时,把子句提升到父bool中,例如must(bool(must(a),must(b))) -> must(a),must(b)
+     */
+    FLATTEN,
+    /**
+     * 子bool只有一个子句时,用这个子句替换子bool,例如must(bool(must(a))) -> must(a)
+     */
+    UNWRAP_SINGLE_CLAUSE,
+    /**
+     * 同一字段的term在should/must_not中合并为一个terms,只在不打分的上下文中生效
+     */
+    MERGE_TERMS,
+    /**
+     * 同一字段的多个range在must/filter中取交集合并为一个range,例如a>=10 and a<20,must只在不打分的上下文中合并
+     */
+    MERGE_RANGES,
+    /**
+     * OR中文本和参数相同、字段不同的match合并为一个most_fields类型的multi_match,文本只分析一次,得分不变
+     */
+    MERGE_MATCH,
+    /**
+     * 去掉同一子句列表中重复的查询,must/should只在不打分的上下文中去重
+     */
+    DEDUPE,
+    /**
+     * must_not(bool(must_not(a))) -> filter(a)
+     */
+    DOUBLE_NEGATION,
+    /**
+     * query子句中must里的term/terms/range/exists/ids移到filter中,不参与打分并且可以使用节点查询缓存
+     */
+    EXACT_TO_FILTER,
+    /**
+     * 识别不可能满足的条件(status='A' and status='B', x>10 and x<5, id in ())和永真的条件(x is null or x is not null),
+     * 不可能满足的查询优化为match_none,计划标记为empty
+     * 按单值字段判断,多值字段上同一字段取值不同的条件可以同时满足,所以不在BoolQueryOptimizer.DEFAULT中,需要显式开启
+     */
+    CONTRADICTION
+}
@@ -0,0 +1,42 @@
+package io.github.iamazy.elasticsearch.dsl.sql.enums;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Locale;
+
+/**
+ * _isql返回结果的格式
+ *
+ * @author iamazy
+ * @date 2019/5/21
+ * @descrition
+ **/
+public enum SqlResponseFormat {
+    /**
+     * 完整的SearchResponse(默认)
+     */
+    SEARCH,
+    /**
+     * 只返回select的列,columns是列名,rows中每一行是一个值数组
+     */
+    ROWS,
+    /**
+     * 每一列一个值数组,字符串重复出现时用字典编码(dictionary + codes)
+     */
+    COLUMNAR;
+
+    public static SqlResponseFormat of(String format) {
+        if (StringUtils.isBlank(format)) {
+            return SEARCH;
+        }
+        try {
+            return valueOf(format.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(String.format("[format] should be one of search, rows, columnar, but got [%s]", format));
+        }
+    }
+
+    public String value() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -15,4 +15,8 @@ public class ElasticSql2DslException extends RuntimeException {
     public ElasticSql2DslException(ParserException ex) {
         super(ex);
     }
+
+    public ElasticSql2DslException(String message, Throwable cause) {
+        super(message, cause);
+    }
 }
@@ -0,0 +1,43 @@
+package io.github.iamazy.elasticsearch.dsl.sql.fingerprint;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Sql的规范化指纹,字面量替换为?,关键字/方法别名统一写法,AND/OR的操作数排序
+ * 只是字面量不同或者空白/大小写/AND顺序不同的Sql得到相同的hash和shape
+ *
+ * @author iamazy
+ * @date 2019/5/15
+ * @descrition
+ **/
+@Getter
+@AllArgsConstructor
+@EqualsAndHashCode(of = {"hash", "shape"})
+public class ElasticSqlFingerprint {
+
+    /**
+     * shape的64位FNV-1a哈希
+     */
+    private final long hash;
+    /**
+     * 规范化后的Sql形状,只用于展示和排查,不能再拿去解析
+     */
+    private final String shape;
+    /**
+     * 按shape中?出现的顺序抽取的字面量,Sql里原本的?占位符不在其中
+     */
+    private final List<Object> literals;
+
+    public String getHashHex() {
+        return String.format("%016x", hash);
+    }
+
+    @Override
+    public String toString() {
+        return getHashHex() + " " + shape;
+    }
+}
@@ -0,0 +1,364 @@
+package io.github.iamazy.elasticsearch.dsl.sql.fingerprint;
+
+import com.alibaba.druid.sql.ast.SQLExpr;
+import com.alibaba.druid.sql.ast.SQLLimit;
+import com.alibaba.druid.sql.ast.SQLObject;
+import com.alibaba.druid.sql.ast.SQLOrderBy;
+import com.alibaba.druid.sql.ast.SQLOrderingSpecification;
+import com.alibaba.druid.sql.ast.SQLSetQuantifier;
+import com.alibaba.druid.sql.ast.expr.*;
+import com.alibaba.druid.sql.ast.statement.*;
+import com.alibaba.druid.util.FnvHash;
+import io.github.iamazy.elasticsearch.dsl.sql.druid.ElasticSqlSelectQueryBlock;
+import io.github.iamazy.elasticsearch.dsl.sql.exception.ElasticSql2DslException;
+import io.github.iamazy.elasticsearch.dsl.sql.parser.aggs.GroupByAggregationParser;
+import io.github.iamazy.elasticsearch.dsl.sql.parser.query.method.expr.MethodExpression;
+import io.github.iamazy.elasticsearch.dsl.sql.parser.query.method.expr.MethodExpressionRegistry;
+import io.github.iamazy.elasticsearch.dsl.sql.parser.sql.BoolExpressionParser;
+import io.github.iamazy.elasticsearch.dsl.sql.parser.sql.QueryOrderConditionParser;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 直接遍历Druid解析出的语法树生成Sql指纹,不会把语法树再渲染成Sql
+ * <p>
+ * 1. 字面量替换为?,并按出现顺序收集到字面量列表,IN列表整体折叠为(?+)
+ * 2. 关键字统一大写,方法名按所在子句(where/order by/group by)的解析器统一为第一个别名,例如termsQuery -> terms
+ * 3. 连续的AND/OR先展开,再按操作数的shape排序
+ *
+ * @author iamazy
+ * @date 2019/5/15
+ * @descrition
+ **/
+public final class ElasticSqlFingerprinter {
+
+    private static final Comparator<ElasticSqlFingerprinter> OPERAND_ORDER = Comparator
+            .comparing((ElasticSqlFingerprinter operand) -> operand.shape.toString())
+            .thenComparing(operand -> operand.literals.toString());
+
+    private final StringBuilder shape = new StringBuilder(64);
+    private final List<Object> literals = new ArrayList<>();
+    /**
+     * 当前子句中方法名对应的解析器,用来把方法别名统一成一种写法,为null时方法名只转小写
+     */
+    private MethodExpressionRegistry<? extends MethodExpression> methods;
+
+    private ElasticSqlFingerprinter(MethodExpressionRegistry<? extends MethodExpression> methods) {
+        this.methods = methods;
+    }
+
+    /**
+     * @param sqlObject   SQLQueryExpr或者SQLDeleteStatement
+     * @param deleteLimit Delete语句的limit,没有时为null
+     */
+    public static ElasticSqlFingerprint fingerprint(SQLObject sqlObject, SQLLimit deleteLimit) {
+        ElasticSqlFingerprinter fingerprinter = new ElasticSqlFingerprinter(null);
+        if (sqlObject instanceof SQLDeleteStatement) {
+            fingerprinter.appendDelete((SQLDeleteStatement) sqlObject, deleteLimit);
+        } else if (sqlObject instanceof SQLQueryExpr
+                && ((SQLQueryExpr) sqlObject).getSubQuery().getQuery() instanceof ElasticSqlSelectQueryBlock) {
+            fingerprinter.appendSelect((ElasticSqlSelectQueryBlock) ((SQLQueryExpr) sqlObject).getSubQuery().getQuery());
+        } else {
+            throw new ElasticSql2DslException("[syntax error] Sql only support Select,Delete Sql");
+        }
+        String shape = fingerprinter.shape.toString();
+        return new ElasticSqlFingerprint(FnvHash.fnv1a_64(shape), shape, Collections.unmodifiableList(fingerprinter.literals));
+    }
+
+    private void appendSelect(ElasticSqlSelectQueryBlock queryBlock) {
+        shape.append("SELECT ");
+        if (queryBlock.getDistionOption() == SQLSetQuantifier.DISTINCT) {
+            shape.append("DISTINCT ");
+        }
+        List<SQLSelectItem> selectList = queryBlock.getSelectList();
+        for (int i = 0; i < selectList.size(); i++) {
+            if (i > 0) {
+                shape.append(", ");
+            }
+            appendExpr(selectList.get(i).getExpr());
+            if (selectList.get(i).getAlias() != null) {
+                shape.append(" AS ").append(identifier(selectList.get(i).getAlias()));
+            }
+        }
+        appendFrom(queryBlock.getFrom());
+        methods = BoolExpressionParser.getMethodQueryParsers();
+        if (queryBlock.getMatchQuery() != null) {
+            shape.append(" QUERY ");
+            appendExpr(queryBlock.getMatchQuery());
+        }
+        if (queryBlock.getWhere() != null) {
+            shape.append(" WHERE ");
+            appendExpr(queryBlock.getWhere());
+        }
+        SQLSelectGroupByClause groupBy = queryBlock.getGroupBy();
+        if (groupBy != null && !groupBy.getItems().isEmpty()) {
+            methods = GroupByAggregationParser.getGroupByMethodParsers();
+            shape.append(" GROUP BY ");
+            appendList(groupBy.getItems());
+        }
+        SQLOrderBy orderBy = queryBlock.getOrderBy();
+        if (orderBy != null && !orderBy.getItems().isEmpty()) {
+            methods = QueryOrderConditionParser.getMethodSortParsers();
+            shape.append(" ORDER BY ");
+            for (int i = 0; i < orderBy.getItems().size(); i++) {
+                if (i > 0) {
+                    shape.append(", ");
+                }
+                SQLSelectOrderByItem orderByItem = orderBy.getItems().get(i);
+                appendExpr(orderByItem.getExpr());
+                //不写排序方向时默认为ASC
+                shape.append(orderByItem.getType() == SQLOrderingSpecification.DESC ? " DESC" : " ASC");
+            }
+        }
+        methods = null;
+        if (queryBlock.getRouting() != null) {
+            shape.append(" ROUTING BY ");
+            appendList(queryBlock.getRouting().getRoutingValues());
+        }
+        if (queryBlock.getScroll() != null) {
+            shape.append(" SCROLL BY ");
+            appendExpr(queryBlock.getScroll().getExpire());
+            if (queryBlock.getScroll().getScrollId() != null) {
+                shape.append(", ");
+                appendExpr(queryBlock.getScroll().getScrollId());
+            }
+        }
+        if (queryBlock.getLimit0() != null) {
+            appendLimit(queryBlock.getLimit0().getOffset(), queryBlock.getLimit0().getRowCount());
+        }
+    }
+
+    private void appendDelete(SQLDeleteStatement deleteStatement, SQLLimit deleteLimit) {
+        shape.append("DELETE");
+        appendFrom(deleteStatement.getTableSource());
+        if (deleteStatement.getWhere() != null) {
+            methods = BoolExpressionParser.getMethodQueryParsers();
+            shape.append(" WHERE ");
+            appendExpr(deleteStatement.getWhere());
+            methods = null;
+        }
+        if (deleteLimit != null) {
+            appendLimit(deleteLimit.getOffset(), deleteLimit.getRowCount());
+        }
+    }
+
+    private void appendFrom(SQLTableSource tableSource) {
+        if (tableSource == null) {
+            return;
+        }
+        if (!(tableSource instanceof SQLExprTableSource)) {
+            throw new ElasticSql2DslException("[syntax error] From table should like [index].[type]");
+        }
+        shape.append(" FROM ");
+        appendExpr(((SQLExprTableSource) tableSource).getExpr());
+        if (tableSource.getAlias() != null) {
+            shape.append(' ').append(identifier(tableSource.getAlias()));
+        }
+    }
+
+    private void appendLimit(SQLExpr offset, SQLExpr rowCount) {
+        shape.append(" LIMIT ");
+        if (offset != null) {
+            appendExpr(offset);
+            shape.append(", ");
+        }
+        appendExpr(rowCount);
+    }
+
+    private void appendList(List<SQLExpr> exprList) {
+        if (exprList == null) {
+            return;
+        }
+        for (int i = 0; i < exprList.size(); i++) {
+            if (i > 0) {
+                shape.append(", ");
+            }
+            appendExpr(exprList.get(i));
+        }
+    }
+
+    private void appendExpr(SQLExpr expr) {
+        if (expr instanceof SQLBinaryOpExpr) {
+            appendBinaryOpExpr((SQLBinaryOpExpr) expr);
+        } else if (expr instanceof SQLIdentifierExpr) {
+            shape.append(identifier(((SQLIdentifierExpr) expr).getName()));
+        } else if (expr instanceof SQLPropertyExpr) {
+            appendExpr(((SQLPropertyExpr) expr).getOwner());
+            shape.append('.').append(identifier(((SQLPropertyExpr) expr).getName()));
+        } else if (expr instanceof SQLAllColumnExpr) {
+            shape.append('*');
+        } else if (expr instanceof SQLNullExpr) {
+            shape.append("NULL");
+        } else if (expr instanceof SQLVariantRefExpr) {
+            shape.append('?');
+        } else if (isLiteral(expr)) {
+            shape.append('?');
+            literals.add(literalValue(expr));
+        } else if (expr instanceof SQLMethodInvokeExpr) {
+            SQLMethodInvokeExpr methodInvokeExpr = (SQLMethodInvokeExpr) expr;
+            if (methodInvokeExpr.getOwner() != null) {
+                appendExpr(methodInvokeExpr.getOwner());
+                shape.append('.');
+            }
+            shape.append(methodName(methodInvokeExpr.getMethodName())).append('(');
+            appendList(methodInvokeExpr.getParameters());
+            shape.append(')');
+        } else if (expr instanceof SQLAggregateExpr) {
+            SQLAggregateExpr aggregateExpr = (SQLAggregateExpr) expr;
+            shape.append(aggregateExpr.getMethodName().toLowerCase(Locale.ROOT)).append('(');
+            if (aggregateExpr.getOption() != null) {
+                shape.append(aggregateExpr.getOption().name()).append(' ');
+            }
+            appendList(aggregateExpr.getArguments());
+            shape.append(')');
+        } else if (expr instanceof SQLNotExpr) {
+            shape.append("NOT ");
+            appendOperand(((SQLNotExpr) expr).getExpr());
+        } else if (expr instanceof SQLUnaryExpr) {
+            shape.append(((SQLUnaryExpr) expr).getOperator().name()).append(' ');
+            appendOperand(((SQLUnaryExpr) expr).getExpr());
+        } else if (expr instanceof SQLInListExpr) {
+            appendInListExpr((SQLInListExpr) expr);
+        } else if (expr instanceof SQLBetweenExpr) {
+            SQLBetweenExpr betweenExpr = (SQLBetweenExpr) expr;
+            appendOperand(betweenExpr.getTestExpr());
+            shape.append(betweenExpr.isNot() ? " NOT BETWEEN " : " BETWEEN ");
+            appendOperand(betweenExpr.getBeginExpr());
+            shape.append(" AND ");
+            appendOperand(betweenExpr.getEndExpr());
+        } else if (expr instanceof SQLListExpr) {
+            shape.append('(');
+            appendList(((SQLListExpr) expr).getItems());
+            shape.append(')');
+        } else {
+            throw new ElasticSql2DslException(String.format("[syntax error] Sql fingerprint not support expr type [%s]",
+                    expr == null ? null : expr.getClass().getSimpleName()));
+        }
+    }
+
+    private void appendBinaryOpExpr(SQLBinaryOpExpr binaryOpExpr) {
+        SQLBinaryOperator operator = binaryOpExpr.getOperator();
+        if (operator != SQLBinaryOperator.BooleanAnd && operator != SQLBinaryOperator.BooleanOr) {
+            appendOperand(binaryOpExpr.getLeft());
+            shape.append(' ').append(operator.name).append(' ');
+            appendOperand(binaryOpExpr.getRight());
+            return;
+        }
+        //AND/OR满足交换律和结合律,展开后按shape排序,字面量跟随各自的操作数
+        List<SQLExpr> operandExprs = new ArrayList<>();
+        flatten(binaryOpExpr, operator, operandExprs);
+        List<ElasticSqlFingerprinter> operands = new ArrayList<>(operandExprs.size());
+        for (SQLExpr operandExpr : operandExprs) {
+            ElasticSqlFingerprinter operand = new ElasticSqlFingerprinter(methods);
+            operand.appendOperand(operandExpr);
+            operands.add(operand);
+        }
+        operands.sort(OPERAND_ORDER);
+        shape.append('(');
+        for (int i = 0; i < operands.size(); i++) {
+            if (i > 0) {
+                shape.append(' ').append(operator.name).append(' ');
+            }
+            shape.append(operands.get(i).shape);
+            literals.addAll(operands.get(i).literals);
+        }
+        shape.append(')');
+    }
+
+    /**
+     * 左深树上连续的AND/OR可能有上万层,用显式栈展开
+     */
+    private void flatten(SQLExpr expr, SQLBinaryOperator operator, List<SQLExpr> operandExprs) {
+        Deque<SQLExpr> pending = new ArrayDeque<>();
+        pending.push(expr);
+        while (!pending.isEmpty()) {
+            SQLExpr current = pending.pop();
+            if (current instanceof SQLBinaryOpExpr && ((SQLBinaryOpExpr) current).getOperator() == operator) {
+                pending.push(((SQLBinaryOpExpr) current).getRight());
+                pending.push(((SQLBinaryOpExpr) current).getLeft());
+            } else {
+                operandExprs.add(current);
+            }
+        }
+    }
+
+    /**
+     * 非AND/OR的二元表达式作为操作数时加上括号,避免不同的结合方式得到相同的shape
+     */
+    private void appendOperand(SQLExpr expr) {
+        SQLBinaryOperator operator = expr instanceof SQLBinaryOpExpr ? ((SQLBinaryOpExpr) expr).getOperator() : null;
+        if (operator == null || operator == SQLBinaryOperator.BooleanAnd || operator == SQLBinaryOperator.BooleanOr) {
+            appendExpr(expr);
+            return;
+        }
+        shape.append('(');
+        appendExpr(expr);
+        shape.append(')');
+    }
+
+    private void appendInListExpr(SQLInListExpr inListExpr) {
+        appendOperand(inListExpr.getExpr());
+        shape.append(inListExpr.isNot() ? " NOT IN (" : " IN (");
+        boolean allLiteral = true;
+        for (SQLExpr targetExpr : inListExpr.getTargetList()) {
+            if (!isLiteral(targetExpr) && !(targetExpr instanceof SQLVariantRefExpr)) {
+                allLiteral = false;
+                break;
+            }
+        }
+        if (!allLiteral) {
+            appendList(inListExpr.getTargetList());
+            shape.append(')');
+            return;
+        }
+        //IN列表只有字面量时不区分元素个数
+        shape.append("?+)");
+        for (SQLExpr targetExpr : inListExpr.getTargetList()) {
+            if (isLiteral(targetExpr)) {
+                literals.add(literalValue(targetExpr));
+            }
+        }
+    }
+
+    private String methodName(String methodName) {
+        MethodExpression expression = methods == null ? null : methods.lookup(methodName);
+        if (expression != null && !expression.defineMethodNames().isEmpty()) {
+            return expression.defineMethodNames().get(0);
+        }
+        return methodName.toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean isLiteral(SQLExpr expr) {
+        return expr instanceof SQLTextLiteralExpr || expr instanceof SQLNumericLiteralExpr || expr instanceof SQLBooleanExpr;
+    }
+
+    private static Object literalValue(SQLExpr expr) {
+        if (expr instanceof SQLTextLiteralExpr) {
+            return ((SQLTextLiteralExpr) expr).getText();
+        }
+        if (expr instanceof SQLNumericLiteralExpr) {
+            return ((SQLNumericLiteralExpr) expr).getNumber();
+        }
+        return ((SQLBooleanExpr) expr).getValue();
+    }
+
+    /**
+     * 去掉标识符两边的反引号或双引号
+     */
+    private static String identifier(String name) {
+        int length = name.length();
+        if (length > 1) {
+            char first = name.charAt(0);
+            if ((first == '`' || first == '"') && name.charAt(length - 1) == first) {
+                return name.substring(1, length - 1);
+            }
+        }
+        return name;
+    }
+}
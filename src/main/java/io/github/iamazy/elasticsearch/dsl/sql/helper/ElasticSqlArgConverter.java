@@ -15,18 +15,33 @@ public class ElasticSqlArgConverter {
     private ElasticSqlArgConverter(){}
 
     public static Object[] convertSqlArgs(List<SQLExpr> exprList) {
+        return convertSqlArgs(exprList, null);
+    }
+
+    /**
+     * @param parameters 预编译语句bind的参数,用于替换?占位符
+     */
+    public static Object[] convertSqlArgs(List<SQLExpr> exprList, Object[] parameters) {
         Object[] values = new Object[exprList.size()];
         for (int idx = 0; idx < exprList.size(); idx++) {
-            values[idx] = convertSqlArg(exprList.get(idx), true);
+            values[idx] = convertSqlArg(exprList.get(idx), true, parameters);
         }
         return values;
     }
 
     public static Object convertSqlArg(SQLExpr expr) {
-        return convertSqlArg(expr, true);
+        return convertSqlArg(expr, true, null);
+    }
+
+    public static Object convertSqlArg(SQLExpr expr, Object[] parameters) {
+        return convertSqlArg(expr, true, parameters);
     }
 
     public static Object convertSqlArg(SQLExpr expr, boolean recognizeDateArg) {
+        return convertSqlArg(expr, recognizeDateArg, null);
+    }
+
+    public static Object convertSqlArg(SQLExpr expr, boolean recognizeDateArg, Object[] parameters) {
         if (expr instanceof SQLIntegerExpr) {
             return ((SQLIntegerExpr) expr).getNumber().longValue();
         }
@@ -45,8 +60,8 @@ public class ElasticSqlArgConverter {
             SQLMethodInvokeExpr methodExpr = (SQLMethodInvokeExpr) expr;
             if (ElasticSqlDateParseHelper.isDateMethod(methodExpr)) {
                 ElasticSqlMethodInvokeHelper.checkDateMethod(methodExpr);
-                String patternArg = (String) ElasticSqlArgConverter.convertSqlArg(methodExpr.getParameters().get(0), false);
-                String timeValArg = (String) ElasticSqlArgConverter.convertSqlArg(methodExpr.getParameters().get(1), false);
+                String patternArg = (String) ElasticSqlArgConverter.convertSqlArg(methodExpr.getParameters().get(0), false, parameters);
+                String timeValArg = (String) ElasticSqlArgConverter.convertSqlArg(methodExpr.getParameters().get(1), false, parameters);
                 return ElasticSqlDateParseHelper.formatDefaultEsDate(patternArg, timeValArg);
             }
             return methodExpr;
@@ -54,8 +69,46 @@ public class ElasticSqlArgConverter {
         if(expr instanceof SQLBinaryOpExpr){
             return expr;
         }
+        if (expr instanceof SQLVariantRefExpr) {
+            return convertBoundArg(resolveParameter((SQLVariantRefExpr) expr, parameters), recognizeDateArg);
+        }
         throw new ElasticSql2DslException(
                 String.format("[syntax error] Arg type[%s] can not support.",
                         expr.toString()));
     }
-}
\ No newline at end of file
+
+    private static Object resolveParameter(SQLVariantRefExpr varRefExpr, Object[] parameters) {
+        if (parameters == null) {
+            throw new ElasticSql2DslException(
+                    String.format("[syntax error] Sql placeholder[%s] has no bound value, please use prepare(sql).bind(...)", varRefExpr.getName()));
+        }
+        int index = varRefExpr.getIndex();
+        if (index < 0 || index >= parameters.length) {
+            throw new ElasticSql2DslException(
+                    String.format("[syntax error] Sql placeholder index[%s] out of bound, bound parameters size is %s", index, parameters.length));
+        }
+        return parameters[index];
+    }
+
+    /**
+     * 绑定值与对应的Sql字面量保持一致的类型:整数转为long,小数转为double,字符串识别日期
+     */
+    private static Object convertBoundArg(Object value, boolean recognizeDateArg) {
+        if (value == null) {
+            throw new ElasticSql2DslException("[syntax error] Sql placeholder can not bind null value");
+        }
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        if (ElasticSqlDateParseHelper.isDateArgObjectValue(value)) {
+            return ElasticSqlDateParseHelper.formatDefaultEsDateObjectValue(value);
+        }
+        if (recognizeDateArg && (value instanceof String) && ElasticSqlDateParseHelper.isDateArgStringValue((String) value)) {
+            return ElasticSqlDateParseHelper.formatDefaultEsDateStringValue((String) value);
+        }
+        return value;
+    }
+}
@@ -1,32 +1,59 @@
 package io.github.iamazy.elasticsearch.dsl.sql.helper;
 
 import com.alibaba.druid.sql.ast.expr.SQLMethodInvokeExpr;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import io.github.iamazy.elasticsearch.dsl.cons.CoreConstants;
 import io.github.iamazy.elasticsearch.dsl.sql.exception.ElasticSql2DslException;
 
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.time.*;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
 import java.util.Date;
-import java.util.regex.Pattern;
 
 /**
+ * 日期字面量的识别和格式化
+ * <p>
+ * yyyy-MM-dd HH:mm:ss / yyyy-MM-dd HH:mm / yyyy-MM-dd 三种字面量一次扫描完成识别,
+ * 直接从字符中取出年月日时分秒并写出默认的ES日期格式(yyyy-MM-dd'T'HH:mm:ss.SSSZ),除结果字符串外不创建对象
+ * 其他格式使用按pattern缓存的不可变DateTimeFormatter,java.time与SimpleDateFormat语义不同的pattern仍交给SimpleDateFormat
+ *
  * @author iamazy
  * @date 2019/2/19
  * @descrition
  **/
-class ElasticSqlDateParseHelper {
-    private static final Pattern SQL_DATE_REGEX_PATTERN_01 = Pattern.compile("\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2}");
-    private static final Pattern SQL_DATE_REGEX_PATTERN_02 = Pattern.compile("\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}");
-    private static final Pattern SQL_DATE_REGEX_PATTERN_03 = Pattern.compile("\\d{4}-\\d{2}-\\d{2}");
+public class ElasticSqlDateParseHelper {
+
+    private static final DateTimeFormatter DEFAULT_ES_DATE_FORMATTER = DateTimeFormatter.ofPattern(CoreConstants.DEFAULT_ES_DATE_FORMAT);
+
+    private static final DateTimeFormatter DATE_RANGE_KEY_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    /**
+     * 只包含这些字母的pattern在java.time与SimpleDateFormat中含义相同
+     */
+    private static final String JAVA_TIME_COMPATIBLE_LETTERS = "yMdHms";
+
+    private static final Cache<String, DateTimeFormatter> FORMATTER_CACHE = CacheBuilder.newBuilder().maximumSize(256).build();
+
+    /**
+     * 与SimpleDateFormat一样使用JVM默认时区,在类加载时确定
+     */
+    private static final ZoneId DEFAULT_ZONE = ZoneId.systemDefault();
 
     static boolean isDateMethod(SQLMethodInvokeExpr dateMethodExpr) {
         return ElasticSqlMethodInvokeHelper.isMethodOf(ElasticSqlMethodInvokeHelper.DATE_METHOD, dateMethodExpr.getMethodName());
     }
 
     static boolean isDateArgStringValue(String date) {
-        return SqlDateRegex.DATE_REGEX_01.getPattern().matcher(date).matches()
-                || SqlDateRegex.DATE_REGEX_02.getPattern().matcher(date).matches()
-                || SqlDateRegex.DATE_REGEX_03.getPattern().matcher(date).matches();
+        return DateLiteral.classify(date) != DateLiteral.NONE;
     }
 
     static boolean isDateArgObjectValue(Object date) {
@@ -34,113 +61,290 @@ class ElasticSqlDateParseHelper {
     }
 
     static String formatDefaultEsDateStringValue(String date) {
-        if (SqlDateRegex.DATE_REGEX_01.getPattern().matcher(date).matches()) {
-            return formatDefaultEsDate(SqlDateRegex.DATE_REGEX_01.getPatternString(), date);
+        DateLiteral literal = DateLiteral.classify(date);
+        if (literal == DateLiteral.NONE) {
+            throw new ElasticSql2DslException(
+                    String.format("[syntax error] Can't support such date type: %s", date));
         }
-        if (SqlDateRegex.DATE_REGEX_02.getPattern().matcher(date).matches()) {
-            return formatDefaultEsDate(SqlDateRegex.DATE_REGEX_02.getPatternString(), date);
-        }
-        if (SqlDateRegex.DATE_REGEX_03.getPattern().matcher(date).matches()) {
-            return formatDefaultEsDate(SqlDateRegex.DATE_REGEX_03.getPatternString(), date);
-        }
-        throw new ElasticSql2DslException(
-                String.format("[syntax error] Can't support such date type: %s", date));
+        return formatDateLiteral(literal, date);
     }
 
     static String formatDefaultEsDateObjectValue(Object date) {
         if (date instanceof Date) {
-            SimpleDateFormat dateFormat = new SimpleDateFormat(CoreConstants.DEFAULT_ES_DATE_FORMAT);
-            return dateFormat.format(date);
+            long epochMilli = ((Date) date).getTime();
+            ZoneRules rules = DEFAULT_ZONE.getRules();
+            ZoneOffset offset = rules.isFixedOffset() ? rules.getOffset(Instant.EPOCH) : rules.getOffset(Instant.ofEpochMilli(epochMilli));
+            long localSeconds = Math.floorDiv(epochMilli, 1000L) + offset.getTotalSeconds();
+            int millis = (int) Math.floorMod(epochMilli, 1000L);
+            long epochDay = Math.floorDiv(localSeconds, 86400L);
+            int secondOfDay = (int) Math.floorMod(localSeconds, 86400L);
+            String formatted = formatEpochDay(epochDay, secondOfDay, millis, offset.getTotalSeconds());
+            if (formatted != null) {
+                return formatted;
+            }
+            return DEFAULT_ES_DATE_FORMATTER.format(Instant.ofEpochMilli(epochMilli).atZone(DEFAULT_ZONE));
         }
         throw new ElasticSql2DslException(
                 String.format("[syntax error] Sql cannot support such date type: %s", date.getClass()));
     }
 
     static String formatDefaultEsDate(String patternArg, String timeValArg) {
+        DateLiteral literal = DateLiteral.classify(timeValArg);
+        if (literal != DateLiteral.NONE && literal.pattern.equals(patternArg)) {
+            return formatDateLiteral(literal, timeValArg);
+        }
+        DateTimeFormatter formatter = isJavaTimeCompatible(patternArg) ? getFormatter(patternArg) : null;
+        if (formatter != null) {
+            try {
+                TemporalAccessor parsed = formatter.parseBest(timeValArg, LocalDateTime::from, LocalDate::from);
+                LocalDateTime localDateTime = parsed instanceof LocalDateTime
+                        ? (LocalDateTime) parsed : ((LocalDate) parsed).atStartOfDay();
+                return DEFAULT_ES_DATE_FORMATTER.format(ZonedDateTime.of(localDateTime, DEFAULT_ZONE));
+            } catch (DateTimeParseException ignore) {
+                //例如缺少日期字段的pattern,交给SimpleDateFormat按其默认值补全
+            }
+        }
         try {
             SimpleDateFormat dateFormat = new SimpleDateFormat(patternArg);
             Date date = dateFormat.parse(timeValArg);
-
-            dateFormat = new SimpleDateFormat(CoreConstants.DEFAULT_ES_DATE_FORMAT);
-            return dateFormat.format(date);
-        }
-        catch (ParseException pex) {
+            return formatDefaultEsDateObjectValue(date);
+        } catch (ParseException | IllegalArgumentException ex) {
             throw new ElasticSql2DslException("[syntax error] Parse time arg error: " + timeValArg);
         }
     }
 
-    private enum SqlDateRegex {
-        DATE_REGEX_01 {
-            @Override
-            Pattern getPattern() {
-                return SQL_DATE_REGEX_PATTERN_01;
-            }
+    /**
+     * 将formatDefaultEsDate*生成的ES日期字符串解析为ZonedDateTime
+     */
+    public static ZonedDateTime parseDefaultEsDate(String date) {
+        try {
+            return ZonedDateTime.parse(date, DEFAULT_ES_DATE_FORMATTER);
+        } catch (DateTimeParseException ex) {
+            throw new ElasticSql2DslException("[syntax error] Parse time arg error: " + date);
+        }
+    }
 
-            @Override
-            String getPatternString() {
-                return "yyyy-MM-dd HH:mm:ss";
-            }
-        },
-        DATE_REGEX_02 {
-            @Override
-            Pattern getPattern() {
-                return SQL_DATE_REGEX_PATTERN_02;
-            }
+    /**
+     * 与parseDefaultEsDate相同,不是formatDefaultEsDate*生成的日期字符串时返回null
+     */
+    public static ZonedDateTime tryParseDefaultEsDate(String date) {
+        try {
+            return ZonedDateTime.parse(date, DEFAULT_ES_DATE_FORMATTER);
+        } catch (DateTimeParseException ex) {
+            return null;
+        }
+    }
 
-            @Override
-            String getPatternString() {
-                return "yyyy-MM-dd HH:mm";
-            }
-        },
-        DATE_REGEX_03 {
-            @Override
-            Pattern getPattern() {
-                return SQL_DATE_REGEX_PATTERN_03;
-            }
+    /**
+     * 以yyyy-MM-dd HH:mm:ss格式输出,用于date range聚合的key
+     */
+    public static String formatDateRangeKey(ZonedDateTime date) {
+        return DATE_RANGE_KEY_FORMATTER.format(date.withZoneSameInstant(DEFAULT_ZONE));
+    }
 
-            @Override
-            String getPatternString() {
-                return "yyyy-MM-dd";
+    private static String formatDateLiteral(DateLiteral literal, String date) {
+        int year = DateLiteral.digits(date, 0, 4);
+        int month = DateLiteral.digits(date, 5, 2);
+        int day = DateLiteral.digits(date, 8, 2);
+        int hour = literal.length > 10 ? DateLiteral.digits(date, 11, 2) : 0;
+        int minute = literal.length > 10 ? DateLiteral.digits(date, 14, 2) : 0;
+        int second = literal.length > 16 ? DateLiteral.digits(date, 17, 2) : 0;
+
+        if (month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)
+                || hour > 23 || minute > 59 || second > 59) {
+            //超出范围的字段与SimpleDateFormat一样宽松地进位,例如2019-02-30
+            try {
+                LocalDateTime localDateTime = LocalDateTime.parse(date, literal.lenientFormatter());
+                return DEFAULT_ES_DATE_FORMATTER.format(ZonedDateTime.of(localDateTime, DEFAULT_ZONE));
+            } catch (DateTimeException ex) {
+                throw new ElasticSql2DslException("[syntax error] Parse time arg error: " + date);
             }
-        };
-
-        abstract Pattern getPattern();
+        }
 
-        abstract String getPatternString();
+        ZoneRules rules = DEFAULT_ZONE.getRules();
+        ZoneOffset offset;
+        if (rules.isFixedOffset()) {
+            offset = rules.getOffset(Instant.EPOCH);
+        } else {
+            LocalDateTime localDateTime = LocalDateTime.of(year, month, day, hour, minute, second);
+            ZoneOffsetTransition transition = rules.getTransition(localDateTime);
+            if (transition != null && transition.isGap()) {
+                //夏令时跳过的时间,与SimpleDateFormat一样顺延
+                return DEFAULT_ES_DATE_FORMATTER.format(ZonedDateTime.of(localDateTime, DEFAULT_ZONE));
+            }
+            offset = rules.getOffset(localDateTime);
+        }
+        return formatEsDate(year, month, day, hour, minute, second, 0, offset.getTotalSeconds());
     }
-}
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
 
+    private static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return Year.isLeap(year) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
 
+    /**
+     * 由epochDay计算年月日(公历),年份超出0-9999时返回null
+     */
+    private static String formatEpochDay(long epochDay, int secondOfDay, int millis, int offsetSeconds) {
+        long z = epochDay + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        if (year < 0 || year > 9999) {
+            return null;
+        }
+        return formatEsDate((int) year, month, day, secondOfDay / 3600, secondOfDay / 60 % 60, secondOfDay % 60, millis, offsetSeconds);
+    }
 
+    /**
+     * yyyy-MM-dd'T'HH:mm:ss.SSSZ
+     */
+    private static String formatEsDate(int year, int month, int day, int hour, int minute, int second, int millis, int offsetSeconds) {
+        char[] chars = new char[28];
+        write(chars, 0, year, 4);
+        chars[4] = '-';
+        write(chars, 5, month, 2);
+        chars[7] = '-';
+        write(chars, 8, day, 2);
+        chars[10] = 'T';
+        write(chars, 11, hour, 2);
+        chars[13] = ':';
+        write(chars, 14, minute, 2);
+        chars[16] = ':';
+        write(chars, 17, second, 2);
+        chars[19] = '.';
+        write(chars, 20, millis, 3);
+        chars[23] = offsetSeconds < 0 ? '-' : '+';
+        int offsetMinutes = Math.abs(offsetSeconds) / 60;
+        write(chars, 24, offsetMinutes / 60, 2);
+        write(chars, 26, offsetMinutes % 60, 2);
+        return new String(chars);
+    }
 
+    private static void write(char[] chars, int offset, int value, int width) {
+        for (int i = offset + width - 1; i >= offset; i--) {
+            chars[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
 
+    private static boolean isJavaTimeCompatible(String pattern) {
+        boolean quoted = false;
+        for (int i = 0; i < pattern.length(); i++) {
+            char ch = pattern.charAt(i);
+            if (ch == '\'') {
+                quoted = !quoted;
+            } else if (!quoted && ((ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z'))
+                    && JAVA_TIME_COMPATIBLE_LETTERS.indexOf(ch) < 0) {
+                return false;
+            }
+        }
+        return !quoted;
+    }
 
+    /**
+     * java.time不接受的pattern返回null,由SimpleDateFormat处理
+     */
+    private static DateTimeFormatter getFormatter(String pattern) {
+        DateTimeFormatter formatter = FORMATTER_CACHE.getIfPresent(pattern);
+        if (formatter == null) {
+            try {
+                formatter = DateTimeFormatter.ofPattern(pattern).withResolverStyle(ResolverStyle.LENIENT);
+            } catch (IllegalArgumentException ex) {
+                return null;
+            }
+            FORMATTER_CACHE.put(pattern, formatter);
+        }
+        return formatter;
+    }
 
+    /**
+     * 支持自动识别的日期字面量
+     */
+    private enum DateLiteral {
+        NONE(null, 0),
+        DATE_TIME("yyyy-MM-dd HH:mm:ss", 19),
+        DATE_HOUR_MINUTE("yyyy-MM-dd HH:mm", 16),
+        DATE("yyyy-MM-dd", 10);
+
+        private final String pattern;
+        private final int length;
+        private volatile DateTimeFormatter lenientFormatter;
+
+        DateLiteral(String pattern, int length) {
+            this.pattern = pattern;
+            this.length = length;
+        }
 
+        DateTimeFormatter lenientFormatter() {
+            if (lenientFormatter == null) {
+                lenientFormatter = new DateTimeFormatterBuilder()
+                        .appendPattern(pattern)
+                        .parseDefaulting(ChronoField.HOUR_OF_DAY, 0)
+                        .parseDefaulting(ChronoField.MINUTE_OF_HOUR, 0)
+                        .parseDefaulting(ChronoField.SECOND_OF_MINUTE, 0)
+                        .toFormatter()
+                        .withResolverStyle(ResolverStyle.LENIENT);
+            }
+            return lenientFormatter;
+        }
 
+        /**
+         * 一次扫描判断字面量的格式,等价于匹配 \d{4}-\d{2}-\d{2}( \d{2}:\d{2}(:\d{2})?)?
+         */
+        static DateLiteral classify(String text) {
+            int length = text.length();
+            if (length != 10 && length != 16 && length != 19) {
+                return NONE;
+            }
+            for (int i = 0; i < length; i++) {
+                char ch = text.charAt(i);
+                char expected;
+                switch (i) {
+                    case 4:
+                    case 7:
+                        expected = '-';
+                        break;
+                    case 10:
+                        expected = ' ';
+                        break;
+                    case 13:
+                    case 16:
+                        expected = ':';
+                        break;
+                    default:
+                        if (ch < '0' || ch > '9') {
+                            return NONE;
+                        }
+                        continue;
+                }
+                if (ch != expected) {
+                    return NONE;
+                }
+            }
+            return length == 19 ? DATE_TIME : length == 16 ? DATE_HOUR_MINUTE : DATE;
+        }
 
+        static int digits(String text, int offset, int width) {
+            int value = 0;
+            for (int i = offset; i < offset + width; i++) {
+                value = value * 10 + (text.charAt(i) - '0');
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package io.github.iamazy.elasticsearch.dsl.sql.helper;
+
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+
+import java.util.Arrays;
+
+/**
+ * 把LIKE的模式翻译成代价最小的ES查询:
+ * 没有通配符时使用term,只有末尾的%时使用prefix,其余的使用wildcard,只有正则形式的模式才使用regexp
+ * <p>
+ * %匹配任意多个字符,_匹配一个字符,\% \_ \\ 表示字符本身
+ *
+ * @author iamazy
+ * @date 2019/5/18
+ * @descrition
+ **/
+public class ElasticSqlLikeHelper {
+
+    private static final char ESCAPE = '\\';
+    private static final int ANY = -1;
+    private static final int ONE = -2;
+
+    private ElasticSqlLikeHelper() {
+    }
+
+    public static QueryBuilder buildLikeQuery(String field, String pattern) {
+        if (isRegexShaped(pattern)) {
+            return QueryBuilders.regexpQuery(field, pattern);
+        }
+        int[] tokens = tokenize(pattern);
+        int firstWildcard = firstWildcard(tokens);
+        if (firstWildcard < 0) {
+            return QueryBuilders.termQuery(field, literal(tokens, 0, tokens.length));
+        }
+        if (allMatch(tokens, 0, ANY)) {
+            //LIKE '%'匹配所有非null的值
+            return QueryBuilders.existsQuery(field);
+        }
+        if (firstWildcard > 0 && allMatch(tokens, firstWildcard, ANY)) {
+            return QueryBuilders.prefixQuery(field, literal(tokens, 0, firstWildcard));
+        }
+        return QueryBuilders.wildcardQuery(field, toWildcard(tokens));
+    }
+
+    /**
+     * 模式是否以通配符开头,这类查询需要遍历字段的所有term,代价很高
+     */
+    public static boolean isLeadingWildcard(String pattern) {
+        if (isRegexShaped(pattern)) {
+            char first = pattern.charAt(0);
+            return first == '.' || first == '[' || first == '(';
+        }
+        int[] tokens = tokenize(pattern);
+        return tokens.length > 0 && tokens[0] < 0 && !allMatch(tokens, 0, ANY);
+    }
+
+    /**
+     * 包含.* .+ .? | 或者[...]字符组时认为是正则表达式,保持原来的regexp查询
+     */
+    static boolean isRegexShaped(String pattern) {
+        boolean openClass = false;
+        for (int i = 0; i < pattern.length(); i++) {
+            char ch = pattern.charAt(i);
+            if (ch == ESCAPE) {
+                i++;
+                continue;
+            }
+            if (ch == '|') {
+                return true;
+            }
+            if (ch == '.' && i + 1 < pattern.length()) {
+                char next = pattern.charAt(i + 1);
+                if (next == '*' || next == '+' || next == '?') {
+                    return true;
+                }
+            }
+            if (ch == '[') {
+                openClass = true;
+            } else if (ch == ']' && openClass) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int[] tokenize(String pattern) {
+        int[] tokens = new int[pattern.length()];
+        int size = 0;
+        for (int i = 0; i < pattern.length(); i++) {
+            char ch = pattern.charAt(i);
+            if (ch == ESCAPE && i + 1 < pattern.length()) {
+                tokens[size++] = pattern.charAt(++i);
+            } else if (ch == '%') {
+                //连续的%等价于一个%
+                if (size == 0 || tokens[size - 1] != ANY) {
+                    tokens[size++] = ANY;
+                }
+            } else if (ch == '_') {
+                tokens[size++] = ONE;
+            } else {
+                tokens[size++] = ch;
+            }
+        }
+        return Arrays.copyOf(tokens, size);
+    }
+
+    private static int firstWildcard(int[] tokens) {
+        for (int i = 0; i < tokens.length; i++) {
+            if (tokens[i] < 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean allMatch(int[] tokens, int from, int token) {
+        for (int i = from; i < tokens.length; i++) {
+            if (tokens[i] != token) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String literal(int[] tokens, int from, int to) {
+        StringBuilder literal = new StringBuilder(to - from);
+        for (int i = from; i < to; i++) {
+            literal.append((char) tokens[i]);
+        }
+        return literal.toString();
+    }
+
+    private static String toWildcard(int[] tokens) {
+        StringBuilder wildcard = new StringBuilder(tokens.length + 4);
+        for (int token : tokens) {
+            if (token == ANY) {
+                wildcard.append('*');
+            } else if (token == ONE) {
+                wildcard.append('?');
+            } else {
+                char ch = (char) token;
+                //wildcard查询中*?\需要转义
+                if (ch == '*' || ch == '?' || ch == ESCAPE) {
+                    wildcard.append(ESCAPE);
+                }
+                wildcard.append(ch);
+            }
+        }
+        return wildcard.toString();
+    }
+}
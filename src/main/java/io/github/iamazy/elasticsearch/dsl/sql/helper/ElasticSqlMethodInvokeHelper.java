@@ -19,6 +19,7 @@ import java.util.List;
  **/
 public class ElasticSqlMethodInvokeHelper {
     static final List<String> DATE_METHOD = ImmutableList.of("date", "to_date", "toDate");
+    public static final List<String> TERMS_LOOKUP_METHOD = ImmutableList.of("lookup", "terms_lookup");
 
 
     private static final List<String> AGG_RANGE_METHOD = ImmutableList.of("range", "range_agg");
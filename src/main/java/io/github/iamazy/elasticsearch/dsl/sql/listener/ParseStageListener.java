@@ -0,0 +1,40 @@
+package io.github.iamazy.elasticsearch.dsl.sql.listener;
+
+/**
+ * SQL转DSL各阶段的耗时/内存分配回调
+ * <p>
+ * 阶段名称: lex(Druid词法/语法解析), 解析器链中每个QueryParser的类名, toRequest(构建SearchRequest)
+ * <p>
+ * isEnabled()返回false时解析器不会计时,也不会回调onStage
+ *
+ * @author iamazy
+ * @date 2019/5/13
+ * @descrition
+ **/
+public interface ParseStageListener {
+
+    String STAGE_LEX = "lex";
+    String STAGE_TO_REQUEST = "toRequest";
+
+    ParseStageListener NOOP = new ParseStageListener() {
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+
+        @Override
+        public void onStage(String stage, long nanos, long allocatedBytes) {
+        }
+    };
+
+    default boolean isEnabled() {
+        return true;
+    }
+
+    /**
+     * @param stage          阶段名称
+     * @param nanos          耗时(纳秒)
+     * @param allocatedBytes 当前线程在该阶段分配的字节数,JVM不支持时为-1
+     */
+    void onStage(String stage, long nanos, long allocatedBytes);
+}
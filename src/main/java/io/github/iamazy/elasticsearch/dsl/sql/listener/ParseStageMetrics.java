@@ -0,0 +1,79 @@
+package io.github.iamazy.elasticsearch.dsl.sql.listener;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按阶段累计调用次数、耗时、分配字节数,并记录以2为底的对数耗时直方图,可以导出到监控系统
+ *
+ * @author iamazy
+ * @date 2019/5/13
+ * @descrition
+ **/
+public class ParseStageMetrics implements ParseStageListener {
+
+    private final ConcurrentMap<String, StageCounter> counters = new ConcurrentHashMap<>();
+
+    @Override
+    public void onStage(String stage, long nanos, long allocatedBytes) {
+        StageCounter counter = counters.get(stage);
+        if (counter == null) {
+            counter = counters.computeIfAbsent(stage, key -> new StageCounter());
+        }
+        counter.record(nanos, allocatedBytes);
+    }
+
+    public ParseStageSnapshot snapshot(String stage) {
+        StageCounter counter = counters.get(stage);
+        return counter == null ? null : counter.snapshot(stage);
+    }
+
+    /**
+     * 所有阶段的统计快照,按阶段名称排序
+     */
+    public Map<String, ParseStageSnapshot> snapshot() {
+        Map<String, ParseStageSnapshot> snapshots = new TreeMap<>();
+        counters.forEach((stage, counter) -> snapshots.put(stage, counter.snapshot(stage)));
+        return snapshots;
+    }
+
+    public void reset() {
+        counters.clear();
+    }
+
+    private static class StageCounter {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final LongAdder allocatedBytes = new LongAdder();
+        /**
+         * 下标i统计耗时在[2^(i-1), 2^i)纳秒之间的次数
+         */
+        private final AtomicLongArray histogram = new AtomicLongArray(ParseStageSnapshot.HISTOGRAM_BUCKETS);
+
+        void record(long nanos, long bytes) {
+            long value = Math.max(nanos, 0);
+            count.increment();
+            totalNanos.add(value);
+            maxNanos.accumulate(value);
+            if (bytes > 0) {
+                allocatedBytes.add(bytes);
+            }
+            histogram.incrementAndGet(64 - Long.numberOfLeadingZeros(value));
+        }
+
+        ParseStageSnapshot snapshot(String stage) {
+            long[] buckets = new long[histogram.length()];
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = histogram.get(i);
+            }
+            return new ParseStageSnapshot(stage, count.sum(), totalNanos.sum(), maxNanos.get(), allocatedBytes.sum(), buckets);
+        }
+    }
+}
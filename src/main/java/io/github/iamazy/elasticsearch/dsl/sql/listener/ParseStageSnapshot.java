@@ -0,0 +1,79 @@
+package io.github.iamazy.elasticsearch.dsl.sql.listener;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 单个阶段的统计快照
+ *
+ * @author iamazy
+ * @date 2019/5/13
+ * @descrition
+ **/
+@Getter
+@AllArgsConstructor
+public class ParseStageSnapshot {
+
+    static final int HISTOGRAM_BUCKETS = 64;
+
+    private final String stage;
+    private final long count;
+    private final long totalNanos;
+    private final long maxNanos;
+    private final long allocatedBytes;
+    /**
+     * 下标i统计耗时在[2^(i-1), 2^i)纳秒之间的次数
+     */
+    private final long[] histogram;
+
+    public double meanNanos() {
+        return count == 0 ? 0 : (double) totalNanos / count;
+    }
+
+    public double meanAllocatedBytes() {
+        return count == 0 ? 0 : (double) allocatedBytes / count;
+    }
+
+    /**
+     * 直方图估算的分位数耗时(所在桶的上界),quantile取值(0,1]
+     */
+    public long percentileNanos(double quantile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * count);
+        long seen = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            seen += histogram[i];
+            if (seen >= rank) {
+                return i >= 63 ? Long.MAX_VALUE : Math.min((1L << i) - 1, maxNanos);
+            }
+        }
+        return maxNanos;
+    }
+
+    /**
+     * 导出为扁平的Map,方便写入JSON或者监控系统
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("count", count);
+        map.put("total_nanos", totalNanos);
+        map.put("mean_nanos", meanNanos());
+        map.put("p50_nanos", percentileNanos(0.5));
+        map.put("p99_nanos", percentileNanos(0.99));
+        map.put("max_nanos", maxNanos);
+        map.put("allocated_bytes", allocatedBytes);
+        map.put("mean_allocated_bytes", meanAllocatedBytes());
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s(count=%s, mean=%.0fns, p99=%sns, max=%sns, alloc=%.0fB/op)",
+                stage, count, meanNanos(), percentileNanos(0.99), maxNanos, meanAllocatedBytes());
+    }
+}
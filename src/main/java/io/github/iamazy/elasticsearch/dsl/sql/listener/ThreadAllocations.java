@@ -0,0 +1,55 @@
+package io.github.iamazy.elasticsearch.dsl.sql.listener;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * 读取当前线程累计分配的字节数(HotSpot的com.sun.management.ThreadMXBean),不支持时返回-1
+ *
+ * @author iamazy
+ * @date 2019/5/13
+ * @descrition
+ **/
+public final class ThreadAllocations {
+
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN = loadThreadMXBean();
+
+    private ThreadAllocations() {
+    }
+
+    private static com.sun.management.ThreadMXBean loadThreadMXBean() {
+        try {
+            ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+            if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean sunThreadMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+                if (sunThreadMXBean.isThreadAllocatedMemorySupported() && sunThreadMXBean.isThreadAllocatedMemoryEnabled()) {
+                    return sunThreadMXBean;
+                }
+            }
+        } catch (SecurityException | LinkageError ignore) {
+            //没有monitor权限或者不是HotSpot虚拟机
+        }
+        return null;
+    }
+
+    public static boolean isSupported() {
+        return THREAD_MX_BEAN != null;
+    }
+
+    public static long currentThreadAllocatedBytes() {
+        if (THREAD_MX_BEAN == null) {
+            return -1;
+        }
+        return THREAD_MX_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * 与currentThreadAllocatedBytes()配合计算区间内分配的字节数
+     */
+    public static long allocatedSince(long start) {
+        if (start < 0) {
+            return -1;
+        }
+        return currentThreadAllocatedBytes() - start;
+    }
+}
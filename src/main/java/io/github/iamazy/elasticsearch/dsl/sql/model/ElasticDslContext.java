@@ -1,9 +1,14 @@
 package io.github.iamazy.elasticsearch.dsl.sql.model;
 
 import com.alibaba.druid.sql.ast.SQLObject;
+import io.github.iamazy.elasticsearch.dsl.sql.optimizer.BoolQueryOptimizer;
 import lombok.Getter;
 
+import java.util.Set;
+
 /**
+ * 单次解析的上下文,解析器本身无状态,所有和本次解析相关的状态都放在这里
+ *
  * @author iamazy
  * @date 2019/2/19
  * @descrition
@@ -14,13 +19,48 @@ public class ElasticDslContext {
 
     private SQLObject sqlObject;
     private ElasticSqlParseResult parseResult;
+    /**
+     * 预编译语句bind的参数,按?出现的顺序排列
+     */
+    private Object[] parameters;
+    /**
+     * 对解析出的bool查询做等价变换
+     */
+    private BoolQueryOptimizer queryOptimizer;
 
     public ElasticDslContext(SQLObject sqlObject){
+        this(sqlObject, null);
+    }
+
+    public ElasticDslContext(SQLObject sqlObject, Object[] parameters){
+        this(sqlObject, parameters, BoolQueryOptimizer.DEFAULT);
+    }
+
+    public ElasticDslContext(SQLObject sqlObject, Object[] parameters, BoolQueryOptimizer queryOptimizer){
 
         this.sqlObject =sqlObject;
+        this.parameters = parameters;
+        this.queryOptimizer = queryOptimizer == null ? BoolQueryOptimizer.DEFAULT : queryOptimizer;
         parseResult=new ElasticSqlParseResult();
     }
 
+    public String getQueryAs() {
+        return parseResult.getQueryAs();
+    }
+
+    /**
+     * 需要高亮显示的字段(非nested),嵌套解析的子查询也写入这里
+     */
+    public Set<String> getHighlighter() {
+        return parseResult.getHighlighter();
+    }
+
+    /**
+     * 以通配符开头的LIKE条件所在的字段
+     */
+    public Set<String> getLeadingWildcardFields() {
+        return parseResult.getLeadingWildcardFields();
+    }
 
     @Override
     public String toString() {
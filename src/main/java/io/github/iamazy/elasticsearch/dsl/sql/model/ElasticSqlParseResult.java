@@ -1,30 +1,32 @@
 package io.github.iamazy.elasticsearch.dsl.sql.model;
 
-import io.github.iamazy.elasticsearch.dsl.cons.CoreConstants;
-import io.github.iamazy.elasticsearch.dsl.elastic.HighlightBuilders;
-import io.github.iamazy.elasticsearch.dsl.sql.exception.ElasticSql2DslException;
+import io.github.iamazy.elasticsearch.dsl.sql.listener.ParseStageListener;
+import io.github.iamazy.elasticsearch.dsl.sql.listener.ThreadAllocations;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
 
-import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.collections4.CollectionUtils;
-import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.apache.commons.io.output.WriterOutputStream;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchResponse;
-import org.elasticsearch.action.search.SearchScrollRequest;
 import org.elasticsearch.client.RequestOptions;
 import org.elasticsearch.client.RestHighLevelClient;
-import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.index.query.BoolQueryBuilder;
-import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.index.reindex.DeleteByQueryRequest;
-import org.elasticsearch.search.Scroll;
 import org.elasticsearch.search.aggregations.AggregationBuilder;
-import org.elasticsearch.search.builder.SearchSourceBuilder;
-import org.elasticsearch.search.fetch.subphase.highlight.HighlightBuilder;
 import org.elasticsearch.search.sort.SortBuilder;
 
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 
@@ -33,7 +35,6 @@ import java.util.*;
  * @date 2019/2/19
  * @descrition
  **/
-@Slf4j
 @Data
 public class ElasticSqlParseResult {
 
@@ -49,137 +50,111 @@ public class ElasticSqlParseResult {
      * 需要高亮显示的字段
      */
     private Set<String> highlighter=new HashSet<>(0);
+    /**
+     * 以通配符开头的LIKE条件所在的字段,这类查询需要遍历字段的所有term
+     */
+    private Set<String> leadingWildcardFields=new LinkedHashSet<>(0);
     private List<String> routingBy;
     private List<String> queryFieldList;
     private transient BoolQueryBuilder whereCondition;
     private transient BoolQueryBuilder matchCondition;
     private transient List<SortBuilder> orderBy;
     private transient List<AggregationBuilder> groupBy;
-    private transient SearchSourceBuilder searchSourceBuilder = new SearchSourceBuilder();
-
-    public DeleteByQueryRequest toDelRequest() {
-        DeleteByQueryRequest deleteByQueryRequest = new DeleteByQueryRequest(toRequest().indices());
-        deleteByQueryRequest.setQuery(searchSourceBuilder.query());
-//        if (StringUtils.isNotBlank(type)) {
-//            deleteByQueryRequest.types(type);
-//        }
-        if (CollectionUtils.isNotEmpty(routingBy)) {
-            deleteByQueryRequest.setRouting(routingBy.get(0));
-        }
+    /**
+     * 记录toRequest的耗时,由解析器设置
+     */
+    private transient ParseStageListener stageListener = ParseStageListener.NOOP;
 
-        if (size < 0) {
-            deleteByQueryRequest.setSize(15);
-        } else {
-            deleteByQueryRequest.setSize(size);
-        }
-        return deleteByQueryRequest;
-    }
+    /**
+     * 解析完成后解析结果不再修改,第一次使用时编译的计划保存下来,toRequest/toDelRequest/toResponse/toString共用
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient volatile ElasticSqlPlan plan;
 
-    public SearchResponse toResponse(RestHighLevelClient restHighLevelClient, RequestOptions requestOptions) throws IOException {
-        if (StringUtils.isNotBlank(scrollExpire) && StringUtils.isBlank(scrollId)) {
-            return restHighLevelClient.search(toRequest(), requestOptions);
-        } else if (StringUtils.isNotBlank(scrollExpire) && StringUtils.isNotBlank(scrollId)) {
-            SearchScrollRequest scrollRequest = new SearchScrollRequest(scrollId);
-            scrollRequest.scroll(toRequest().scroll());
-            return restHighLevelClient.scroll(scrollRequest, requestOptions);
-        } else if (StringUtils.isBlank(scrollExpire)) {
-            return restHighLevelClient.search(toRequest(), requestOptions);
-        }
-        throw new ElasticSql2DslException("[syntax error] response error,please check your sql");
+    /**
+     * 编译为不可变的执行计划,SearchSourceBuilder只组装一次,计划可以缓存并在多个线程之间共享
+     * 计划只生成一次,重复调用返回同一个计划,之后再修改当前解析结果不会影响已经生成的计划
+     */
+    public ElasticSqlPlan toPlan() {
+        return plan(true);
     }
 
-    public SearchRequest toRequest() {
-        SearchRequest searchRequest = new SearchRequest();
-        if (CollectionUtils.isNotEmpty(indices)) {
-            searchRequest.indices(indices.toArray(new String[0]));
-        }
-//        if (StringUtils.isNotBlank(type)) {
-//            searchRequest.types(type);
-//        }
-
-
-        if (from < 0) {
-            log.debug("[from] is gte zero, assign 0 to [from(int)] as default value!!!");
-            //这里不会修改from的值
-            searchSourceBuilder.from(0);
-        } else {
-            searchSourceBuilder.from(from);
-        }
-        if (size < 0) {
-            log.debug("[size] is gte zero, assign 15 to [size(int)] as default value!!!");
-            searchSourceBuilder.size(15);
-        } else {
-            searchSourceBuilder.size(size);
-        }
-
-        if(CollectionUtils.isNotEmpty(highlighter)) {
-            HighlightBuilder highlightBuilder = HighlightBuilders.highlighter(highlighter);
-            searchSourceBuilder.highlighter(highlightBuilder);
+    /**
+     * @param recordStage 是否把编译计划的耗时计入toRequest阶段
+     */
+    private ElasticSqlPlan plan(boolean recordStage) {
+        ElasticSqlPlan current = plan;
+        if (current != null) {
+            return current;
         }
-
-        if (whereCondition != null && whereCondition.hasClauses()) {
-            if (matchCondition != null && matchCondition.hasClauses()) {
-                //filter不进行打分
-                searchSourceBuilder.query(matchCondition.filter(whereCondition));
-            } else {
-                searchSourceBuilder.query(QueryBuilders.boolQuery().filter(whereCondition));
-            }
+        if (!recordStage || stageListener == null || !stageListener.isEnabled()) {
+            current = new ElasticSqlPlan(this);
         } else {
-            if (matchCondition != null && matchCondition.hasClauses()) {
-                searchSourceBuilder.query(matchCondition);
-            } else {
-                searchSourceBuilder.query(QueryBuilders.matchAllQuery());
-            }
-        }
-
-        if (CollectionUtils.isNotEmpty(orderBy)) {
-            for (SortBuilder sortBuilder : orderBy) {
-                searchSourceBuilder.sort(sortBuilder);
-            }
-        }
-
-        if (CollectionUtils.isNotEmpty(queryFieldList)) {
-            searchSourceBuilder.fetchSource(queryFieldList.toArray(new String[0]), null);
+            long start = System.nanoTime();
+            long allocated = ThreadAllocations.currentThreadAllocatedBytes();
+            current = new ElasticSqlPlan(this);
+            stageListener.onStage(ParseStageListener.STAGE_TO_REQUEST, System.nanoTime() - start, ThreadAllocations.allocatedSince(allocated));
         }
+        plan = current;
+        return current;
+    }
 
-        if (CollectionUtils.isNotEmpty(routingBy)) {
-            searchRequest.routing(routingBy.toArray(new String[0]));
-        }
+    public DeleteByQueryRequest toDelRequest() {
+        return toPlan().toDelRequest();
+    }
 
-        if (CollectionUtils.isNotEmpty(groupBy)) {
-            for (AggregationBuilder aggItem : groupBy) {
-                searchSourceBuilder.aggregation(aggItem);
-            }
-        }
+    public SearchResponse toResponse(RestHighLevelClient restHighLevelClient, RequestOptions requestOptions) throws IOException {
+        return toPlan().toResponse(restHighLevelClient, requestOptions);
+    }
 
-        if (StringUtils.isNotBlank(scrollExpire)) {
-            final Scroll scroll = new Scroll(TimeValue.parseTimeValue(scrollExpire, StringUtils.EMPTY));
-            searchRequest.scroll(scroll);
-        }
-        return searchRequest.source(searchSourceBuilder);
+    public SearchRequest toRequest() {
+        return toPlan().toRequest();
     }
 
     public String toDsl(SearchRequest searchRequest) {
         return searchRequest.source().toString();
     }
 
+    /**
+     * 直接由SearchSourceBuilder输出带缩进的DSL,不再经过Jackson反序列化再序列化
+     */
     public String toPrettyDsl(SearchRequest searchRequest) {
+        BytesStreamOutput out = new BytesStreamOutput();
         try {
-            Object o = CoreConstants.OBJECT_MAPPER.readValue(toDsl(searchRequest), Object.class);
-            return CoreConstants.OBJECT_MAPPER.writerWithDefaultPrettyPrinter().writeValueAsString(o);
+            writeDsl(searchRequest, out, true);
         } catch (IOException e) {
-            throw new RuntimeException("Elasticsearch Dsl解析出错!!!");
+            throw new RuntimeException("Elasticsearch Dsl解析出错!!!", e);
         }
+        return out.bytes().utf8ToString();
     }
 
-    @Override
-    public String toString() {
-        String ptn = "index:%s,type:%s,query_as:%s,from:%s,size:%s,routing:%s,dsl:%s";
-        return String.format(
-                ptn, indices,/* type,*/ queryAs, from, size,
-                (routingBy != null ? routingBy.toString() : "[]"), toDsl(toRequest())
-        );
+    /**
+     * 将DSL以UTF-8写入输出流,不生成中间的String,输出流由调用方关闭
+     */
+    public void writeDsl(SearchRequest searchRequest, OutputStream out, boolean pretty) throws IOException {
+        //关闭XContentBuilder时不关闭调用方的输出流
+        try (XContentBuilder builder = XContentFactory.jsonBuilder(new CloseShieldOutputStream(out))) {
+            if (pretty) {
+                builder.prettyPrint();
+            }
+            searchRequest.source().toXContent(builder, ToXContent.EMPTY_PARAMS);
+        }
     }
 
+    /**
+     * 将DSL写入Writer,Writer由调用方关闭
+     */
+    public void writeDsl(SearchRequest searchRequest, Writer writer, boolean pretty) throws IOException {
+        WriterOutputStream out = new WriterOutputStream(writer, StandardCharsets.UTF_8);
+        writeDsl(searchRequest, out, pretty);
+        //只刷新不关闭,关闭WriterOutputStream会同时关闭writer
+        out.flush();
+    }
 
+    @Override
+    public String toString() {
+        //日志输出不计入toRequest阶段的统计
+        return plan(false).toString();
+    }
 }
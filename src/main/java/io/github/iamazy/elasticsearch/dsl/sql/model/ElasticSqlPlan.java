@@ -0,0 +1,333 @@
+package io.github.iamazy.elasticsearch.dsl.sql.model;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import io.github.iamazy.elasticsearch.dsl.elastic.HighlightBuilders;
+import io.github.iamazy.elasticsearch.dsl.sql.listener.ParseStageListener;
+import io.github.iamazy.elasticsearch.dsl.sql.optimizer.BoolQueryOptimizer;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchScrollRequest;
+import org.elasticsearch.action.search.ShardSearchFailure;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.MatchNoneQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.index.reindex.DeleteByQueryRequest;
+import org.elasticsearch.search.Scroll;
+import org.elasticsearch.search.aggregations.AggregationBuilder;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.internal.InternalSearchResponse;
+import org.elasticsearch.search.sort.SortBuilder;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 编译后的不可变执行计划,同时负责生成SearchRequest/DeleteByQueryRequest
+ * <p>
+ * SearchSourceBuilder在创建计划时只组装一次,之后每次toRequest只浅拷贝一份,
+ * 调用方可以修改返回请求的from/size等属性,但不要修改其中的QueryBuilder/排序/聚合,这些对象在所有请求之间共享
+ * 计划可以被多个线程共享并同时执行,from/size/scroll通过withXxx得到新的计划,原计划不变
+ *
+ * @author iamazy
+ * @date 2019/5/16
+ * @descrition
+ **/
+@Slf4j
+@Getter
+public final class ElasticSqlPlan {
+
+    private final int from;
+    private final int size;
+    private final String scrollExpire;
+    private final String scrollId;
+    private final List<String> indices;
+    private final String queryAs;
+    private final Set<String> highlighter;
+    private final Set<String> leadingWildcardFields;
+    private final List<String> routingBy;
+    private final List<String> queryFieldList;
+    private final BoolQueryBuilder whereCondition;
+    private final BoolQueryBuilder matchCondition;
+    private final List<SortBuilder> orderBy;
+    private final List<AggregationBuilder> groupBy;
+
+    private final ParseStageListener stageListener;
+    /**
+     * 查询条件不可能满足,不需要发送到ES
+     */
+    private final boolean empty;
+    /**
+     * 组装好的SearchSourceBuilder,不对外暴露,toRequest时浅拷贝
+     */
+    @Getter(AccessLevel.NONE)
+    private final SearchSourceBuilder source;
+    private final Scroll scroll;
+
+    ElasticSqlPlan(ElasticSqlParseResult parseResult) {
+        this.from = parseResult.getFrom();
+        this.size = parseResult.getSize();
+        this.scrollExpire = parseResult.getScrollExpire();
+        this.scrollId = parseResult.getScrollId();
+        this.indices = immutableList(parseResult.getIndices());
+        this.queryAs = parseResult.getQueryAs();
+        this.highlighter = parseResult.getHighlighter() == null ? ImmutableSet.of() : ImmutableSet.copyOf(parseResult.getHighlighter());
+        this.leadingWildcardFields = parseResult.getLeadingWildcardFields() == null ? ImmutableSet.of() : ImmutableSet.copyOf(parseResult.getLeadingWildcardFields());
+        this.routingBy = immutableList(parseResult.getRoutingBy());
+        this.queryFieldList = immutableList(parseResult.getQueryFieldList());
+        this.whereCondition = parseResult.getWhereCondition();
+        this.matchCondition = parseResult.getMatchCondition();
+        this.orderBy = immutableList(parseResult.getOrderBy());
+        this.groupBy = immutableList(parseResult.getGroupBy());
+        this.stageListener = parseResult.getStageListener();
+        this.empty = BoolQueryOptimizer.isEmpty(whereCondition) || BoolQueryOptimizer.isEmpty(matchCondition);
+        this.source = buildSource();
+        this.scroll = buildScroll(scrollExpire);
+    }
+
+    private ElasticSqlPlan(ElasticSqlPlan plan, int from, int size, String scrollExpire, String scrollId) {
+        this.from = from;
+        this.size = size;
+        this.scrollExpire = scrollExpire;
+        this.scrollId = scrollId;
+        this.indices = plan.indices;
+        this.queryAs = plan.queryAs;
+        this.highlighter = plan.highlighter;
+        this.leadingWildcardFields = plan.leadingWildcardFields;
+        this.routingBy = plan.routingBy;
+        this.queryFieldList = plan.queryFieldList;
+        this.whereCondition = plan.whereCondition;
+        this.matchCondition = plan.matchCondition;
+        this.orderBy = plan.orderBy;
+        this.groupBy = plan.groupBy;
+        this.stageListener = plan.stageListener;
+        this.empty = plan.empty;
+        //只有from/size不同,其余部分与原计划共享
+        this.source = shallowCopy(plan.source).from(Math.max(from, 0)).size(size < 0 ? 15 : size);
+        this.scroll = StringUtils.equals(scrollExpire, plan.scrollExpire) ? plan.scroll : buildScroll(scrollExpire);
+    }
+
+    /**
+     * 是否包含以通配符开头的LIKE条件,调用方可以据此拒绝或者告警
+     */
+    public boolean hasLeadingWildcard() {
+        return !leadingWildcardFields.isEmpty();
+    }
+
+    public ElasticSqlPlan withFrom(int from) {
+        return from == this.from ? this : new ElasticSqlPlan(this, from, size, scrollExpire, scrollId);
+    }
+
+    public ElasticSqlPlan withSize(int size) {
+        return size == this.size ? this : new ElasticSqlPlan(this, from, size, scrollExpire, scrollId);
+    }
+
+    /**
+     * @param scrollExpire scroll的过期时间,为null时不使用scroll
+     * @param scrollId     继续上一次scroll时传入,首次scroll为null
+     */
+    public ElasticSqlPlan withScroll(String scrollExpire, String scrollId) {
+        if (StringUtils.equals(scrollExpire, this.scrollExpire) && StringUtils.equals(scrollId, this.scrollId)) {
+            return this;
+        }
+        return new ElasticSqlPlan(this, from, size, scrollExpire, scrollId);
+    }
+
+    /**
+     * 得到一份可以修改的解析结果,修改它不会影响当前计划
+     */
+    public ElasticSqlParseResult toParseResult() {
+        ElasticSqlParseResult parseResult = new ElasticSqlParseResult();
+        parseResult.setFrom(from);
+        parseResult.setSize(size);
+        parseResult.setScrollExpire(scrollExpire);
+        parseResult.setScrollId(scrollId);
+        parseResult.setIndices(indices);
+        parseResult.setQueryAs(queryAs);
+        parseResult.getHighlighter().addAll(highlighter);
+        parseResult.getLeadingWildcardFields().addAll(leadingWildcardFields);
+        parseResult.setRoutingBy(routingBy);
+        parseResult.setQueryFieldList(queryFieldList);
+        parseResult.setWhereCondition(whereCondition);
+        parseResult.setMatchCondition(matchCondition);
+        parseResult.setOrderBy(orderBy);
+        parseResult.setGroupBy(groupBy);
+        parseResult.setStageListener(stageListener);
+        return parseResult;
+    }
+
+    public SearchRequest toRequest() {
+        SearchRequest searchRequest = new SearchRequest();
+        if (!indices.isEmpty()) {
+            searchRequest.indices(indices.toArray(new String[0]));
+        }
+        if (!routingBy.isEmpty()) {
+            searchRequest.routing(routingBy.toArray(new String[0]));
+        }
+        if (scroll != null) {
+            searchRequest.scroll(scroll);
+        }
+        return searchRequest.source(shallowCopy(source));
+    }
+
+    public DeleteByQueryRequest toDelRequest() {
+        DeleteByQueryRequest deleteByQueryRequest = new DeleteByQueryRequest(indices.toArray(new String[0]));
+        deleteByQueryRequest.setQuery(source.query());
+        if (!routingBy.isEmpty()) {
+            deleteByQueryRequest.setRouting(routingBy.get(0));
+        }
+        if (size < 0) {
+            deleteByQueryRequest.setSize(15);
+        } else {
+            deleteByQueryRequest.setSize(size);
+        }
+        return deleteByQueryRequest;
+    }
+
+    /**
+     * 条件不可能满足并且没有聚合和scroll id时,结果一定为空,不需要把match_none发到每个分片
+     */
+    public boolean canRespondLocally() {
+        return empty && groupBy.isEmpty() && StringUtils.isBlank(scrollId);
+    }
+
+    public static SearchResponse emptyResponse() {
+        return new SearchResponse(InternalSearchResponse.empty(), null, 0, 0, 0, 0,
+                ShardSearchFailure.EMPTY_ARRAY, SearchResponse.Clusters.EMPTY);
+    }
+
+    /**
+     * 条件不可能满足并且没有聚合时直接在本地返回空结果,有聚合时仍然请求ES以得到完整的聚合结构
+     */
+    public SearchResponse toResponse(RestHighLevelClient restHighLevelClient, RequestOptions requestOptions) throws IOException {
+        if (canRespondLocally()) {
+            return emptyResponse();
+        }
+        if (StringUtils.isBlank(scrollExpire) || StringUtils.isBlank(scrollId)) {
+            return restHighLevelClient.search(toRequest(), requestOptions);
+        }
+        SearchScrollRequest scrollRequest = new SearchScrollRequest(scrollId);
+        scrollRequest.scroll(scroll);
+        return restHighLevelClient.scroll(scrollRequest, requestOptions);
+    }
+
+    /**
+     * 当前计划对应的DSL,直接使用已经组装好的SearchSourceBuilder
+     */
+    public String toDsl() {
+        return source.toString();
+    }
+
+    private SearchSourceBuilder buildSource() {
+        SearchSourceBuilder searchSourceBuilder = new SearchSourceBuilder();
+        if (from < 0) {
+            log.debug("[from] is gte zero, assign 0 to [from(int)] as default value!!!");
+            searchSourceBuilder.from(0);
+        } else {
+            searchSourceBuilder.from(from);
+        }
+        if (size < 0) {
+            log.debug("[size] is gte zero, assign 15 to [size(int)] as default value!!!");
+            searchSourceBuilder.size(15);
+        } else {
+            searchSourceBuilder.size(size);
+        }
+
+        if (!highlighter.isEmpty()) {
+            searchSourceBuilder.highlighter(HighlightBuilders.highlighter(highlighter));
+        }
+
+        searchSourceBuilder.query(buildQuery());
+
+        for (SortBuilder sortBuilder : orderBy) {
+            searchSourceBuilder.sort(sortBuilder);
+        }
+
+        if (!queryFieldList.isEmpty()) {
+            searchSourceBuilder.fetchSource(queryFieldList.toArray(new String[0]), null);
+        }
+
+        for (AggregationBuilder aggItem : groupBy) {
+            searchSourceBuilder.aggregation(aggItem);
+        }
+        return searchSourceBuilder;
+    }
+
+    /**
+     * 没有参与打分的子句(没有query子句,或者query子句只剩filter/must_not)时用constant_score包装,
+     * ES不再计算得分,filter部分可以使用节点查询缓存
+     */
+    private QueryBuilder buildQuery() {
+        if (empty) {
+            return new MatchNoneQueryBuilder();
+        }
+        boolean hasWhere = whereCondition != null && whereCondition.hasClauses();
+        boolean hasMatch = matchCondition != null && matchCondition.hasClauses();
+        if (!hasWhere && !hasMatch) {
+            return QueryBuilders.matchAllQuery();
+        }
+        if (!hasMatch) {
+            return QueryBuilders.constantScoreQuery(whereCondition);
+        }
+        QueryBuilder query = matchCondition;
+        if (hasWhere) {
+            //filter不进行打分,不直接修改matchCondition,避免重复添加filter
+            query = copyBoolQuery(matchCondition).filter(whereCondition);
+        }
+        if (isScoring(matchCondition)) {
+            return query;
+        }
+        return QueryBuilders.constantScoreQuery(query);
+    }
+
+    private static boolean isScoring(BoolQueryBuilder boolQuery) {
+        return !boolQuery.must().isEmpty() || !boolQuery.should().isEmpty();
+    }
+
+    private static Scroll buildScroll(String scrollExpire) {
+        if (StringUtils.isBlank(scrollExpire)) {
+            return null;
+        }
+        return new Scroll(TimeValue.parseTimeValue(scrollExpire, StringUtils.EMPTY));
+    }
+
+    /**
+     * 复制SearchSourceBuilder的所有属性,QueryBuilder/排序/聚合等对象与原对象共享
+     */
+    private static SearchSourceBuilder shallowCopy(SearchSourceBuilder source) {
+        return source.copyWithNewSlice(source.slice());
+    }
+
+    private static BoolQueryBuilder copyBoolQuery(BoolQueryBuilder boolQueryBuilder) {
+        BoolQueryBuilder copy = QueryBuilders.boolQuery();
+        boolQueryBuilder.must().forEach(copy::must);
+        boolQueryBuilder.should().forEach(copy::should);
+        boolQueryBuilder.filter().forEach(copy::filter);
+        boolQueryBuilder.mustNot().forEach(copy::mustNot);
+        copy.minimumShouldMatch(boolQueryBuilder.minimumShouldMatch());
+        copy.adjustPureNegative(boolQueryBuilder.adjustPureNegative());
+        copy.boost(boolQueryBuilder.boost());
+        copy.queryName(boolQueryBuilder.queryName());
+        return copy;
+    }
+
+    private static <T> List<T> immutableList(List<T> list) {
+        return CollectionUtils.isEmpty(list) ? ImmutableList.of() : ImmutableList.copyOf(list);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("index:%s,query_as:%s,from:%s,size:%s,routing:%s,dsl:%s",
+                indices, queryAs, from, size, routingBy, toDsl());
+    }
+}
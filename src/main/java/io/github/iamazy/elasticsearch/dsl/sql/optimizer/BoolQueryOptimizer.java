@@ -0,0 +1,476 @@
+package io.github.iamazy.elasticsearch.dsl.sql.optimizer;
+
+import io.github.iamazy.elasticsearch.dsl.cons.CoreConstants;
+import io.github.iamazy.elasticsearch.dsl.sql.enums.BoolQueryRule;
+import io.github.iamazy.elasticsearch.dsl.sql.helper.ElasticSqlDateParseHelper;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.elasticsearch.index.query.AbstractQueryBuilder;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.ExistsQueryBuilder;
+import org.elasticsearch.index.query.IdsQueryBuilder;
+import org.elasticsearch.index.query.MatchNoneQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.index.query.RangeQueryBuilder;
+import org.elasticsearch.index.query.TermQueryBuilder;
+import org.elasticsearch.index.query.TermsQueryBuilder;
+
+import java.math.BigDecimal;
+import java.time.ZonedDateTime;
+import java.util.*;
+
+/**
+ * 基于规则对解析出的bool查询树做等价变换,得到层级更少、子句更少的查询,ES改写和缓存的开销也更小
+ * <p>
+ * 变换区分打分和不打分的上下文: filter/must_not以及where条件中的子句不打分,可以做更多的变换;
+ * 在打分的上下文中只做不改变得分的变换
+ * 优化器无状态,可以在多个线程之间共享,不会修改传入的查询,而是返回新的BoolQueryBuilder
+ *
+ * @author iamazy
+ * @date 2019/5/17
+ * @descrition
+ **/
+public class BoolQueryOptimizer {
+
+    /**
+     * CONTRADICTION按单值字段判断,多值字段上tags='a' and tags='b'可以匹配,却会被优化为match_none,所以默认不开启,
+     * 确定字段都是单值时使用DEFAULT.with(BoolQueryRule.CONTRADICTION)
+     */
+    public static final BoolQueryOptimizer DEFAULT = new BoolQueryOptimizer(EnumSet.complementOf(EnumSet.of(BoolQueryRule.CONTRADICTION)));
+
+    public static final BoolQueryOptimizer NONE = new BoolQueryOptimizer(EnumSet.noneOf(BoolQueryRule.class));
+
+    private final EnumSet<BoolQueryRule> rules;
+
+    public BoolQueryOptimizer(Set<BoolQueryRule> rules) {
+        this.rules = rules.isEmpty() ? EnumSet.noneOf(BoolQueryRule.class) : EnumSet.copyOf(rules);
+    }
+
+    public static BoolQueryOptimizer of(BoolQueryRule... rules) {
+        return new BoolQueryOptimizer(rules.length == 0 ? EnumSet.noneOf(BoolQueryRule.class) : EnumSet.copyOf(Arrays.asList(rules)));
+    }
+
+    public BoolQueryOptimizer with(BoolQueryRule rule) {
+        EnumSet<BoolQueryRule> enabled = EnumSet.copyOf(rules);
+        enabled.add(rule);
+        return new BoolQueryOptimizer(enabled);
+    }
+
+    public BoolQueryOptimizer without(BoolQueryRule rule) {
+        EnumSet<BoolQueryRule> remaining = EnumSet.copyOf(rules);
+        remaining.remove(rule);
+        return new BoolQueryOptimizer(remaining);
+    }
+
+    public boolean isEnabled(BoolQueryRule rule) {
+        return rules.contains(rule);
+    }
+
+    /**
+     * 优化后的查询不可能匹配任何文档
+     */
+    public static boolean isEmpty(BoolQueryBuilder boolQuery) {
+        return boolQuery != null && BoolQuerySimplifier.isEmpty(boolQuery);
+    }
+
+    /**
+     * @param scoring 查询结果是否参与打分,where条件放在filter中,传入false
+     */
+    public BoolQueryBuilder optimize(BoolQueryBuilder boolQuery, boolean scoring) {
+        if (rules.isEmpty() || boolQuery == null) {
+            return boolQuery;
+        }
+        return optimizeBool(boolQuery, scoring);
+    }
+
+    /**
+     * 把打分的bool查询中must里的精确匹配子句移到filter中,精确匹配的得分对排序几乎没有意义
+     * 只处理最外层的bool,function_score/boosting等内部的查询仍需要得分
+     */
+    public BoolQueryBuilder filterExactClauses(BoolQueryBuilder boolQuery) {
+        if (!rules.contains(BoolQueryRule.EXACT_TO_FILTER) || boolQuery == null || !isPlain(boolQuery)
+                || boolQuery.must().stream().noneMatch(BoolQueryOptimizer::isExact)) {
+            return boolQuery;
+        }
+        BoolQueryBuilder filtered = QueryBuilders.boolQuery();
+        List<QueryBuilder> filterClauses = new ArrayList<>(boolQuery.filter());
+        for (QueryBuilder clause : boolQuery.must()) {
+            if (isExact(clause)) {
+                filterClauses.add(clause);
+            } else {
+                filtered.must(clause);
+            }
+        }
+        if (rules.contains(BoolQueryRule.MERGE_RANGES)) {
+            filterClauses = mergeRanges(filterClauses);
+        }
+        filterClauses.forEach(filtered::filter);
+        boolQuery.should().forEach(filtered::should);
+        boolQuery.mustNot().forEach(filtered::mustNot);
+        return filtered;
+    }
+
+    private BoolQueryBuilder optimizeBool(BoolQueryBuilder boolQuery, boolean scoring) {
+        boolean hasShould = !boolQuery.should().isEmpty();
+        EnumMap<Occur, List<QueryBuilder>> clauses = new EnumMap<>(Occur.class);
+        for (Occur occur : Occur.values()) {
+            clauses.put(occur, new ArrayList<>());
+        }
+        for (QueryBuilder clause : boolQuery.must()) {
+            addClause(clauses, Occur.MUST, clause, scoring, hasShould, boolQuery);
+        }
+        for (QueryBuilder clause : boolQuery.filter()) {
+            addClause(clauses, Occur.FILTER, clause, false, hasShould, boolQuery);
+        }
+        for (QueryBuilder clause : boolQuery.should()) {
+            addClause(clauses, Occur.SHOULD, clause, scoring, hasShould, boolQuery);
+        }
+        for (QueryBuilder clause : boolQuery.mustNot()) {
+            addClause(clauses, Occur.MUST_NOT, clause, false, hasShould, boolQuery);
+        }
+
+        //should中的term合并为terms后得分会变成常量,并且会改变minimum_should_match的计数
+        if (rules.contains(BoolQueryRule.MERGE_TERMS)) {
+            if (!scoring && boolQuery.minimumShouldMatch() == null) {
+                clauses.put(Occur.SHOULD, mergeTerms(clauses.get(Occur.SHOULD)));
+            }
+            clauses.put(Occur.MUST_NOT, mergeTerms(clauses.get(Occur.MUST_NOT)));
+        }
+        //range的得分是常量,但打分时合并must中的range会改变得分
+        if (rules.contains(BoolQueryRule.MERGE_RANGES)) {
+            clauses.put(Occur.FILTER, mergeRanges(clauses.get(Occur.FILTER)));
+            if (!scoring) {
+                clauses.put(Occur.MUST, mergeRanges(clauses.get(Occur.MUST)));
+            }
+        }
+        //打分时重复的must/should会重复计分
+        if (rules.contains(BoolQueryRule.DEDUPE)) {
+            clauses.put(Occur.FILTER, dedupe(clauses.get(Occur.FILTER)));
+            clauses.put(Occur.MUST_NOT, dedupe(clauses.get(Occur.MUST_NOT)));
+            if (!scoring) {
+                clauses.put(Occur.MUST, dedupe(clauses.get(Occur.MUST)));
+                if (boolQuery.minimumShouldMatch() == null) {
+                    clauses.put(Occur.SHOULD, dedupe(clauses.get(Occur.SHOULD)));
+                }
+            }
+        }
+
+        if (rules.contains(BoolQueryRule.CONTRADICTION) && BoolQuerySimplifier.simplify(clauses, scoring, boolQuery.minimumShouldMatch())) {
+            return BoolQuerySimplifier.empty();
+        }
+
+        BoolQueryBuilder optimized = QueryBuilders.boolQuery();
+        clauses.get(Occur.MUST).forEach(optimized::must);
+        clauses.get(Occur.FILTER).forEach(optimized::filter);
+        clauses.get(Occur.SHOULD).forEach(optimized::should);
+        clauses.get(Occur.MUST_NOT).forEach(optimized::mustNot);
+        optimized.minimumShouldMatch(boolQuery.minimumShouldMatch());
+        optimized.adjustPureNegative(boolQuery.adjustPureNegative());
+        optimized.boost(boolQuery.boost());
+        optimized.queryName(boolQuery.queryName());
+        return optimized;
+    }
+
+    /**
+     * 先优化子查询,子查询是只有一种子句的bool时,按规则把它的子句提升到父bool中
+     *
+     * @param hasShould 父bool是否有should子句,有should时不能改变父bool是否有must/filter,否则should的匹配语义会改变
+     */
+    private void addClause(EnumMap<Occur, List<QueryBuilder>> clauses, Occur occur, QueryBuilder clause, boolean scoring,
+                           boolean hasShould, BoolQueryBuilder parent) {
+        if (!(clause instanceof BoolQueryBuilder)) {
+            clauses.get(occur).add(clause);
+            return;
+        }
+        BoolQueryBuilder child = optimizeBool((BoolQueryBuilder) clause, scoring);
+        if (rules.contains(BoolQueryRule.CONTRADICTION)) {
+            //不可能满足的子bool用match_none表示,没有子句的bool匹配所有文档
+            if (BoolQuerySimplifier.isEmpty(child)) {
+                clauses.get(occur).add(new MatchNoneQueryBuilder());
+                return;
+            }
+            if (!child.hasClauses() && isPlain((QueryBuilder) child)) {
+                clauses.get(occur).add(QueryBuilders.matchAllQuery());
+                return;
+            }
+        }
+        Occur childOccur = isPlain(child) ? singleOccur(child) : null;
+        if (childOccur == null) {
+            clauses.get(occur).add(child);
+            return;
+        }
+        List<QueryBuilder> childClauses = clausesOf(child, childOccur);
+        Occur target = liftTo(occur, childOccur, childClauses.size(), scoring, hasShould, parent);
+        if (target == null) {
+            clauses.get(occur).add(child);
+            return;
+        }
+        BoolQueryRule rule = childOccur == Occur.MUST_NOT && occur == Occur.MUST_NOT ? BoolQueryRule.DOUBLE_NEGATION
+                : childClauses.size() == 1 ? BoolQueryRule.UNWRAP_SINGLE_CLAUSE : BoolQueryRule.FLATTEN;
+        if (rules.contains(rule)) {
+            clauses.get(target).addAll(childClauses);
+        } else {
+            clauses.get(occur).add(child);
+        }
+    }
+
+    /**
+     * 子bool(只有childOccur一种子句,共childSize个)作为父bool的occur子句时,其子句可以提升到父bool的哪种子句中,不能提升时返回null
+     */
+    private static Occur liftTo(Occur occur, Occur childOccur, int childSize, boolean scoring, boolean hasShould, BoolQueryBuilder parent) {
+        switch (childOccur) {
+            case MUST:
+                if (occur == Occur.MUST || occur == Occur.FILTER) {
+                    return occur;
+                }
+                //must_not(bool(must(a),must(b)))是NOT(a AND b),不能展开
+                return childSize == 1 ? occur : null;
+            case FILTER:
+                if (occur == Occur.MUST || occur == Occur.FILTER) {
+                    //放在must中的bool(filter)得分为0,提升为filter得分不变
+                    return Occur.FILTER;
+                }
+                if (occur == Occur.MUST_NOT) {
+                    return childSize == 1 ? occur : null;
+                }
+                return childSize == 1 && !scoring ? occur : null;
+            case SHOULD:
+                if (occur == Occur.SHOULD) {
+                    return parent.minimumShouldMatch() == null ? occur : null;
+                }
+                if (occur == Occur.MUST_NOT) {
+                    //NOT(a OR b) = NOT a AND NOT b
+                    return occur;
+                }
+                return childSize == 1 ? occur : null;
+            case MUST_NOT:
+                if (occur == Occur.MUST_NOT) {
+                    //NOT(NOT a) = a,放到filter中保持不打分
+                    return childSize == 1 && !hasShould ? Occur.FILTER : null;
+                }
+                if (occur == Occur.FILTER || (occur == Occur.MUST && !scoring)) {
+                    return hasShould ? null : Occur.MUST_NOT;
+                }
+                return null;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * 合并后的值超过index.max_terms_count的字段不合并,in列表拆分出的多个terms保持拆分
+     */
+    private static List<QueryBuilder> mergeTerms(List<QueryBuilder> clauses) {
+        Map<String, Set<Object>> fieldValues = new LinkedHashMap<>();
+        Map<String, Integer> fieldCounts = new HashMap<>();
+        Map<String, Integer> valueCounts = new HashMap<>();
+        for (QueryBuilder clause : clauses) {
+            String fieldName = mergeableField(clause);
+            if (fieldName != null) {
+                fieldCounts.merge(fieldName, 1, Integer::sum);
+                valueCounts.merge(fieldName, clause instanceof TermQueryBuilder ? 1 : ((TermsQueryBuilder) clause).values().size(), Integer::sum);
+            }
+        }
+        fieldCounts.entrySet().removeIf(entry -> entry.getValue() < 2 || valueCounts.get(entry.getKey()) > CoreConstants.MAX_TERMS_COUNT);
+        if (fieldCounts.isEmpty()) {
+            return clauses;
+        }
+        List<QueryBuilder> merged = new ArrayList<>(clauses.size());
+        for (QueryBuilder clause : clauses) {
+            String fieldName = mergeableField(clause);
+            if (fieldName == null || !fieldCounts.containsKey(fieldName)) {
+                merged.add(clause);
+                continue;
+            }
+            Set<Object> values = fieldValues.get(fieldName);
+            boolean first = values == null;
+            if (first) {
+                values = new LinkedHashSet<>();
+                fieldValues.put(fieldName, values);
+            }
+            if (clause instanceof TermQueryBuilder) {
+                values.add(((TermQueryBuilder) clause).value());
+            } else {
+                values.addAll(((TermsQueryBuilder) clause).values());
+            }
+            if (first) {
+                //占住第一次出现的位置,所有值收集完后再替换
+                merged.add(clause);
+            }
+        }
+        for (int i = 0; i < merged.size(); i++) {
+            String fieldName = mergeableField(merged.get(i));
+            if (fieldName != null && fieldValues.containsKey(fieldName)) {
+                merged.set(i, QueryBuilders.termsQuery(fieldName, fieldValues.get(fieldName)));
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * 同一字段的range取交集,保留最紧的上下界,无法比较大小的边界(例如不同类型的值)保持原样
+     * 只合并字段以外没有其他参数的range
+     */
+    private static List<QueryBuilder> mergeRanges(List<QueryBuilder> clauses) {
+        Map<String, Integer> fieldCounts = new HashMap<>();
+        for (QueryBuilder clause : clauses) {
+            if (isMergeableRange(clause)) {
+                fieldCounts.merge(((RangeQueryBuilder) clause).fieldName(), 1, Integer::sum);
+            }
+        }
+        if (fieldCounts.values().stream().noneMatch(count -> count > 1)) {
+            return clauses;
+        }
+        List<QueryBuilder> merged = new ArrayList<>(clauses.size());
+        //字段到合并结果在merged中的位置
+        Map<String, Integer> fieldPositions = new HashMap<>();
+        for (QueryBuilder clause : clauses) {
+            if (!isMergeableRange(clause) || fieldCounts.get(((RangeQueryBuilder) clause).fieldName()) < 2) {
+                merged.add(clause);
+                continue;
+            }
+            RangeQueryBuilder rangeQuery = (RangeQueryBuilder) clause;
+            Integer position = fieldPositions.get(rangeQuery.fieldName());
+            RangeQueryBuilder intersection = position == null ? null : intersect((RangeQueryBuilder) merged.get(position), rangeQuery);
+            if (intersection != null) {
+                merged.set(position, intersection);
+            } else {
+                fieldPositions.putIfAbsent(rangeQuery.fieldName(), merged.size());
+                merged.add(rangeQuery);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * 两个range的交集,边界无法比较时返回null
+     */
+    private static RangeQueryBuilder intersect(RangeQueryBuilder left, RangeQueryBuilder right) {
+        Object from = left.from();
+        boolean includeLower = left.includeLower();
+        if (right.from() != null) {
+            Integer cmp = from == null ? Integer.valueOf(-1) : compareBound(from, right.from());
+            if (cmp == null) {
+                return null;
+            }
+            //边界相同时开区间更紧
+            if (cmp < 0 || (cmp == 0 && !right.includeLower())) {
+                from = right.from();
+                includeLower = right.includeLower();
+            }
+        }
+        Object to = left.to();
+        boolean includeUpper = left.includeUpper();
+        if (right.to() != null) {
+            Integer cmp = to == null ? Integer.valueOf(1) : compareBound(to, right.to());
+            if (cmp == null) {
+                return null;
+            }
+            if (cmp > 0 || (cmp == 0 && !right.includeUpper())) {
+                to = right.to();
+                includeUpper = right.includeUpper();
+            }
+        }
+        return QueryBuilders.rangeQuery(left.fieldName()).from(from, includeLower).to(to, includeUpper);
+    }
+
+    /**
+     * 数字之间按数值比较,日期只比较formatDefaultEsDate*生成的字符串,其余返回null
+     */
+    static Integer compareBound(Object left, Object right) {
+        if (left instanceof Number && right instanceof Number) {
+            BigDecimal leftValue = toBigDecimal((Number) left);
+            BigDecimal rightValue = toBigDecimal((Number) right);
+            return leftValue == null || rightValue == null ? null : leftValue.compareTo(rightValue);
+        }
+        if (left instanceof String && right instanceof String) {
+            ZonedDateTime leftDate = ElasticSqlDateParseHelper.tryParseDefaultEsDate((String) left);
+            ZonedDateTime rightDate = ElasticSqlDateParseHelper.tryParseDefaultEsDate((String) right);
+            return leftDate == null || rightDate == null ? null : leftDate.toInstant().compareTo(rightDate.toInstant());
+        }
+        return null;
+    }
+
+    static BigDecimal toBigDecimal(Number number) {
+        if (number instanceof BigDecimal) {
+            return (BigDecimal) number;
+        }
+        if (number instanceof Double || number instanceof Float) {
+            double value = number.doubleValue();
+            return Double.isNaN(value) || Double.isInfinite(value) ? null : BigDecimal.valueOf(value);
+        }
+        return new BigDecimal(number.toString());
+    }
+
+    private static boolean isMergeableRange(QueryBuilder clause) {
+        if (!(clause instanceof RangeQueryBuilder) || !isPlain(clause)) {
+            return false;
+        }
+        RangeQueryBuilder rangeQuery = (RangeQueryBuilder) clause;
+        return rangeQuery.format() == null && rangeQuery.timeZone() == null && rangeQuery.relation() == null;
+    }
+
+    /**
+     * 没有boost/_name的term或者terms(非terms lookup)可以合并,返回字段名
+     */
+    private static String mergeableField(QueryBuilder clause) {
+        if (clause instanceof TermQueryBuilder) {
+            TermQueryBuilder termQuery = (TermQueryBuilder) clause;
+            return isPlain(termQuery) ? termQuery.fieldName() : null;
+        }
+        if (clause instanceof TermsQueryBuilder) {
+            TermsQueryBuilder termsQuery = (TermsQueryBuilder) clause;
+            return isPlain(termsQuery) && termsQuery.termsLookup() == null ? termsQuery.fieldName() : null;
+        }
+        return null;
+    }
+
+    private static boolean isExact(QueryBuilder clause) {
+        return (clause instanceof TermQueryBuilder || clause instanceof TermsQueryBuilder || clause instanceof RangeQueryBuilder
+                || clause instanceof ExistsQueryBuilder || clause instanceof IdsQueryBuilder) && isPlain(clause);
+    }
+
+    private static List<QueryBuilder> dedupe(List<QueryBuilder> clauses) {
+        if (clauses.size() < 2) {
+            return clauses;
+        }
+        return new ArrayList<>(new LinkedHashSet<>(clauses));
+    }
+
+    private static boolean isPlain(QueryBuilder queryBuilder) {
+        return queryBuilder.boost() == AbstractQueryBuilder.DEFAULT_BOOST && queryBuilder.queryName() == null;
+    }
+
+    private static boolean isPlain(BoolQueryBuilder boolQuery) {
+        return isPlain((QueryBuilder) boolQuery) && boolQuery.minimumShouldMatch() == null && boolQuery.adjustPureNegative();
+    }
+
+    /**
+     * bool只有一种子句时返回该子句类型,否则返回null
+     */
+    private static Occur singleOccur(BoolQueryBuilder boolQuery) {
+        Occur single = null;
+        for (Occur occur : Occur.values()) {
+            if (!clausesOf(boolQuery, occur).isEmpty()) {
+                if (single != null) {
+                    return null;
+                }
+                single = occur;
+            }
+        }
+        return single;
+    }
+
+    private static List<QueryBuilder> clausesOf(BoolQueryBuilder boolQuery, Occur occur) {
+        switch (occur) {
+            case MUST:
+                return boolQuery.must();
+            case FILTER:
+                return boolQuery.filter();
+            case SHOULD:
+                return boolQuery.should();
+            default:
+                return boolQuery.mustNot();
+        }
+    }
+}
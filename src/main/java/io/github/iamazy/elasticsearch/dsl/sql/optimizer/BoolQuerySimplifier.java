@@ -0,0 +1,248 @@
+package io.github.iamazy.elasticsearch.dsl.sql.optimizer;
+
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.index.query.*;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * 静态分析bool查询的子句,找出不可能满足的条件(矛盾)和一定满足的条件(永真)
+ * <p>
+ * 矛盾: status='A' and status='B', x>10 and x<5, id in (), x is null and x=1, a and not a
+ * 永真: x is null or x is not null
+ * 与合并range一样,按照单值字段处理,多值字段上的同类条件可能被误判为矛盾,因此BoolQueryRule.CONTRADICTION默认不开启
+ *
+ * @author iamazy
+ * @date 2019/5/19
+ * @descrition
+ **/
+final class BoolQuerySimplifier {
+
+    private BoolQuerySimplifier() {
+    }
+
+    /**
+     * 不可能匹配任何文档的bool查询,使用filter(match_none)表示,上层可以直接识别
+     */
+    static BoolQueryBuilder empty() {
+        return QueryBuilders.boolQuery().filter(new MatchNoneQueryBuilder());
+    }
+
+    static boolean isEmpty(BoolQueryBuilder boolQuery) {
+        return boolQuery.must().stream().anyMatch(MatchNoneQueryBuilder.class::isInstance)
+                || boolQuery.filter().stream().anyMatch(MatchNoneQueryBuilder.class::isInstance);
+    }
+
+    /**
+     * 去掉不影响结果的子句,返回true表示这组子句不可能同时满足
+     */
+    static boolean simplify(EnumMap<Occur, List<QueryBuilder>> clauses, boolean scoring, String minimumShouldMatch) {
+        List<QueryBuilder> must = clauses.get(Occur.MUST);
+        List<QueryBuilder> filter = clauses.get(Occur.FILTER);
+        List<QueryBuilder> should = clauses.get(Occur.SHOULD);
+        List<QueryBuilder> mustNot = clauses.get(Occur.MUST_NOT);
+        List<QueryBuilder> required = new ArrayList<>(must.size() + filter.size());
+        required.addAll(must);
+        required.addAll(filter);
+
+        if (required.stream().anyMatch(BoolQuerySimplifier::matchesNothing)
+                || mustNot.stream().anyMatch(MatchAllQueryBuilder.class::isInstance)) {
+            return true;
+        }
+        //not(不可能的条件)对结果没有影响
+        mustNot.removeIf(BoolQuerySimplifier::matchesNothing);
+
+        if (minimumShouldMatch == null && !should.isEmpty()) {
+            should.removeIf(BoolQuerySimplifier::matchesNothing);
+            if (should.isEmpty() && required.isEmpty()) {
+                return true;
+            }
+            //只有should时,should中有永真的条件则整个or永真
+            if (!scoring && required.isEmpty() && isTautology(should)) {
+                should.clear();
+            }
+        }
+
+        //不打分时must/filter中的match_all没有作用,但不能让should从可选变为必须匹配
+        if (!scoring && (should.isEmpty() || required.stream().anyMatch(clause -> !(clause instanceof MatchAllQueryBuilder)))) {
+            must.removeIf(MatchAllQueryBuilder.class::isInstance);
+            filter.removeIf(MatchAllQueryBuilder.class::isInstance);
+        }
+
+        return isContradiction(required, mustNot);
+    }
+
+    private static boolean matchesNothing(QueryBuilder clause) {
+        if (clause instanceof MatchNoneQueryBuilder) {
+            return true;
+        }
+        if (clause instanceof TermsQueryBuilder) {
+            TermsQueryBuilder termsQuery = (TermsQueryBuilder) clause;
+            return termsQuery.termsLookup() == null && termsQuery.values().isEmpty();
+        }
+        if (clause instanceof RangeQueryBuilder) {
+            return isEmptyRange((RangeQueryBuilder) clause);
+        }
+        return false;
+    }
+
+    private static boolean isEmptyRange(RangeQueryBuilder rangeQuery) {
+        if (rangeQuery.from() == null || rangeQuery.to() == null || rangeQuery.relation() != null) {
+            return false;
+        }
+        Integer cmp = BoolQueryOptimizer.compareBound(rangeQuery.from(), rangeQuery.to());
+        if (cmp == null) {
+            return false;
+        }
+        return cmp > 0 || (cmp == 0 && !(rangeQuery.includeLower() && rangeQuery.includeUpper()));
+    }
+
+    /**
+     * exists(x) or not exists(x),或者包含match_all
+     */
+    private static boolean isTautology(List<QueryBuilder> should) {
+        Set<String> present = new HashSet<>();
+        Set<String> absent = new HashSet<>();
+        for (QueryBuilder clause : should) {
+            if (clause instanceof MatchAllQueryBuilder) {
+                return true;
+            }
+            if (clause instanceof ExistsQueryBuilder) {
+                present.add(((ExistsQueryBuilder) clause).fieldName());
+            }
+            String absentField = absentField(clause);
+            if (absentField != null) {
+                absent.add(absentField);
+            }
+        }
+        present.retainAll(absent);
+        return !present.isEmpty();
+    }
+
+    /**
+     * 按字段检查必须满足的条件之间是否矛盾
+     */
+    private static boolean isContradiction(List<QueryBuilder> required, List<QueryBuilder> mustNot) {
+        //a and not a
+        if (!mustNot.isEmpty()) {
+            Set<QueryBuilder> requiredSet = new HashSet<>(required);
+            for (QueryBuilder clause : mustNot) {
+                if (requiredSet.contains(clause)) {
+                    return true;
+                }
+            }
+        }
+        Map<String, Set<Object>> allowedValues = new HashMap<>();
+        Map<String, List<RangeQueryBuilder>> ranges = new HashMap<>();
+        Set<String> present = new HashSet<>();
+        Set<String> absent = new HashSet<>();
+        for (QueryBuilder clause : mustNot) {
+            if (clause instanceof ExistsQueryBuilder) {
+                absent.add(((ExistsQueryBuilder) clause).fieldName());
+            }
+        }
+        for (QueryBuilder clause : required) {
+            String absentField = absentField(clause);
+            if (absentField != null) {
+                absent.add(absentField);
+            } else if (clause instanceof ExistsQueryBuilder) {
+                present.add(((ExistsQueryBuilder) clause).fieldName());
+            } else if (clause instanceof RangeQueryBuilder && ((RangeQueryBuilder) clause).relation() == null) {
+                RangeQueryBuilder rangeQuery = (RangeQueryBuilder) clause;
+                present.add(rangeQuery.fieldName());
+                ranges.computeIfAbsent(rangeQuery.fieldName(), field -> new ArrayList<>()).add(rangeQuery);
+            } else if (clause instanceof TermQueryBuilder) {
+                TermQueryBuilder termQuery = (TermQueryBuilder) clause;
+                present.add(termQuery.fieldName());
+                if (intersect(allowedValues, termQuery.fieldName(), Collections.singletonList(termQuery.value()))) {
+                    return true;
+                }
+            } else if (clause instanceof TermsQueryBuilder && ((TermsQueryBuilder) clause).termsLookup() == null) {
+                TermsQueryBuilder termsQuery = (TermsQueryBuilder) clause;
+                present.add(termsQuery.fieldName());
+                if (intersect(allowedValues, termsQuery.fieldName(), termsQuery.values())) {
+                    return true;
+                }
+            }
+        }
+        for (String field : present) {
+            if (absent.contains(field)) {
+                return true;
+            }
+        }
+        //所有可能的取值都不在range中
+        for (Map.Entry<String, Set<Object>> entry : allowedValues.entrySet()) {
+            List<RangeQueryBuilder> fieldRanges = ranges.get(entry.getKey());
+            if (fieldRanges != null && entry.getValue().stream().noneMatch(value -> inRanges(value, fieldRanges))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 与字段已有的取值集合求交集,交集为空时返回true
+     */
+    private static boolean intersect(Map<String, Set<Object>> allowedValues, String field, Collection<?> values) {
+        Set<Object> normalized = new HashSet<>();
+        for (Object value : values) {
+            normalized.add(normalize(value));
+        }
+        Set<Object> existing = allowedValues.get(field);
+        if (existing == null) {
+            allowedValues.put(field, normalized);
+            return false;
+        }
+        existing.retainAll(normalized);
+        return existing.isEmpty();
+    }
+
+    /**
+     * 10和10.0是同一个值,BytesRef转为字符串
+     */
+    private static Object normalize(Object value) {
+        if (value instanceof BytesRef) {
+            return ((BytesRef) value).utf8ToString();
+        }
+        if (value instanceof Number) {
+            BigDecimal decimal = BoolQueryOptimizer.toBigDecimal((Number) value);
+            return decimal == null ? value : decimal.stripTrailingZeros();
+        }
+        return value;
+    }
+
+    private static boolean inRanges(Object value, List<RangeQueryBuilder> fieldRanges) {
+        for (RangeQueryBuilder rangeQuery : fieldRanges) {
+            if (rangeQuery.from() != null) {
+                Integer cmp = BoolQueryOptimizer.compareBound(value, rangeQuery.from());
+                if (cmp != null && (cmp < 0 || (cmp == 0 && !rangeQuery.includeLower()))) {
+                    return false;
+                }
+            }
+            if (rangeQuery.to() != null) {
+                Integer cmp = BoolQueryOptimizer.compareBound(value, rangeQuery.to());
+                if (cmp != null && (cmp > 0 || (cmp == 0 && !rangeQuery.includeUpper()))) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * x is null解析为bool(must_not(exists(x))),返回x
+     */
+    private static String absentField(QueryBuilder clause) {
+        if (!(clause instanceof BoolQueryBuilder)) {
+            return null;
+        }
+        BoolQueryBuilder boolQuery = (BoolQueryBuilder) clause;
+        if (!boolQuery.must().isEmpty() || !boolQuery.filter().isEmpty() || !boolQuery.should().isEmpty()
+                || boolQuery.mustNot().size() != 1 || !(boolQuery.mustNot().get(0) instanceof ExistsQueryBuilder)) {
+            return null;
+        }
+        return ((ExistsQueryBuilder) boolQuery.mustNot().get(0)).fieldName();
+    }
+}
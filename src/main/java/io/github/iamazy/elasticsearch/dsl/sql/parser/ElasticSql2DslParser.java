@@ -2,7 +2,7 @@ package io.github.iamazy.elasticsearch.dsl.sql.parser;
 
 import com.alibaba.druid.sql.ast.SQLExpr;
 import com.alibaba.druid.sql.ast.SQLLimit;
-import com.alibaba.druid.sql.ast.expr.SQLIntegerExpr;
+import com.alibaba.druid.sql.ast.SQLObject;
 import com.alibaba.druid.sql.ast.expr.SQLQueryExpr;
 import com.alibaba.druid.sql.ast.statement.SQLDeleteStatement;
 import com.alibaba.druid.sql.parser.ParserException;
@@ -12,6 +12,11 @@ import com.google.common.collect.ImmutableList;
 import io.github.iamazy.elasticsearch.dsl.sql.druid.ElasticSqlExprParser;
 import io.github.iamazy.elasticsearch.dsl.sql.druid.ElasticSqlSelectQueryBlock;
 import io.github.iamazy.elasticsearch.dsl.sql.exception.ElasticSql2DslException;
+import io.github.iamazy.elasticsearch.dsl.sql.fingerprint.ElasticSqlFingerprint;
+import io.github.iamazy.elasticsearch.dsl.sql.helper.ElasticSqlArgConverter;
+import io.github.iamazy.elasticsearch.dsl.sql.listener.ParseStageListener;
+import io.github.iamazy.elasticsearch.dsl.sql.listener.ThreadAllocations;
+import io.github.iamazy.elasticsearch.dsl.sql.optimizer.BoolQueryOptimizer;
 import io.github.iamazy.elasticsearch.dsl.sql.parser.aggs.GroupByAggregationParser;
 import io.github.iamazy.elasticsearch.dsl.sql.parser.sql.*;
 import io.github.iamazy.elasticsearch.dsl.sql.model.ElasticDslContext;
@@ -25,8 +30,66 @@ import java.util.List;
  */
 public class ElasticSql2DslParser {
 
+    /**
+     * 解析器都是无状态的,所有线程共享同一条解析器链,每次解析的状态保存在ElasticDslContext中
+     */
+    private static final List<QueryParser> SQL_SELECT_PARSER_CHAIN = buildSqlSelectParserChain();
+
+    private static final List<QueryParser> SQL_DELETE_PARSER_CHAIN = buildSqlDeleteParserChain();
+
+    private static final String[] SQL_SELECT_STAGES = stageNames(SQL_SELECT_PARSER_CHAIN);
+
+    private static final String[] SQL_DELETE_STAGES = stageNames(SQL_DELETE_PARSER_CHAIN);
+
+    private final ParseStageListener stageListener;
+
+    private final BoolQueryOptimizer queryOptimizer;
+
+    public ElasticSql2DslParser() {
+        this(ParseStageListener.NOOP);
+    }
+
+    /**
+     * @param stageListener 记录各解析阶段的耗时和内存分配
+     */
+    public ElasticSql2DslParser(ParseStageListener stageListener) {
+        this(stageListener, BoolQueryOptimizer.DEFAULT);
+    }
+
+    /**
+     * @param queryOptimizer 对where/query条件解析出的bool查询做等价变换,BoolQueryOptimizer.NONE表示不优化
+     */
+    public ElasticSql2DslParser(ParseStageListener stageListener, BoolQueryOptimizer queryOptimizer) {
+        this.stageListener = stageListener == null ? ParseStageListener.NOOP : stageListener;
+        this.queryOptimizer = queryOptimizer == null ? BoolQueryOptimizer.DEFAULT : queryOptimizer;
+    }
+
     public ElasticSqlParseResult parse(String sql) throws ElasticSql2DslException {
-        SQLQueryExpr queryExpr;
+        return prepare(sql).bind();
+    }
+
+    /**
+     * 只做一次Druid词法/语法解析,Sql中的?占位符在bind时再代入
+     */
+    public ElasticSqlPreparedStatement prepare(String sql) throws ElasticSql2DslException {
+        if (!stageListener.isEnabled()) {
+            return doPrepare(sql);
+        }
+        long start = System.nanoTime();
+        long allocated = ThreadAllocations.currentThreadAllocatedBytes();
+        ElasticSqlPreparedStatement preparedStatement = doPrepare(sql);
+        stageListener.onStage(ParseStageListener.STAGE_LEX, System.nanoTime() - start, ThreadAllocations.allocatedSince(allocated));
+        return preparedStatement;
+    }
+
+    /**
+     * 计算Sql的规范化指纹,用于按查询形状聚合监控指标和慢查询,只做Druid解析,不经过解析器链
+     */
+    public ElasticSqlFingerprint fingerprint(String sql) throws ElasticSql2DslException {
+        return prepare(sql).fingerprint();
+    }
+
+    private ElasticSqlPreparedStatement doPrepare(String sql) {
         try {
             SQLStatementParser sqlStatementParser = new SQLStatementParser(sql);
             Token token = sqlStatementParser.getLexer().token();
@@ -34,36 +97,79 @@ public class ElasticSql2DslParser {
                 case DELETE: {
                     SQLDeleteStatement sqlDeleteStatement = sqlStatementParser.parseDeleteStatement();
                     SQLLimit sqlLimit = sqlStatementParser.getExprParser().parseLimit();
-                    ElasticDslContext elasticDslContext = new ElasticDslContext(sqlDeleteStatement);
-                    for (QueryParser sqlParser : buildSqlDeleteParserChain()) {
-                        sqlParser.parse(elasticDslContext);
-                    }
-                    //此处设置的是DeleteByQueryRequest的Size，将DeleteByQueryRequest中的SearchRequest的DSL打印出来的size是1000，不是这个值，不要搞混淆
-                    elasticDslContext.getParseResult().setSize(((SQLIntegerExpr) sqlLimit.getRowCount()).getNumber().intValue());
-                    return elasticDslContext.getParseResult();
+                    return new ElasticSqlPreparedStatement(this, sqlDeleteStatement, sqlLimit, countPlaceholders(sql));
                 }
                 case SELECT:
                 default: {
                     ElasticSqlExprParser elasticSqlExprParser = new ElasticSqlExprParser(sql);
                     SQLExpr sqlQueryExpr = elasticSqlExprParser.expr();
                     check(elasticSqlExprParser, sqlQueryExpr);
-                    queryExpr = (SQLQueryExpr) sqlQueryExpr;
-                    ElasticDslContext elasticDslContext = new ElasticDslContext(queryExpr);
-                    if (queryExpr.getSubQuery().getQuery() instanceof ElasticSqlSelectQueryBlock) {
-                        for (QueryParser sqlParser : buildSqlSelectParserChain()) {
-                            sqlParser.parse(elasticDslContext);
-                        }
-                    } else {
+                    SQLQueryExpr queryExpr = (SQLQueryExpr) sqlQueryExpr;
+                    if (!(queryExpr.getSubQuery().getQuery() instanceof ElasticSqlSelectQueryBlock)) {
                         throw new ElasticSql2DslException("[syntax error] Sql only support Select,Delete Sql");
                     }
-                    return elasticDslContext.getParseResult();
+                    return new ElasticSqlPreparedStatement(this, queryExpr, null, countPlaceholders(sql));
                 }
             }
-
         } catch (ParserException ex) {
             throw new ElasticSql2DslException(ex);
         }
+    }
+
+    ElasticSqlParseResult parse(SQLObject sqlObject, SQLLimit deleteLimit, Object[] parameters) {
+        ElasticDslContext elasticDslContext = new ElasticDslContext(sqlObject, parameters, queryOptimizer);
+        if (sqlObject instanceof SQLDeleteStatement) {
+            runParserChain(SQL_DELETE_PARSER_CHAIN, SQL_DELETE_STAGES, elasticDslContext);
+            if (deleteLimit != null) {
+                //此处设置的是DeleteByQueryRequest的Size，将DeleteByQueryRequest中的SearchRequest的DSL打印出来的size是1000，不是这个值，不要搞混淆
+                Object size = ElasticSqlArgConverter.convertSqlArg(deleteLimit.getRowCount(), parameters);
+                if (!(size instanceof Long)) {
+                    throw new ElasticSql2DslException("[syntax error] Sql limit expr should be a non-negative number");
+                }
+                elasticDslContext.getParseResult().setSize(((Long) size).intValue());
+            }
+        } else {
+            runParserChain(SQL_SELECT_PARSER_CHAIN, SQL_SELECT_STAGES, elasticDslContext);
+        }
+        ElasticSqlParseResult parseResult = elasticDslContext.getParseResult();
+        parseResult.setStageListener(stageListener);
+        return parseResult;
+    }
+
+    private void runParserChain(List<QueryParser> parserChain, String[] stages, ElasticDslContext elasticDslContext) {
+        if (!stageListener.isEnabled()) {
+            for (QueryParser sqlParser : parserChain) {
+                sqlParser.parse(elasticDslContext);
+            }
+            return;
+        }
+        for (int i = 0; i < stages.length; i++) {
+            long start = System.nanoTime();
+            long allocated = ThreadAllocations.currentThreadAllocatedBytes();
+            parserChain.get(i).parse(elasticDslContext);
+            stageListener.onStage(stages[i], System.nanoTime() - start, ThreadAllocations.allocatedSince(allocated));
+        }
+    }
 
+    /**
+     * 统计引号之外的?占位符个数
+     */
+    private int countPlaceholders(String sql) {
+        int count = 0;
+        char quote = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            char ch = sql.charAt(i);
+            if (quote != 0) {
+                if (ch == quote) {
+                    quote = 0;
+                }
+            } else if (ch == '\'' || ch == '"' || ch == '`') {
+                quote = ch;
+            } else if (ch == '?') {
+                count++;
+            }
+        }
+        return count;
     }
 
     private void check(ElasticSqlExprParser sqlExprParser, SQLExpr sqlQueryExpr) {
@@ -76,7 +182,11 @@ public class ElasticSql2DslParser {
         }
     }
 
-    private List<QueryParser> buildSqlSelectParserChain( ) {
+    private static String[] stageNames(List<QueryParser> parserChain) {
+        return parserChain.stream().map(sqlParser -> sqlParser.getClass().getSimpleName()).toArray(String[]::new);
+    }
+
+    private static List<QueryParser> buildSqlSelectParserChain() {
         //SQL解析器的顺序不能改变
         return ImmutableList.of(
                 //解析SQL指定的索引和文档类型
@@ -100,7 +210,7 @@ public class ElasticSql2DslParser {
         );
     }
 
-    private List<QueryParser> buildSqlDeleteParserChain() {
+    private static List<QueryParser> buildSqlDeleteParserChain() {
         //SQL解析器的顺序不能改变
         return ImmutableList.of(
                 //解析SQL指定的索引和文档类型
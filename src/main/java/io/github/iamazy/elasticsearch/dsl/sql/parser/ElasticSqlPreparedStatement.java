@@ -0,0 +1,75 @@
+package io.github.iamazy.elasticsearch.dsl.sql.parser;
+
+import com.alibaba.druid.sql.ast.SQLLimit;
+import com.alibaba.druid.sql.ast.SQLObject;
+import com.alibaba.druid.sql.ast.statement.SQLDeleteStatement;
+import io.github.iamazy.elasticsearch.dsl.sql.exception.ElasticSql2DslException;
+import io.github.iamazy.elasticsearch.dsl.sql.fingerprint.ElasticSqlFingerprint;
+import io.github.iamazy.elasticsearch.dsl.sql.fingerprint.ElasticSqlFingerprinter;
+import io.github.iamazy.elasticsearch.dsl.sql.model.ElasticSqlParseResult;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.index.reindex.DeleteByQueryRequest;
+
+/**
+ * 预编译的Sql语句,持有Druid解析出的语法树,可以被多个线程同时bind
+ * 语法树在解析器链中只读,bind时只替换?占位符对应的字面量
+ *
+ * @author iamazy
+ * @date 2019/5/8
+ * @descrition
+ **/
+public class ElasticSqlPreparedStatement {
+
+    private final ElasticSql2DslParser parser;
+    private final SQLObject sqlObject;
+    private final SQLLimit deleteLimit;
+    private final int parameterCount;
+
+    ElasticSqlPreparedStatement(ElasticSql2DslParser parser, SQLObject sqlObject, SQLLimit deleteLimit, int parameterCount) {
+        this.parser = parser;
+        this.sqlObject = sqlObject;
+        this.deleteLimit = deleteLimit;
+        this.parameterCount = parameterCount;
+    }
+
+    public int getParameterCount() {
+        return parameterCount;
+    }
+
+    public boolean isDelete() {
+        return sqlObject instanceof SQLDeleteStatement;
+    }
+
+    /**
+     * Sql的规范化指纹,只有字面量、空白、大小写、方法别名或AND/OR顺序不同的Sql指纹相同
+     */
+    public ElasticSqlFingerprint fingerprint() {
+        return ElasticSqlFingerprinter.fingerprint(sqlObject, deleteLimit);
+    }
+
+    /**
+     * 按?出现的顺序绑定参数,返回新的解析结果
+     */
+    public ElasticSqlParseResult bind(Object... parameters) throws ElasticSql2DslException {
+        int size = parameters == null ? 0 : parameters.length;
+        if (size != parameterCount) {
+            throw new ElasticSql2DslException(
+                    String.format("[syntax error] Sql expects %s parameters, but %s were bound", parameterCount, size));
+        }
+        return parser.parse(sqlObject, deleteLimit, parameters);
+    }
+
+    public SearchRequest bindRequest(Object... parameters) throws ElasticSql2DslException {
+        if (isDelete()) {
+            throw new ElasticSql2DslException("[syntax error] Delete sql should use bindDelRequest");
+        }
+        return bind(parameters).toRequest();
+    }
+
+    public DeleteByQueryRequest bindDelRequest(Object... parameters) throws ElasticSql2DslException {
+        if (!isDelete()) {
+            throw new ElasticSql2DslException("[syntax error] Select sql should use bindRequest");
+        }
+        return bind(parameters).toDelRequest();
+    }
+}
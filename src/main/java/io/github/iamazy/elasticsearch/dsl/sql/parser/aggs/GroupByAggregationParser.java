@@ -14,6 +14,7 @@ import io.github.iamazy.elasticsearch.dsl.sql.parser.aggs.search.RangeAggAggrega
 import io.github.iamazy.elasticsearch.dsl.sql.parser.aggs.search.TermsAggAggregationParser;
 import io.github.iamazy.elasticsearch.dsl.sql.parser.aggs.search.TopHitsAggregationParser;
 import io.github.iamazy.elasticsearch.dsl.sql.parser.query.method.MethodInvocation;
+import io.github.iamazy.elasticsearch.dsl.sql.parser.query.method.expr.MethodExpressionRegistry;
 import io.github.iamazy.elasticsearch.dsl.sql.helper.ElasticSqlArgConverter;
 import io.github.iamazy.elasticsearch.dsl.sql.model.AggregationQuery;
 import io.github.iamazy.elasticsearch.dsl.sql.model.ElasticDslContext;
@@ -35,20 +36,25 @@ public class GroupByAggregationParser implements QueryParser {
 
     public static final String AGG_BUCKET_KEY_PREFIX = "";
 
-    private final List<AbstractGroupByMethodAggregationParser> abstractGroupByMethodAggregationParsers;
-
-    public GroupByAggregationParser() {
-        abstractGroupByMethodAggregationParsers = ImmutableList.of(
-                new CardinalityAggregationParser(),
-                new TermsAggAggregationParser(),
-                new TopHitsAggregationParser(),
-                new RangeAggAggregationParser(),
-                new GeoDistanceAggregationParser(),
-                new NestedAggregationParser()
-        );
+    /**
+     * 聚合方法(含别名)到解析器的索引,可通过META-INF/services/...AbstractGroupByMethodAggregationParser扩展
+     */
+    private static final MethodExpressionRegistry<AbstractGroupByMethodAggregationParser> GROUP_BY_METHOD_PARSERS = MethodExpressionRegistry.load(
+            AbstractGroupByMethodAggregationParser.class,
+            ImmutableList.of(
+                    new CardinalityAggregationParser(),
+                    new TermsAggAggregationParser(),
+                    new TopHitsAggregationParser(),
+                    new RangeAggAggregationParser(),
+                    new GeoDistanceAggregationParser(),
+                    new NestedAggregationParser()
+            )
+    );
+
+    public static MethodExpressionRegistry<AbstractGroupByMethodAggregationParser> getGroupByMethodParsers() {
+        return GROUP_BY_METHOD_PARSERS;
     }
 
-
     @Override
     public void parse(ElasticDslContext dslContext) {
 
@@ -58,34 +64,34 @@ public class GroupByAggregationParser implements QueryParser {
             String queryAs = dslContext.getParseResult().getQueryAs();
             List<AggregationBuilder> aggregationList = Lists.newArrayList();
             for (SQLExpr groupByItem : sqlGroupBy.getItems()) {
-                aggregationList.add((AggregationBuilder) recursiveParseGroupByItemExpr(groupByItem, queryAs));
+                aggregationList.add((AggregationBuilder) recursiveParseGroupByItemExpr(groupByItem, queryAs, dslContext));
             }
             dslContext.getParseResult().setGroupBy(aggregationList);
         }
 
     }
 
-    private Object recursiveParseGroupByItemExpr(SQLExpr sqlExpr, String queryAs) {
+    private Object recursiveParseGroupByItemExpr(SQLExpr sqlExpr, String queryAs, ElasticDslContext dslContext) {
         if (sqlExpr instanceof SQLBinaryOpExpr) {
             SQLBinaryOpExpr binOpExpr = (SQLBinaryOpExpr) sqlExpr;
             SQLBinaryOperator binOperator = binOpExpr.getOperator();
             if (SQLBinaryOperator.GreaterThan == binOperator) {
                 SQLExpr left = binOpExpr.getLeft();
                 SQLExpr right = binOpExpr.getRight();
-                Object leftObject = recursiveParseGroupByItemExpr(left, null);
-                Object rightObject = recursiveParseGroupByItemExpr(right, null);
+                Object leftObject = recursiveParseGroupByItemExpr(left, null, dslContext);
+                Object rightObject = recursiveParseGroupByItemExpr(right, null, dslContext);
                 AggregationBuilder leftAggBuilder, rightAggBuilder = null;
                 List<AggregationBuilder> rightAggBuilders = null;
                 if (leftObject instanceof AggregationBuilder) {
-                    leftAggBuilder = (AggregationBuilder) recursiveParseGroupByItemExpr(left, null);
+                    leftAggBuilder = (AggregationBuilder) recursiveParseGroupByItemExpr(left, null, dslContext);
                 } else {
                     throw new ElasticSql2DslException("[syntax error] left group by item only support an agg method call");
                 }
 
                 if (rightObject instanceof AggregationBuilder) {
-                    rightAggBuilder = (AggregationBuilder) recursiveParseGroupByItemExpr(right, null);
+                    rightAggBuilder = (AggregationBuilder) recursiveParseGroupByItemExpr(right, null, dslContext);
                 } else if (rightObject instanceof List) {
-                    rightAggBuilders = (List<AggregationBuilder>) recursiveParseGroupByItemExpr(right, null);
+                    rightAggBuilders = (List<AggregationBuilder>) recursiveParseGroupByItemExpr(right, null, dslContext);
                 }
 
                 if (rightAggBuilder != null) {
@@ -103,17 +109,17 @@ public class GroupByAggregationParser implements QueryParser {
             }
         } else if (sqlExpr instanceof SQLMethodInvokeExpr) {
             SQLMethodInvokeExpr aggMethodExpr = (SQLMethodInvokeExpr) sqlExpr;
-            MethodInvocation invocation = new MethodInvocation(aggMethodExpr, queryAs);
+            MethodInvocation invocation = new MethodInvocation(aggMethodExpr, queryAs, false, dslContext);
             AbstractGroupByMethodAggregationParser abstractGroupByMethodAggregationParser = getGroupByQueryParser(invocation);
             AggregationQuery aggregationQuery = abstractGroupByMethodAggregationParser.parseAggregationMethod(invocation);
             return aggregationQuery.getAggregationBuilder();
         } else if (sqlExpr instanceof SQLListExpr) {
             SQLListExpr sqlListExpr = (SQLListExpr) sqlExpr;
-            Object[] objects = ElasticSqlArgConverter.convertSqlArgs(sqlListExpr.getItems());
+            Object[] objects = ElasticSqlArgConverter.convertSqlArgs(sqlListExpr.getItems(), dslContext.getParameters());
             List<AggregationBuilder> aggList = new ArrayList<>(0);
             for (Object object : objects) {
                 SQLExpr expr = (SQLExpr) object;
-                AggregationBuilder aggregationBuilder = (AggregationBuilder) recursiveParseGroupByItemExpr(expr, queryAs);
+                AggregationBuilder aggregationBuilder = (AggregationBuilder) recursiveParseGroupByItemExpr(expr, queryAs, dslContext);
                 aggList.add(aggregationBuilder);
             }
             return aggList;
@@ -124,10 +130,9 @@ public class GroupByAggregationParser implements QueryParser {
 
 
     private AbstractGroupByMethodAggregationParser getGroupByQueryParser(MethodInvocation invocation) {
-        for (AbstractGroupByMethodAggregationParser queryParser : abstractGroupByMethodAggregationParsers) {
-            if (queryParser.isMatchMethodInvocation(invocation)) {
-                return queryParser;
-            }
+        AbstractGroupByMethodAggregationParser queryParser = GROUP_BY_METHOD_PARSERS.lookup(invocation);
+        if (queryParser != null) {
+            return queryParser;
         }
         throw new ElasticSql2DslException(
                 String.format("[syntax error] Can not support group by method query expr[%s] condition", invocation.getMethodName()));
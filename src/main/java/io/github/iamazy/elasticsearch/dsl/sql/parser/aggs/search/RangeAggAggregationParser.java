@@ -8,6 +8,7 @@ import io.github.iamazy.elasticsearch.dsl.sql.enums.QueryFieldType;
 import io.github.iamazy.elasticsearch.dsl.sql.exception.ElasticSql2DslException;
 import io.github.iamazy.elasticsearch.dsl.sql.parser.query.method.MethodInvocation;
 import io.github.iamazy.elasticsearch.dsl.sql.helper.ElasticSqlArgConverter;
+import io.github.iamazy.elasticsearch.dsl.sql.helper.ElasticSqlDateParseHelper;
 import io.github.iamazy.elasticsearch.dsl.sql.helper.ElasticSqlMethodInvokeHelper;
 import io.github.iamazy.elasticsearch.dsl.sql.model.AggregationQuery;
 import io.github.iamazy.elasticsearch.dsl.sql.model.ElasticSqlQueryField;
@@ -20,7 +21,6 @@ import org.elasticsearch.search.aggregations.AggregationBuilders;
 import org.elasticsearch.search.aggregations.bucket.range.AbstractRangeBuilder;
 import org.elasticsearch.search.aggregations.bucket.range.DateRangeAggregationBuilder;
 import org.elasticsearch.search.aggregations.bucket.range.RangeAggregationBuilder;
-import org.joda.time.DateTime;
 
 import java.time.ZonedDateTime;
 import java.util.List;
@@ -35,7 +35,8 @@ public class RangeAggAggregationParser extends AbstractGroupByMethodAggregationP
     private static final List<String> AGG_RANGE_METHOD = ImmutableList.of("range", "range_agg");
 
     private static ZonedDateTime getDateRangeVal(String date) {
-        return ZonedDateTime.parse(date);
+        //日期字面量已被转换为默认的ES日期格式(yyyy-MM-dd'T'HH:mm:ss.SSSZ)
+        return ElasticSqlDateParseHelper.parseDefaultEsDate(date);
     }
 
 
@@ -122,7 +123,6 @@ public class RangeAggAggregationParser extends AbstractGroupByMethodAggregationP
     }
 
     private String formatDateRangeAggKey(ZonedDateTime date) {
-        final String dateRangeKeyPattern = "yyyy-MM-dd HH:mm:ss";
-        return new DateTime(date).toString(dateRangeKeyPattern);
+        return ElasticSqlDateParseHelper.formatDateRangeKey(date);
     }
 }
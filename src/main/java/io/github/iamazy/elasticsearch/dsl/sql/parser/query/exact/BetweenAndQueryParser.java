@@ -14,9 +14,9 @@ import org.elasticsearch.index.query.QueryBuilders;
 public class BetweenAndQueryParser extends AbstractExactQueryParser {
 
 
-    public AtomicQuery parseBetweenAndQuery(SQLBetweenExpr betweenAndExpr, String queryAs) {
-        Object from = ElasticSqlArgConverter.convertSqlArg(betweenAndExpr.getBeginExpr());
-        Object to = ElasticSqlArgConverter.convertSqlArg(betweenAndExpr.getEndExpr());
+    public AtomicQuery parseBetweenAndQuery(SQLBetweenExpr betweenAndExpr, String queryAs, Object[] parameters) {
+        Object from = ElasticSqlArgConverter.convertSqlArg(betweenAndExpr.getBeginExpr(), parameters);
+        Object to = ElasticSqlArgConverter.convertSqlArg(betweenAndExpr.getEndExpr(), parameters);
 
         if (from == null || to == null) {
             throw new ElasticSql2DslException("[syntax error] Between Expr only support one of [number,date] arg type");
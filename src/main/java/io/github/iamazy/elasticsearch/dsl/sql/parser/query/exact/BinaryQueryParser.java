@@ -5,25 +5,39 @@ import com.alibaba.druid.sql.ast.expr.SQLBinaryOpExpr;
 import com.alibaba.druid.sql.ast.expr.SQLBinaryOperator;
 import com.alibaba.druid.sql.ast.expr.SQLCharExpr;
 import com.alibaba.druid.sql.ast.expr.SQLNullExpr;
+import com.alibaba.druid.sql.ast.expr.SQLVariantRefExpr;
 import io.github.iamazy.elasticsearch.dsl.sql.enums.SqlConditionOperator;
 import io.github.iamazy.elasticsearch.dsl.sql.exception.ElasticSql2DslException;
 import io.github.iamazy.elasticsearch.dsl.sql.helper.ElasticSqlArgConverter;
+import io.github.iamazy.elasticsearch.dsl.sql.helper.ElasticSqlLikeHelper;
 import io.github.iamazy.elasticsearch.dsl.sql.model.AtomicQuery;
-import io.github.iamazy.elasticsearch.dsl.sql.model.SqlCondition;
+import io.github.iamazy.elasticsearch.dsl.sql.model.ElasticDslContext;
 import org.elasticsearch.index.query.ExistsQueryBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
-import org.elasticsearch.index.query.RegexpQueryBuilder;
+
+import java.util.Set;
 
 
 public class BinaryQueryParser extends AbstractExactQueryParser {
 
-    public AtomicQuery parseBinaryQuery(SQLBinaryOpExpr binQueryExpr, String queryAs) {
+    public AtomicQuery parseBinaryQuery(SQLBinaryOpExpr binQueryExpr, String queryAs, Object[] parameters) {
+        return parseBinaryQuery(binQueryExpr, queryAs, parameters, null);
+    }
+
+    /**
+     * 以通配符开头的LIKE条件的字段记录到dslContext中
+     */
+    public AtomicQuery parseBinaryQuery(SQLBinaryOpExpr binQueryExpr, String queryAs, ElasticDslContext dslContext) {
+        return parseBinaryQuery(binQueryExpr, queryAs, dslContext.getParameters(), dslContext.getLeadingWildcardFields());
+    }
+
+    private AtomicQuery parseBinaryQuery(SQLBinaryOpExpr binQueryExpr, String queryAs, Object[] parameters, Set<String> leadingWildcardFields) {
         SQLBinaryOperator binaryOperator = binQueryExpr.getOperator();
 
         //EQ NEQ
         if (SQLBinaryOperator.Equality == binaryOperator || SQLBinaryOperator.LessThanOrGreater == binaryOperator || SQLBinaryOperator.NotEqual == binaryOperator) {
-            Object targetVal = ElasticSqlArgConverter.convertSqlArg(binQueryExpr.getRight());
+            Object targetVal = ElasticSqlArgConverter.convertSqlArg(binQueryExpr.getRight(), parameters);
             SqlConditionOperator operator = SQLBinaryOperator.Equality == binaryOperator ? SqlConditionOperator.Equality : SqlConditionOperator.NotEqual;
             return parseCondition(binQueryExpr.getLeft(), operator, new Object[]{targetVal}, queryAs, (queryFieldName, operator1, rightParamValues) -> {
                 QueryBuilder eqQuery = QueryBuilders.termQuery(queryFieldName, rightParamValues[0]);
@@ -56,7 +70,7 @@ public class BinaryQueryParser extends AbstractExactQueryParser {
                 operator = SqlConditionOperator.LessThanOrEqual;
             }
 
-            Object targetVal = ElasticSqlArgConverter.convertSqlArg(binQueryExpr.getRight());
+            Object targetVal = ElasticSqlArgConverter.convertSqlArg(binQueryExpr.getRight(), parameters);
             return parseCondition(binQueryExpr.getLeft(), operator, new Object[]{targetVal}, queryAs, (queryFieldName, operator12, rightParamValues) -> {
                 QueryBuilder rangeQuery = null;
                 if (SqlConditionOperator.GreaterThan == operator12) {
@@ -91,30 +105,37 @@ public class BinaryQueryParser extends AbstractExactQueryParser {
         }
 
         if(SQLBinaryOperator.Like == binaryOperator || SQLBinaryOperator.NotLike == binaryOperator){
-            if(binQueryExpr.getRight() instanceof SQLCharExpr) {
-                SQLCharExpr rightExpr = (SQLCharExpr) binQueryExpr.getRight();
-                SQLExpr leftExpr = binQueryExpr.getLeft();
-                SqlConditionOperator operator=SQLBinaryOperator.Like == binaryOperator?SqlConditionOperator.Like:SqlConditionOperator.NotLike;
-                return parseCondition(binQueryExpr.getLeft(),operator,null,queryAs,((queryFieldName, operator1, rightParamValues) -> {
-                    String rightText=rightExpr.getText();
-                    if(rightExpr.getText().contains("%")){
-                        rightText=rightText.replace("%","*");
-                    }
-                    if(rightExpr.getText().contains("_")){
-                        rightText=rightText.replace("_","?");
-                    }
-                    RegexpQueryBuilder regexpQueryBuilder = QueryBuilders.regexpQuery(leftExpr.toString(), rightText);
-                    if(operator1.equals(SqlConditionOperator.Like)) {
-                        return regexpQueryBuilder;
-                    }else{
-                        return QueryBuilders.boolQuery().mustNot(regexpQueryBuilder);
-                    }
-                }));
-            }else{
-                throw new ElasticSql2DslException("[syntax error] Like/NotLike expr right part should be a char expr");
-            }
+            String pattern = parseLikePattern(binQueryExpr.getRight(), parameters);
+            SqlConditionOperator operator=SQLBinaryOperator.Like == binaryOperator?SqlConditionOperator.Like:SqlConditionOperator.NotLike;
+            return parseCondition(binQueryExpr.getLeft(),operator,null,queryAs,((queryFieldName, operator1, rightParamValues) -> {
+                if (leadingWildcardFields != null && ElasticSqlLikeHelper.isLeadingWildcard(pattern)) {
+                    leadingWildcardFields.add(queryFieldName);
+                }
+                QueryBuilder likeQuery = ElasticSqlLikeHelper.buildLikeQuery(queryFieldName, pattern);
+                if(operator1.equals(SqlConditionOperator.Like)) {
+                    return likeQuery;
+                }else{
+                    return QueryBuilders.boolQuery().mustNot(likeQuery);
+                }
+            }));
         }
 
         throw new ElasticSql2DslException(String.format("[syntax error] Can not support binary query type[%s]", binQueryExpr.toString()));
     }
+
+    /**
+     * LIKE的右边只能是字符串或者绑定了字符串的?
+     */
+    private String parseLikePattern(SQLExpr rightExpr, Object[] parameters) {
+        if (rightExpr instanceof SQLCharExpr) {
+            return ((SQLCharExpr) rightExpr).getText();
+        }
+        if (rightExpr instanceof SQLVariantRefExpr) {
+            Object pattern = ElasticSqlArgConverter.convertSqlArg(rightExpr, false, parameters);
+            if (pattern instanceof String) {
+                return (String) pattern;
+            }
+        }
+        throw new ElasticSql2DslException("[syntax error] Like/NotLike expr right part should be a char expr");
+    }
 }
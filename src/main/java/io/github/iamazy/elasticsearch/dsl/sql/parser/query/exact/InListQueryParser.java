@@ -1,12 +1,22 @@
 package io.github.iamazy.elasticsearch.dsl.sql.parser.query.exact;
 
+import com.alibaba.druid.sql.ast.SQLExpr;
 import com.alibaba.druid.sql.ast.expr.SQLInListExpr;
+import com.alibaba.druid.sql.ast.expr.SQLMethodInvokeExpr;
 import io.github.iamazy.elasticsearch.dsl.sql.enums.SqlConditionOperator;
 import io.github.iamazy.elasticsearch.dsl.sql.exception.ElasticSql2DslException;
 import io.github.iamazy.elasticsearch.dsl.sql.helper.ElasticSqlArgConverter;
+import io.github.iamazy.elasticsearch.dsl.sql.helper.ElasticSqlMethodInvokeHelper;
 import io.github.iamazy.elasticsearch.dsl.sql.model.AtomicQuery;
 import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.MatchNoneQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.indices.TermsLookup;
+
+import java.util.List;
 
 
 /**
@@ -15,21 +25,70 @@ import org.elasticsearch.index.query.QueryBuilders;
 public class InListQueryParser extends AbstractExactQueryParser {
 
 
-    public AtomicQuery parseInListQuery(SQLInListExpr inListQueryExpr, String queryAs) {
+    public AtomicQuery parseInListQuery(SQLInListExpr inListQueryExpr, String queryAs, Object[] parameters) {
+        SqlConditionOperator operator = inListQueryExpr.isNot() ? SqlConditionOperator.NotIn : SqlConditionOperator.In;
+        //in ()不匹配任何文档, not in ()匹配所有文档
         if (CollectionUtils.isEmpty(inListQueryExpr.getTargetList())) {
-            throw new ElasticSql2DslException("[syntax error] In list expr target list cannot be blank");
+            return parseCondition(inListQueryExpr.getExpr(), operator, null, queryAs, (queryFieldName, operator1, rightParamValues) ->
+                    SqlConditionOperator.NotIn == operator1 ? QueryBuilders.matchAllQuery() : new MatchNoneQueryBuilder());
         }
 
-        Object[] targetInList = ElasticSqlArgConverter.convertSqlArgs(inListQueryExpr.getTargetList());
-        SqlConditionOperator operator = inListQueryExpr.isNot() ? SqlConditionOperator.NotIn : SqlConditionOperator.In;
+        //in lookup(index,id,path): 取值保存在另一个文档中,由ES读取,不需要放在请求里
+        if (isTermsLookup(inListQueryExpr.getTargetList())) {
+            TermsLookup termsLookup = parseTermsLookup((SQLMethodInvokeExpr) inListQueryExpr.getTargetList().get(0), parameters);
+            return parseCondition(inListQueryExpr.getExpr(), operator, null, queryAs, (queryFieldName, operator1, rightParamValues) -> {
+                QueryBuilder termsQuery = QueryBuilders.termsLookupQuery(queryFieldName, termsLookup);
+                return SqlConditionOperator.NotIn == operator1 ? QueryBuilders.boolQuery().mustNot(termsQuery) : termsQuery;
+            });
+        }
 
-        return parseCondition(inListQueryExpr.getExpr(), operator, targetInList, queryAs, (queryFieldName, operator1, rightParamValues) -> {
+        InListValues inListValues = InListValues.parse(inListQueryExpr.getTargetList(), parameters);
+
+        return parseCondition(inListQueryExpr.getExpr(), operator, null, queryAs, (queryFieldName, operator1, rightParamValues) -> {
+            List<QueryBuilder> termsQueries = inListValues.toTermsQueries(queryFieldName);
             if (SqlConditionOperator.NotIn == operator1) {
-                return QueryBuilders.boolQuery().mustNot(QueryBuilders.termsQuery(queryFieldName, rightParamValues));
+                BoolQueryBuilder boolQuery = QueryBuilders.boolQuery();
+                termsQueries.forEach(boolQuery::mustNot);
+                return boolQuery;
             }
-            else {
-                return QueryBuilders.termsQuery(queryFieldName, rightParamValues);
+            if (termsQueries.size() == 1) {
+                return termsQueries.get(0);
             }
+            BoolQueryBuilder boolQuery = QueryBuilders.boolQuery();
+            termsQueries.forEach(boolQuery::should);
+            return boolQuery;
         });
     }
+
+    private static boolean isTermsLookup(List<SQLExpr> targetList) {
+        return targetList.size() == 1 && targetList.get(0) instanceof SQLMethodInvokeExpr
+                && ElasticSqlMethodInvokeHelper.isMethodOf(ElasticSqlMethodInvokeHelper.TERMS_LOOKUP_METHOD,
+                ((SQLMethodInvokeExpr) targetList.get(0)).getMethodName());
+    }
+
+    /**
+     * lookup(index, id, path[, routing])
+     */
+    private static TermsLookup parseTermsLookup(SQLMethodInvokeExpr lookupExpr, Object[] parameters) {
+        List<SQLExpr> args = lookupExpr.getParameters();
+        if (args.size() != 3 && args.size() != 4) {
+            throw new ElasticSql2DslException("[syntax error] Terms lookup method should be lookup(index, id, path[, routing])");
+        }
+        String[] values = new String[args.size()];
+        for (int idx = 0; idx < args.size(); idx++) {
+            Object value = ElasticSqlArgConverter.convertSqlArg(args.get(idx), false, parameters);
+            if (!(value instanceof String) && !(value instanceof Long)) {
+                throw new ElasticSql2DslException(String.format("[syntax error] Terms lookup method arg[%s] should be string", args.get(idx)));
+            }
+            values[idx] = value.toString();
+            if (StringUtils.isBlank(values[idx])) {
+                throw new ElasticSql2DslException("[syntax error] Terms lookup method arg can not be blank");
+            }
+        }
+        TermsLookup termsLookup = new TermsLookup(values[0], values[1], values[2]);
+        if (values.length == 4) {
+            termsLookup.routing(values[3]);
+        }
+        return termsLookup;
+    }
 }
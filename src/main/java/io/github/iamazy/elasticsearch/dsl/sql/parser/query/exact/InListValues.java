@@ -0,0 +1,141 @@
+package io.github.iamazy.elasticsearch.dsl.sql.parser.query.exact;
+
+import com.alibaba.druid.sql.ast.SQLExpr;
+import com.alibaba.druid.sql.ast.expr.SQLCharExpr;
+import com.alibaba.druid.sql.ast.expr.SQLIntegerExpr;
+import com.alibaba.druid.sql.ast.expr.SQLVariantRefExpr;
+import io.github.iamazy.elasticsearch.dsl.cons.CoreConstants;
+import io.github.iamazy.elasticsearch.dsl.sql.helper.ElasticSqlArgConverter;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * in列表的取值,全是整数时保存在long[]中,全是字符串时保存在String[]中,排序并去重
+ * 其余情况(小数,混合类型等)按原来的方式转换,只去重不排序
+ *
+ * @author iamazy
+ * @date 2019/5/20
+ * @descrition
+ **/
+final class InListValues {
+
+    private final long[] longValues;
+    private final String[] stringValues;
+    private final Object[] objectValues;
+    private final int size;
+
+    private InListValues(long[] longValues, String[] stringValues, Object[] objectValues, int size) {
+        this.longValues = longValues;
+        this.stringValues = stringValues;
+        this.objectValues = objectValues;
+        this.size = size;
+    }
+
+    static InListValues parse(List<SQLExpr> targetList, Object[] parameters) {
+        int length = targetList.size();
+        long[] longValues = new long[length];
+        int idx = 0;
+        for (; idx < length; idx++) {
+            SQLExpr targetExpr = targetList.get(idx);
+            if (targetExpr instanceof SQLIntegerExpr) {
+                longValues[idx] = ((SQLIntegerExpr) targetExpr).getNumber().longValue();
+                continue;
+            }
+            if (targetExpr instanceof SQLVariantRefExpr) {
+                Object value = ElasticSqlArgConverter.convertSqlArg(targetExpr, parameters);
+                if (value instanceof Long) {
+                    longValues[idx] = (Long) value;
+                    continue;
+                }
+            }
+            break;
+        }
+        if (idx == length) {
+            Arrays.sort(longValues);
+            return new InListValues(longValues, null, null, dedupe(longValues));
+        }
+
+        if (idx == 0) {
+            String[] stringValues = new String[length];
+            for (; idx < length; idx++) {
+                SQLExpr targetExpr = targetList.get(idx);
+                if (!(targetExpr instanceof SQLCharExpr) && !(targetExpr instanceof SQLVariantRefExpr)) {
+                    break;
+                }
+                //日期字符串仍然转换为ES的默认日期格式
+                Object value = ElasticSqlArgConverter.convertSqlArg(targetExpr, parameters);
+                if (!(value instanceof String)) {
+                    break;
+                }
+                stringValues[idx] = (String) value;
+            }
+            if (idx == length) {
+                Arrays.sort(stringValues);
+                return new InListValues(null, stringValues, null, dedupe(stringValues));
+            }
+        }
+
+        Object[] objectValues = new LinkedHashSet<>(Arrays.asList(ElasticSqlArgConverter.convertSqlArgs(targetList, parameters))).toArray();
+        return new InListValues(null, null, objectValues, objectValues.length);
+    }
+
+    /**
+     * 超过index.max_terms_count的值拆分为多个terms查询
+     */
+    List<QueryBuilder> toTermsQueries(String fieldName) {
+        List<QueryBuilder> termsQueries = new ArrayList<>(size / CoreConstants.MAX_TERMS_COUNT + 1);
+        for (int from = 0; from < size; from += CoreConstants.MAX_TERMS_COUNT) {
+            int to = Math.min(size, from + CoreConstants.MAX_TERMS_COUNT);
+            if (longValues != null) {
+                termsQueries.add(QueryBuilders.termsQuery(fieldName, slice(longValues, from, to)));
+            }
+            else if (stringValues != null) {
+                termsQueries.add(QueryBuilders.termsQuery(fieldName, slice(stringValues, from, to)));
+            }
+            else {
+                termsQueries.add(QueryBuilders.termsQuery(fieldName, slice(objectValues, from, to)));
+            }
+        }
+        return termsQueries;
+    }
+
+    /**
+     * 对已排序的数组原地去重,返回去重后的长度
+     */
+    private static int dedupe(long[] values) {
+        int size = 0;
+        for (int idx = 0; idx < values.length; idx++) {
+            if (size == 0 || values[size - 1] != values[idx]) {
+                values[size++] = values[idx];
+            }
+        }
+        return size;
+    }
+
+    private static int dedupe(String[] values) {
+        int size = 0;
+        for (int idx = 0; idx < values.length; idx++) {
+            if (size == 0 || !values[size - 1].equals(values[idx])) {
+                values[size++] = values[idx];
+            }
+        }
+        return size;
+    }
+
+    private static long[] slice(long[] values, int from, int to) {
+        return from == 0 && to == values.length ? values : Arrays.copyOfRange(values, from, to);
+    }
+
+    private static String[] slice(String[] values, int from, int to) {
+        return from == 0 && to == values.length ? values : Arrays.copyOfRange(values, from, to);
+    }
+
+    private static Object[] slice(Object[] values, int from, int to) {
+        return from == 0 && to == values.length ? values : Arrays.copyOfRange(values, from, to);
+    }
+}
@@ -3,6 +3,7 @@ package io.github.iamazy.elasticsearch.dsl.sql.parser.query.method;
 import com.alibaba.druid.sql.ast.SQLExpr;
 import com.alibaba.druid.sql.ast.expr.SQLMethodInvokeExpr;
 import io.github.iamazy.elasticsearch.dsl.sql.helper.ElasticSqlArgConverter;
+import io.github.iamazy.elasticsearch.dsl.sql.model.ElasticDslContext;
 import lombok.Getter;
 import org.apache.commons.lang3.StringUtils;
 
@@ -15,13 +16,26 @@ public class MethodInvocation {
     @Getter
     private final SQLMethodInvokeExpr methodInvokeExpr;
     private final String queryAs;
+    @Getter
+    private final ElasticDslContext context;
+    /**
+     * 方法所在的条件是否参与打分,where条件以及must_not中的方法不打分
+     */
+    @Getter
+    private final boolean scoring;
+
+    public MethodInvocation(SQLMethodInvokeExpr methodInvokeExpr, String queryAs, ElasticDslContext context) {
+        this(methodInvokeExpr, queryAs, true, context);
+    }
 
-    public MethodInvocation(SQLMethodInvokeExpr methodInvokeExpr, String queryAs) {
+    public MethodInvocation(SQLMethodInvokeExpr methodInvokeExpr, String queryAs, boolean scoring, ElasticDslContext context) {
         if (methodInvokeExpr == null) {
             throw new IllegalArgumentException("method invoke expression can not be null");
         }
         this.methodInvokeExpr = methodInvokeExpr;
         this.queryAs = queryAs;
+        this.scoring = scoring;
+        this.context = context;
     }
 
     public String getQueryAs() {
@@ -37,6 +51,16 @@ public class MethodInvocation {
         return methodInvokeExpr.getParameters();
     }
 
+    /**
+     * 返回替换了指定参数的新MethodInvocation,不修改原有的Sql语法树
+     */
+    public MethodInvocation withParameter(int index, SQLExpr parameter) {
+        SQLMethodInvokeExpr copy = new SQLMethodInvokeExpr(methodInvokeExpr.getMethodName());
+        copy.getParameters().addAll(methodInvokeExpr.getParameters());
+        copy.getParameters().set(index, parameter);
+        return new MethodInvocation(copy, queryAs, scoring, context);
+    }
+
     public int getParameterCount() {
         return methodInvokeExpr.getParameters().size();
     }
@@ -51,12 +75,12 @@ public class MethodInvocation {
 
     public Object getParameterAsObject(int index) {
         SQLExpr paramExpr = methodInvokeExpr.getParameters().get(index);
-        return ElasticSqlArgConverter.convertSqlArg(paramExpr, false);
+        return ElasticSqlArgConverter.convertSqlArg(paramExpr, false, context.getParameters());
     }
 
     public String getParameterAsFormatDate(int index) {
         SQLExpr paramExpr = methodInvokeExpr.getParameters().get(index);
-        return ElasticSqlArgConverter.convertSqlArg(paramExpr, true).toString();
+        return ElasticSqlArgConverter.convertSqlArg(paramExpr, true, context.getParameters()).toString();
     }
 
     public String getParameterAsString(int index) {
@@ -51,7 +51,8 @@ public abstract class ParameterizedMethodQueryParser extends AbstractParameteriz
                     field = expr.toString().substring(CoreConstants.HIGHLIGHTER.length());
                     ElasticSqlExprParser elasticSqlExprParser = new ElasticSqlExprParser(field);
                     SQLExpr sqlExpr = elasticSqlExprParser.expr();
-                    invocation.getParameters().set(i, sqlExpr);
+                    //Sql语法树可能被预编译语句复用,这里不能直接修改
+                    invocation = invocation.withParameter(i, sqlExpr);
                     highlighter = true;
                 }
 
@@ -0,0 +1,90 @@
+package io.github.iamazy.elasticsearch.dsl.sql.parser.query.method.expr;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.github.iamazy.elasticsearch.dsl.sql.exception.ElasticSql2DslException;
+import io.github.iamazy.elasticsearch.dsl.sql.parser.query.method.MethodInvocation;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.Set;
+
+/**
+ * 方法名(含所有别名)到解析器的索引,方法分发只需一次哈希查找
+ * <p>
+ * 内置解析器先注册,随后注册通过ServiceLoader发现的扩展解析器(META-INF/services/接口全限定名)
+ * 同一个别名(不区分大小写)被两个解析器注册时直接抛出异常,扩展解析器不能覆盖内置方法,扩展之间也不能互相覆盖
+ *
+ * @author iamazy
+ * @date 2019/5/10
+ * @descrition
+ **/
+public class MethodExpressionRegistry<T extends MethodExpression> {
+
+    private final ImmutableMap<String, T> methods;
+    private final ImmutableList<T> expressions;
+
+    private MethodExpressionRegistry(ImmutableMap<String, T> methods, ImmutableList<T> expressions) {
+        this.methods = methods;
+        this.expressions = expressions;
+    }
+
+    public static <T extends MethodExpression> MethodExpressionRegistry<T> load(Class<T> service, List<T> builtIn) {
+        Map<String, T> methods = new HashMap<>();
+        ImmutableList.Builder<T> expressions = ImmutableList.builder();
+        for (T expression : builtIn) {
+            register(methods, expressions, expression);
+        }
+        for (T expression : ServiceLoader.load(service, service.getClassLoader())) {
+            register(methods, expressions, expression);
+        }
+        return new MethodExpressionRegistry<>(ImmutableMap.copyOf(methods), expressions.build());
+    }
+
+    private static <T extends MethodExpression> void register(Map<String, T> methods, ImmutableList.Builder<T> expressions, T expression) {
+        for (String alias : expression.defineMethodNames()) {
+            String key = alias.toLowerCase(Locale.ROOT);
+            T owner = methods.putIfAbsent(key, expression);
+            if (owner != null && owner != expression) {
+                throw new ElasticSql2DslException(String.format("Method [%s] of [%s] is already registered by [%s]",
+                        alias, expression.getClass().getName(), owner.getClass().getName()));
+            }
+            //原样的别名也放一份,SQL中按声明的写法调用时不需要再转小写
+            methods.putIfAbsent(alias, expression);
+        }
+        expressions.add(expression);
+    }
+
+    /**
+     * 按方法名查找解析器,再由解析器自身校验参数个数等条件,不匹配时返回null
+     */
+    public T lookup(MethodInvocation invocation) {
+        T expression = lookup(invocation.getMethodName());
+        if (expression != null && expression.isMatchMethodInvocation(invocation)) {
+            return expression;
+        }
+        return null;
+    }
+
+    public T lookup(String methodName) {
+        if (methodName == null) {
+            return null;
+        }
+        T expression = methods.get(methodName);
+        if (expression == null) {
+            expression = methods.get(methodName.toLowerCase(Locale.ROOT));
+        }
+        return expression;
+    }
+
+    public Set<String> methodNames() {
+        return methods.keySet();
+    }
+
+    public List<T> expressions() {
+        return expressions;
+    }
+}
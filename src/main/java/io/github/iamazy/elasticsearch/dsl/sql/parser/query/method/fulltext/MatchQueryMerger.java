@@ -0,0 +1,105 @@
+package io.github.iamazy.elasticsearch.dsl.sql.parser.query.method.fulltext;
+
+import org.elasticsearch.index.query.MatchQueryBuilder;
+import org.elasticsearch.index.query.MultiMatchQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+
+import java.util.*;
+
+/**
+ * match(title,'foo') or match(body,'foo') -> multi_match('foo',[title,body]),type为most_fields
+ * <p>
+ * most_fields对每个字段的得分求和,与bool的should相同,合并后匹配结果和得分都不变,
+ * match的boost作为字段的boost保留,高亮字段在解析match时已经记录,不受影响
+ *
+ * @author iamazy
+ * @date 2019/5/18
+ * @descrition
+ **/
+public class MatchQueryMerger {
+
+    private MatchQueryMerger() {
+    }
+
+    /**
+     * 合并OR中文本和参数相同、字段不同的match,合并结果放在第一个match的位置
+     */
+    public static List<QueryBuilder> merge(List<QueryBuilder> shouldClauses) {
+        Map<List<Object>, List<MatchQueryBuilder>> groups = new LinkedHashMap<>();
+        for (QueryBuilder clause : shouldClauses) {
+            if (clause instanceof MatchQueryBuilder && ((MatchQueryBuilder) clause).queryName() == null) {
+                groups.computeIfAbsent(optionsOf((MatchQueryBuilder) clause), key -> new ArrayList<>()).add((MatchQueryBuilder) clause);
+            }
+        }
+        if (groups.values().stream().noneMatch(MatchQueryMerger::isMergeable)) {
+            return shouldClauses;
+        }
+        List<QueryBuilder> merged = new ArrayList<>(shouldClauses.size());
+        for (QueryBuilder clause : shouldClauses) {
+            if (!(clause instanceof MatchQueryBuilder) || ((MatchQueryBuilder) clause).queryName() != null) {
+                merged.add(clause);
+                continue;
+            }
+            List<MatchQueryBuilder> group = groups.get(optionsOf((MatchQueryBuilder) clause));
+            if (!isMergeable(group)) {
+                merged.add(clause);
+            } else if (group.get(0) == clause) {
+                merged.add(toMultiMatch(group));
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * 同一字段出现多次时合并会改变得分,不合并
+     */
+    private static boolean isMergeable(List<MatchQueryBuilder> group) {
+        if (group.size() < 2) {
+            return false;
+        }
+        Set<String> fields = new HashSet<>();
+        for (MatchQueryBuilder matchQuery : group) {
+            if (!fields.add(matchQuery.fieldName())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 除字段名和boost以外的所有参数
+     */
+    private static List<Object> optionsOf(MatchQueryBuilder matchQuery) {
+        return Arrays.asList(matchQuery.value(), matchQuery.operator(), matchQuery.analyzer(), matchQuery.fuzziness(),
+                matchQuery.prefixLength(), matchQuery.maxExpansions(), matchQuery.minimumShouldMatch(), matchQuery.fuzzyRewrite(),
+                matchQuery.lenient(), matchQuery.fuzzyTranspositions(), matchQuery.zeroTermsQuery(), matchQuery.cutoffFrequency(),
+                matchQuery.autoGenerateSynonymsPhraseQuery());
+    }
+
+    private static MultiMatchQueryBuilder toMultiMatch(List<MatchQueryBuilder> group) {
+        MatchQueryBuilder first = group.get(0);
+        MultiMatchQueryBuilder multiMatchQuery = QueryBuilders.multiMatchQuery(first.value())
+                .type(MultiMatchQueryBuilder.Type.MOST_FIELDS);
+        for (MatchQueryBuilder matchQuery : group) {
+            multiMatchQuery.field(matchQuery.fieldName(), matchQuery.boost());
+        }
+        multiMatchQuery.operator(first.operator());
+        multiMatchQuery.analyzer(first.analyzer());
+        if (first.fuzziness() != null) {
+            multiMatchQuery.fuzziness(first.fuzziness());
+        }
+        multiMatchQuery.prefixLength(first.prefixLength());
+        multiMatchQuery.maxExpansions(first.maxExpansions());
+        multiMatchQuery.minimumShouldMatch(first.minimumShouldMatch());
+        multiMatchQuery.fuzzyRewrite(first.fuzzyRewrite());
+        multiMatchQuery.lenient(first.lenient());
+        multiMatchQuery.fuzzyTranspositions(first.fuzzyTranspositions());
+        multiMatchQuery.zeroTermsQuery(first.zeroTermsQuery());
+        if (first.cutoffFrequency() != null) {
+            multiMatchQuery.cutoffFrequency(first.cutoffFrequency());
+        }
+        multiMatchQuery.autoGenerateSynonymsPhraseQuery(first.autoGenerateSynonymsPhraseQuery());
+        return multiMatchQuery;
+    }
+}
@@ -22,7 +22,7 @@ import static io.github.iamazy.elasticsearch.dsl.cons.CoreConstants.COMMA;
 
 public class QueryStringQueryParser extends ParameterizedMethodQueryParser {
 
-    private static List<String> QUERY_STRING_METHOD = ImmutableList.of("queryString", "query_string");
+    private static final List<String> QUERY_STRING_METHOD = ImmutableList.of("queryString", "query_string");
 
     @Override
     public List<String> defineMethodNames() {
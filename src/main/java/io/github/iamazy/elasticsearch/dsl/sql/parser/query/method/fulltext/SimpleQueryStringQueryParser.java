@@ -22,7 +22,7 @@ import static io.github.iamazy.elasticsearch.dsl.cons.CoreConstants.COMMA;
 
 public class SimpleQueryStringQueryParser extends ParameterizedMethodQueryParser {
 
-    private static List<String> SIMPLE_QUERY_STRING_METHOD = ImmutableList.of("simpleQueryString", "simple_query_string");
+    private static final List<String> SIMPLE_QUERY_STRING_METHOD = ImmutableList.of("simpleQueryString", "simple_query_string");
 
     @Override
     public List<String> defineMethodNames() {
@@ -25,7 +25,7 @@ import java.util.List;
  */
 public class HasChildQueryParser implements MethodQueryParser {
 
-    private static List<String> HAS_CHILD_METHOD = ImmutableList.of("has_child", "hasChild", "has_child_query", "hasChildQuery");
+    private static final List<String> HAS_CHILD_METHOD = ImmutableList.of("has_child", "hasChild", "has_child_query", "hasChildQuery");
 
     @Override
     public List<String> defineMethodNames() {
@@ -48,14 +48,16 @@ public class HasChildQueryParser implements MethodQueryParser {
 
     @Override
     public AtomicQuery parseMethodQuery(MethodInvocation invocation) throws ElasticSql2DslException {
+        checkMethodInvocation(invocation);
         String childType = invocation.getParameterAsString(0);
         SQLExpr filter = invocation.getParameter(1);
 
-        BoolExpressionParser boolExpressionParser = new BoolExpressionParser();
         String queryAs = invocation.getQueryAs();
 
-        BoolQueryBuilder filterBuilder = boolExpressionParser.parseBoolQueryExpr(filter, queryAs);
-        HasChildQueryBuilder hasChildQueryBuilder = JoinQueryBuilders.hasChildQuery(childType, filterBuilder, ScoreMode.None);
+        BoolQueryBuilder filterBuilder = BoolExpressionParser.getInstance().parseBoolQueryExpr(filter, queryAs, invocation.isScoring(), invocation.getContext());
+        //不打分时不需要计算子文档的得分
+        ScoreMode scoreMode = invocation.isScoring() ? ScoreMode.Avg : ScoreMode.None;
+        HasChildQueryBuilder hasChildQueryBuilder = JoinQueryBuilders.hasChildQuery(childType, filterBuilder, scoreMode);
 
         if (invocation.getParameterCount() == 4) {
             Long minChildren = invocation.getParameterAsLong(2);
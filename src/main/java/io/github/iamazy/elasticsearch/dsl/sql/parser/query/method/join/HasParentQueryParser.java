@@ -22,7 +22,7 @@ import java.util.List;
  */
 public class HasParentQueryParser implements MethodQueryParser {
 
-    private static List<String> HAS_PARENT_METHOD = ImmutableList.of("has_parent", "hasParent", "has_parent_query", "hasParentQuery");
+    private static final List<String> HAS_PARENT_METHOD = ImmutableList.of("has_parent", "hasParent", "has_parent_query", "hasParentQuery");
 
     @Override
     public List<String> defineMethodNames() {
@@ -45,14 +45,14 @@ public class HasParentQueryParser implements MethodQueryParser {
 
     @Override
     public AtomicQuery parseMethodQuery(MethodInvocation invocation) throws ElasticSql2DslException {
+        checkMethodInvocation(invocation);
         String parentType = invocation.getParameterAsString(0);
         SQLExpr filter = invocation.getParameter(1);
 
-        BoolExpressionParser boolExpressionParser = new BoolExpressionParser();
         String queryAs = invocation.getQueryAs();
 
-        BoolQueryBuilder filterBuilder = boolExpressionParser.parseBoolQueryExpr(filter, queryAs);
-        HasParentQueryBuilder hasParentQueryBuilder = JoinQueryBuilders.hasParentQuery(parentType, filterBuilder, false);
+        BoolQueryBuilder filterBuilder = BoolExpressionParser.getInstance().parseBoolQueryExpr(filter, queryAs, invocation.isScoring(), invocation.getContext());
+        HasParentQueryBuilder hasParentQueryBuilder = JoinQueryBuilders.hasParentQuery(parentType, filterBuilder, invocation.isScoring());
 
         return new AtomicQuery(hasParentQueryBuilder);
     }
@@ -22,21 +22,20 @@ import java.util.List;
  **/
 public class BoostingQueryParser implements MethodQueryParser {
 
-    private static List<String> BOOSTING_METHOD = ImmutableList.of("boosting");
+    private static final List<String> BOOSTING_METHOD = ImmutableList.of("boosting");
 
     @Override
     public AtomicQuery parseMethodQuery(MethodInvocation invocation) throws ElasticSql2DslException {
-
+        checkMethodInvocation(invocation);
         SQLExpr positiveExpr = invocation.getParameter(0);
         SQLExpr negativeExpr=invocation.getParameter(1);
         Float negativeBoost=((SQLNumberExpr) invocation.getParameter(2)).getNumber().floatValue();
-        BoolExpressionParser boolExpressionParser = new BoolExpressionParser();
-        BoolQueryBuilder positiveQuery = boolExpressionParser.parseBoolQueryExpr(positiveExpr, invocation.getQueryAs());
-        BoolQueryBuilder negativeQuery=boolExpressionParser.parseBoolQueryExpr(negativeExpr,invocation.getQueryAs());
+        BoolExpressionParser boolExpressionParser = BoolExpressionParser.getInstance();
+        BoolQueryBuilder positiveQuery = boolExpressionParser.parseBoolQueryExpr(positiveExpr, invocation.getQueryAs(), invocation.getContext());
+        BoolQueryBuilder negativeQuery=boolExpressionParser.parseBoolQueryExpr(negativeExpr,invocation.getQueryAs(), invocation.getContext());
         BoostingQueryBuilder boostingQueryBuilder = QueryBuilders.boostingQuery(positiveQuery,negativeQuery).negativeBoost(negativeBoost);
-        AtomicQuery atomicQuery= new AtomicQuery(boostingQueryBuilder);
-        atomicQuery.getHighlighter().addAll(boolExpressionParser.getHighlighter());
-        return atomicQuery;
+        //高亮字段在解析子查询时已经写入ElasticDslContext
+        return new AtomicQuery(boostingQueryBuilder);
 
     }
 
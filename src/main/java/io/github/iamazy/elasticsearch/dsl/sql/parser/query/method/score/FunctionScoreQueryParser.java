@@ -8,6 +8,7 @@ import io.github.iamazy.elasticsearch.dsl.cons.ElasticConstants;
 import io.github.iamazy.elasticsearch.dsl.sql.exception.ElasticSql2DslException;
 import io.github.iamazy.elasticsearch.dsl.sql.helper.ElasticSqlMethodInvokeHelper;
 import io.github.iamazy.elasticsearch.dsl.sql.model.AtomicQuery;
+import io.github.iamazy.elasticsearch.dsl.sql.model.ElasticDslContext;
 import io.github.iamazy.elasticsearch.dsl.sql.parser.query.method.MethodInvocation;
 import io.github.iamazy.elasticsearch.dsl.sql.parser.query.method.MethodQueryParser;
 import io.github.iamazy.elasticsearch.dsl.sql.parser.query.method.expr.AbstractParameterizedMethodExpression;
@@ -38,7 +39,7 @@ import static io.github.iamazy.elasticsearch.dsl.cons.CoreConstants.COMMA;
  **/
 public class FunctionScoreQueryParser extends AbstractParameterizedMethodExpression implements MethodQueryParser {
 
-    private static List<String> FUNCTION_SCORE_METHOD = ImmutableList.of("function_score");
+    private static final List<String> FUNCTION_SCORE_METHOD = ImmutableList.of("function_score");
 
     private static final List<String> SCRIPT_SCORE_METHOD = ImmutableList.of("script_score");
 
@@ -65,7 +66,7 @@ public class FunctionScoreQueryParser extends AbstractParameterizedMethodExpress
         return ElasticSqlMethodInvokeHelper.isMethodOf(FIELD_VALUE_FACTOR_METHOD, invokeExpr.getMethodName());
     }
 
-    private FunctionScoreQueryBuilder.FilterFunctionBuilder parseScriptScoreMethod(SQLMethodInvokeExpr methodInvokeExpr) {
+    private FunctionScoreQueryBuilder.FilterFunctionBuilder parseScriptScoreMethod(SQLMethodInvokeExpr methodInvokeExpr, ElasticDslContext dslContext) {
         ScriptScoreFunctionBuilder scriptScoreFunctionBuilder;
         switch (methodInvokeExpr.getParameters().size()) {
             case 3: {
@@ -73,8 +74,7 @@ public class FunctionScoreQueryParser extends AbstractParameterizedMethodExpress
                     throw new ElasticSql2DslException("Failed to parse query method script_score!");
                 }
                 SQLBinaryOpExpr queryExpr = (SQLBinaryOpExpr) methodInvokeExpr.getParameters().get(0);
-                BoolExpressionParser boolExpressionParser = new BoolExpressionParser();
-                BoolQueryBuilder boolQueryBuilder = boolExpressionParser.parseBoolQueryExpr(queryExpr, null);
+                BoolQueryBuilder boolQueryBuilder = BoolExpressionParser.getInstance().parseBoolQueryExpr(queryExpr, null, dslContext);
                 SQLCharExpr sourceExpr = (SQLCharExpr) methodInvokeExpr.getParameters().get(1);
                 SQLCharExpr paramsExpr = (SQLCharExpr) methodInvokeExpr.getParameters().get(2);
                 scriptScoreFunctionBuilder = ScoreFunctionBuilders.scriptFunction(parseScript(sourceExpr, paramsExpr));
@@ -110,7 +110,7 @@ public class FunctionScoreQueryParser extends AbstractParameterizedMethodExpress
         }
     }
 
-    private FunctionScoreQueryBuilder.FilterFunctionBuilder parseRandomScoreMethod(SQLMethodInvokeExpr methodInvokeExpr) {
+    private FunctionScoreQueryBuilder.FilterFunctionBuilder parseRandomScoreMethod(SQLMethodInvokeExpr methodInvokeExpr, ElasticDslContext dslContext) {
         RandomScoreFunctionBuilder randomScoreFunctionBuilder = ScoreFunctionBuilders.randomFunction();
         if (methodInvokeExpr.getParameters().size() > 3 || methodInvokeExpr.getParameters().size() == 0) {
             throw new ElasticSql2DslException("Failed to parse query method random_score!");
@@ -123,8 +123,7 @@ public class FunctionScoreQueryParser extends AbstractParameterizedMethodExpress
             randomScoreFunctionBuilder.seed(((SQLIntegerExpr) methodInvokeExpr.getParameters().get(0)).getNumber().longValue());
             randomScoreFunctionBuilder.setField(((SQLCharExpr) methodInvokeExpr.getParameters().get(1)).getText());
         } else if (methodInvokeExpr.getParameters().get(0) instanceof SQLBinaryOpExpr && methodInvokeExpr.getParameters().get(2) instanceof SQLCharExpr && methodInvokeExpr.getParameters().get(1) instanceof SQLIntegerExpr) {
-            BoolExpressionParser boolExpressionParser = new BoolExpressionParser();
-            BoolQueryBuilder boolQueryBuilder = boolExpressionParser.parseBoolQueryExpr(methodInvokeExpr.getParameters().get(0), null);
+            BoolQueryBuilder boolQueryBuilder = BoolExpressionParser.getInstance().parseBoolQueryExpr(methodInvokeExpr.getParameters().get(0), null, dslContext);
             randomScoreFunctionBuilder.seed(((SQLIntegerExpr) methodInvokeExpr.getParameters().get(1)).getNumber().longValue());
             randomScoreFunctionBuilder.setField(((SQLCharExpr) methodInvokeExpr.getParameters().get(2)).getText());
             return new FunctionScoreQueryBuilder.FilterFunctionBuilder(boolQueryBuilder, randomScoreFunctionBuilder);
@@ -132,13 +131,12 @@ public class FunctionScoreQueryParser extends AbstractParameterizedMethodExpress
         return new FunctionScoreQueryBuilder.FilterFunctionBuilder(randomScoreFunctionBuilder);
     }
 
-    private FunctionScoreQueryBuilder.FilterFunctionBuilder parseFieldValueFactorMethod(SQLMethodInvokeExpr methodInvokeExpr) {
+    private FunctionScoreQueryBuilder.FilterFunctionBuilder parseFieldValueFactorMethod(SQLMethodInvokeExpr methodInvokeExpr, ElasticDslContext dslContext) {
         if(methodInvokeExpr.getParameters().size()==2 && methodInvokeExpr.getParameters().get(0) instanceof SQLBinaryOpExpr && methodInvokeExpr.getParameters().get(1) instanceof SQLCharExpr){
             SQLBinaryOpExpr binaryOpExpr = (SQLBinaryOpExpr) methodInvokeExpr.getParameters().get(0);
             SQLCharExpr charExpr = (SQLCharExpr) methodInvokeExpr.getParameters().get(1);
             FieldValueFactorFunctionBuilder fieldValueFactorFunctionBuilder = setFieldValueFactorParams(charExpr);
-            BoolExpressionParser boolExpressionParser=new BoolExpressionParser();
-            BoolQueryBuilder boolQueryBuilder = boolExpressionParser.parseBoolQueryExpr(binaryOpExpr, null);
+            BoolQueryBuilder boolQueryBuilder = BoolExpressionParser.getInstance().parseBoolQueryExpr(binaryOpExpr, null, dslContext);
             return new FunctionScoreQueryBuilder.FilterFunctionBuilder(boolQueryBuilder,fieldValueFactorFunctionBuilder);
         }
         else if (methodInvokeExpr.getParameters().size() == 1 && methodInvokeExpr.getParameters().get(0) instanceof SQLCharExpr) {
@@ -168,7 +166,7 @@ public class FunctionScoreQueryParser extends AbstractParameterizedMethodExpress
         return fieldValueFactorFunctionBuilder;
     }
 
-    private FunctionScoreQueryBuilder.FilterFunctionBuilder parseWeightMethod(SQLMethodInvokeExpr methodInvokeExpr){
+    private FunctionScoreQueryBuilder.FilterFunctionBuilder parseWeightMethod(SQLMethodInvokeExpr methodInvokeExpr, ElasticDslContext dslContext){
         if(methodInvokeExpr.getParameters().size()==1 && methodInvokeExpr.getParameters().get(0) instanceof SQLIntegerExpr){
             SQLIntegerExpr expr=(SQLIntegerExpr)methodInvokeExpr.getParameters().get(0);
             WeightBuilder weightBuilder=ScoreFunctionBuilders.weightFactorFunction(expr.getNumber().floatValue());
@@ -177,8 +175,7 @@ public class FunctionScoreQueryParser extends AbstractParameterizedMethodExpress
         else if(methodInvokeExpr.getParameters().size()==2 && methodInvokeExpr.getParameters().get(0) instanceof SQLBinaryOpExpr && methodInvokeExpr.getParameters().get(1) instanceof SQLIntegerExpr){
             SQLIntegerExpr expr=(SQLIntegerExpr)methodInvokeExpr.getParameters().get(1);
             WeightBuilder weightBuilder=ScoreFunctionBuilders.weightFactorFunction(expr.getNumber().floatValue());
-            BoolExpressionParser boolExpressionParser=new BoolExpressionParser();
-            BoolQueryBuilder boolQueryBuilder = boolExpressionParser.parseBoolQueryExpr(methodInvokeExpr.getParameters().get(0), null);
+            BoolQueryBuilder boolQueryBuilder = BoolExpressionParser.getInstance().parseBoolQueryExpr(methodInvokeExpr.getParameters().get(0), null, dslContext);
             return new FunctionScoreQueryBuilder.FilterFunctionBuilder(boolQueryBuilder,weightBuilder);
         }else{
             throw new ElasticSql2DslException("Failed to parse query method weight!");
@@ -188,17 +185,17 @@ public class FunctionScoreQueryParser extends AbstractParameterizedMethodExpress
 
     @Override
     public AtomicQuery parseMethodQuery(MethodInvocation invocation) throws ElasticSql2DslException {
-        BoolExpressionParser boolExpressionParser = new BoolExpressionParser();
+        BoolExpressionParser boolExpressionParser = BoolExpressionParser.getInstance();
         FunctionScoreQueryBuilder functionScoreQueryBuilder = null;
         List<FunctionScoreQueryBuilder.FilterFunctionBuilder> filterFunctionBuilders = new ArrayList<>(0);
         if (invocation.getParameterCount() == 1) {
-            BoolQueryBuilder boolQueryBuilder = boolExpressionParser.parseBoolQueryExpr(invocation.getFirstParameter(), invocation.getQueryAs());
+            BoolQueryBuilder boolQueryBuilder = boolExpressionParser.parseBoolQueryExpr(invocation.getFirstParameter(), invocation.getQueryAs(), invocation.getContext());
             functionScoreQueryBuilder = QueryBuilders.functionScoreQuery(boolQueryBuilder);
 
         } else if (invocation.getParameterCount() >= 2) {
             BoolQueryBuilder boolQueryBuilder=null;
             if(invocation.getFirstParameter() instanceof SQLBinaryOpExpr) {
-                boolQueryBuilder = boolExpressionParser.parseBoolQueryExpr(invocation.getFirstParameter(), invocation.getQueryAs());
+                boolQueryBuilder = boolExpressionParser.parseBoolQueryExpr(invocation.getFirstParameter(), invocation.getQueryAs(), invocation.getContext());
             }else if(invocation.getFirstParameter() instanceof SQLMethodInvokeExpr){
                 SQLMethodInvokeExpr methodInvokeExpr=(SQLMethodInvokeExpr) invocation.getFirstParameter();
                 if(!(FUNCTION_SCORE_METHOD.contains(methodInvokeExpr.getMethodName())
@@ -206,7 +203,7 @@ public class FunctionScoreQueryParser extends AbstractParameterizedMethodExpress
                         ||SCRIPT_SCORE_METHOD.contains(methodInvokeExpr.getMethodName())
                         ||WEIGHT_METHODS.contains(methodInvokeExpr.getMethodName())
                         ||FIELD_VALUE_FACTOR_METHOD.contains(methodInvokeExpr.getMethodName()))){
-                    boolQueryBuilder = boolExpressionParser.parseBoolQueryExpr(invocation.getFirstParameter(), invocation.getQueryAs());
+                    boolQueryBuilder = boolExpressionParser.parseBoolQueryExpr(invocation.getFirstParameter(), invocation.getQueryAs(), invocation.getContext());
                 }
             }
 
@@ -214,16 +211,16 @@ public class FunctionScoreQueryParser extends AbstractParameterizedMethodExpress
                 if (expr instanceof SQLMethodInvokeExpr) {
                     SQLMethodInvokeExpr methodInvokeExpr = (SQLMethodInvokeExpr) expr;
                     if (checkScriptScoreMethod(methodInvokeExpr)) {
-                        filterFunctionBuilders.add(parseScriptScoreMethod(methodInvokeExpr));
+                        filterFunctionBuilders.add(parseScriptScoreMethod(methodInvokeExpr, invocation.getContext()));
                     }
                     if (checkRandomScoreMethod(methodInvokeExpr)) {
-                        filterFunctionBuilders.add(parseRandomScoreMethod(methodInvokeExpr));
+                        filterFunctionBuilders.add(parseRandomScoreMethod(methodInvokeExpr, invocation.getContext()));
                     }
                     if(checkFieldValueFactorMethod(methodInvokeExpr)){
-                        filterFunctionBuilders.add(parseFieldValueFactorMethod(methodInvokeExpr));
+                        filterFunctionBuilders.add(parseFieldValueFactorMethod(methodInvokeExpr, invocation.getContext()));
                     }
                     if(checkWeightMethod(methodInvokeExpr)){
-                        filterFunctionBuilders.add(parseWeightMethod(methodInvokeExpr));
+                        filterFunctionBuilders.add(parseWeightMethod(methodInvokeExpr, invocation.getContext()));
                     }
                 }
             }
@@ -236,9 +233,8 @@ public class FunctionScoreQueryParser extends AbstractParameterizedMethodExpress
                 setExtraMatchQueryParam(functionScoreQueryBuilder, generateParameterMap(invocation));
             }
         }
-        AtomicQuery atomicQuery = new AtomicQuery(functionScoreQueryBuilder);
-        atomicQuery.getHighlighter().addAll(boolExpressionParser.getHighlighter());
-        return atomicQuery;
+        //高亮字段在解析子查询时已经写入ElasticDslContext
+        return new AtomicQuery(functionScoreQueryBuilder);
     }
 
     @Override
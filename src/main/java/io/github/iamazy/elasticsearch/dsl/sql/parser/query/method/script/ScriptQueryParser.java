@@ -15,7 +15,7 @@ import java.util.Map;
 
 public class ScriptQueryParser extends ParameterizedMethodQueryParser {
 
-    private static List<String> SCRIPT_METHOD = ImmutableList.of("script_query", "scriptQuery");
+    private static final List<String> SCRIPT_METHOD = ImmutableList.of("script_query", "scriptQuery");
 
     @Override
     public List<String> defineMethodNames() {
@@ -20,7 +20,7 @@ public class FuzzyQueryParser extends AbstractFieldSpecificMethodQueryParser {
 
     private static final List<String> FUZZY_QUERY_METHOD = ImmutableList.of("fuzzy", "fuzzy_query", "fuzzyQuery");
 
-    FuzzyQueryParser() {
+    public FuzzyQueryParser() {
         super();
     }
 
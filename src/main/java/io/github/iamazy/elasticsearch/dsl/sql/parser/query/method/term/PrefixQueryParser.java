@@ -20,7 +20,7 @@ import java.util.Map;
  */
 public class PrefixQueryParser extends AbstractFieldSpecificMethodQueryParser {
 
-    private static List<String> PREFIX_QUERY_METHOD = ImmutableList.of("prefix", "prefix_query", "prefixQuery");
+    private static final List<String> PREFIX_QUERY_METHOD = ImmutableList.of("prefix", "prefix_query", "prefixQuery");
 
     @Override
     public List<String> defineMethodNames() {
@@ -20,9 +20,9 @@ import java.util.Map;
 
 public class RegexpQueryParser extends AbstractFieldSpecificMethodQueryParser {
 
-    private static List<String> REGEXP_QUERY_METHOD = ImmutableList.of("regexp", "regexp_query", "regexpQuery");
+    private static final List<String> REGEXP_QUERY_METHOD = ImmutableList.of("regexp", "regexp_query", "regexpQuery");
 
-    RegexpQueryParser() {
+    public RegexpQueryParser() {
 
     }
 
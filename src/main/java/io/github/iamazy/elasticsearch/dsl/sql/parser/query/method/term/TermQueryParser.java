@@ -17,7 +17,7 @@ import java.util.Map;
 
 public class TermQueryParser extends AbstractFieldSpecificMethodQueryParser {
 
-    private static List<String> TERM_QUERY_METHOD = ImmutableList.of("term", "term_query", "termQuery");
+    private static final List<String> TERM_QUERY_METHOD = ImmutableList.of("term", "term_query", "termQuery");
 
     @Override
     public List<String> defineMethodNames() {
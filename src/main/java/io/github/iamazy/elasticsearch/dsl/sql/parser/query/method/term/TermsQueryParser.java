@@ -18,7 +18,7 @@ import java.util.Map;
 
 public class TermsQueryParser extends AbstractFieldSpecificMethodQueryParser {
 
-    private static List<String> TERMS_QUERY_METHOD = ImmutableList.of("terms", "terms_query", "termsQuery");
+    private static final List<String> TERMS_QUERY_METHOD = ImmutableList.of("terms", "terms_query", "termsQuery");
 
 
     @Override
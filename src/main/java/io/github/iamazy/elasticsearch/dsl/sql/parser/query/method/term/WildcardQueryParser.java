@@ -18,7 +18,7 @@ import java.util.Map;
 
 public class WildcardQueryParser extends AbstractFieldSpecificMethodQueryParser {
 
-    private static List<String> WILDCARD_QUERY_METHOD = ImmutableList.of("wildcard", "wildcard_query", "wildcardQuery");
+    private static final List<String> WILDCARD_QUERY_METHOD = ImmutableList.of("wildcard", "wildcard_query", "wildcardQuery");
 
     @Override
     public List<String> defineMethodNames() {
@@ -2,10 +2,9 @@ package io.github.iamazy.elasticsearch.dsl.sql.parser.sql;
 
 import com.alibaba.druid.sql.ast.SQLExpr;
 import com.alibaba.druid.sql.ast.expr.*;
-import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.ListMultimap;
-import com.google.common.collect.Lists;
+import com.google.common.collect.ImmutableList;
 import io.github.iamazy.elasticsearch.dsl.elastic.HighlightBuilders;
+import io.github.iamazy.elasticsearch.dsl.sql.enums.BoolQueryRule;
 import io.github.iamazy.elasticsearch.dsl.sql.enums.SqlBoolOperator;
 import io.github.iamazy.elasticsearch.dsl.sql.enums.SqlConditionType;
 import io.github.iamazy.elasticsearch.dsl.sql.exception.ElasticSql2DslException;
@@ -13,242 +12,351 @@ import io.github.iamazy.elasticsearch.dsl.sql.parser.query.exact.BetweenAndQuery
 import io.github.iamazy.elasticsearch.dsl.sql.parser.query.exact.BinaryQueryParser;
 import io.github.iamazy.elasticsearch.dsl.sql.parser.query.exact.InListQueryParser;
 import io.github.iamazy.elasticsearch.dsl.sql.parser.query.method.MethodInvocation;
-import io.github.iamazy.elasticsearch.dsl.sql.parser.query.method.fulltext.FullTextQueryParser;
-import io.github.iamazy.elasticsearch.dsl.sql.parser.query.method.join.JoinQueryParser;
-import io.github.iamazy.elasticsearch.dsl.sql.parser.query.method.score.ScoreQueryParser;
+import io.github.iamazy.elasticsearch.dsl.sql.parser.query.method.MethodQueryParser;
+import io.github.iamazy.elasticsearch.dsl.sql.parser.query.method.expr.MethodExpressionRegistry;
+import io.github.iamazy.elasticsearch.dsl.sql.parser.query.method.fulltext.*;
+import io.github.iamazy.elasticsearch.dsl.sql.parser.query.method.join.HasChildQueryParser;
+import io.github.iamazy.elasticsearch.dsl.sql.parser.query.method.join.HasParentQueryParser;
+import io.github.iamazy.elasticsearch.dsl.sql.parser.query.method.score.BoostingQueryParser;
+import io.github.iamazy.elasticsearch.dsl.sql.parser.query.method.score.FunctionScoreQueryParser;
 import io.github.iamazy.elasticsearch.dsl.sql.parser.query.method.script.ScriptQueryParser;
-import io.github.iamazy.elasticsearch.dsl.sql.parser.query.method.term.TermLevelAtomicQueryParser;
+import io.github.iamazy.elasticsearch.dsl.sql.parser.query.method.term.*;
 import io.github.iamazy.elasticsearch.dsl.sql.model.AtomicQuery;
+import io.github.iamazy.elasticsearch.dsl.sql.model.ElasticDslContext;
 import io.github.iamazy.elasticsearch.dsl.sql.model.SqlCondition;
-import lombok.Getter;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.lucene.search.join.ScoreMode;
 import org.elasticsearch.index.query.BoolQueryBuilder;
 import org.elasticsearch.index.query.InnerHitBuilder;
+import org.elasticsearch.index.query.NestedQueryBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.search.fetch.subphase.highlight.HighlightBuilder;
 
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
 
 public class BoolExpressionParser {
 
-    private final TermLevelAtomicQueryParser termLevelAtomicQueryParser;
-    private final ScriptQueryParser scriptQueryParser;
-    private final FullTextQueryParser fullTextAtomQueryParser;
+    /**
+     * 所有查询方法(含别名)到解析器的索引,可通过META-INF/services/...MethodQueryParser扩展
+     */
+    private static final MethodExpressionRegistry<MethodQueryParser> METHOD_QUERY_PARSERS = MethodExpressionRegistry.load(
+            MethodQueryParser.class,
+            ImmutableList.of(
+                    new ScriptQueryParser(),
+                    new MatchPhraseQueryParser(),
+                    new MatchPhrasePrefixQueryParser(),
+                    new MatchQueryParser(),
+                    new MultiMatchQueryParser(),
+                    new QueryStringQueryParser(),
+                    new SimpleQueryStringQueryParser(),
+                    new MatchAllQueryParser(),
+                    new PrefixQueryParser(),
+                    new TermQueryParser(),
+                    new TermsQueryParser(),
+                    new WildcardQueryParser(),
+                    new RegexpQueryParser(),
+                    new FuzzyQueryParser(),
+                    new HasParentQueryParser(),
+                    new HasChildQueryParser(),
+                    new BoostingQueryParser(),
+                    new FunctionScoreQueryParser()
+            )
+    );
+
     private final BinaryQueryParser binaryQueryParser;
     private final InListQueryParser inListQueryParser;
     private final BetweenAndQueryParser betweenAndQueryParser;
 
-    private final JoinQueryParser joinAtomQueryParser;
-    private final ScoreQueryParser scoreQueryParser;
-
-    @Getter
-    private Set<String> highlighter;
+    /**
+     * 解析器无状态,可以在多个线程之间共享,高亮字段等写入每次解析的ElasticDslContext中
+     */
+    public static BoolExpressionParser getInstance() {
+        return SharedInstanceHolder.INSTANCE;
+    }
 
     public BoolExpressionParser() {
-        highlighter=new HashSet<>(0);
-        termLevelAtomicQueryParser = new TermLevelAtomicQueryParser();
-        fullTextAtomQueryParser = new FullTextQueryParser();
         binaryQueryParser = new BinaryQueryParser();
         inListQueryParser = new InListQueryParser();
         betweenAndQueryParser = new BetweenAndQueryParser();
-        scriptQueryParser = new ScriptQueryParser();
-        joinAtomQueryParser = new JoinQueryParser();
-        scoreQueryParser=new ScoreQueryParser();
     }
 
+    public static MethodExpressionRegistry<MethodQueryParser> getMethodQueryParsers() {
+        return METHOD_QUERY_PARSERS;
+    }
 
-    public BoolQueryBuilder parseBoolQueryExpr(SQLExpr conditionExpr, String queryAs) {
-        SqlCondition sqlCondition = recursiveParseBoolQueryExpr(conditionExpr, queryAs);
-        SqlBoolOperator operator = sqlCondition.getOperator();
 
-        if (SqlConditionType.Atom == sqlCondition.getConditionType()) {
-            operator = SqlBoolOperator.AND;
-        }
-        return mergeAtomicQuery(sqlCondition.getQueryList(), operator);
+    public BoolQueryBuilder parseBoolQueryExpr(SQLExpr conditionExpr, ElasticDslContext dslContext) {
+        return parseBoolQueryExpr(conditionExpr, dslContext.getQueryAs(), dslContext);
     }
 
-    private SqlCondition recursiveParseBoolQueryExpr(SQLExpr conditionExpr, String queryAs) {
-        if (conditionExpr instanceof SQLBinaryOpExpr) {
-            SQLBinaryOpExpr binOpExpr = (SQLBinaryOpExpr) conditionExpr;
-            SQLBinaryOperator binOperator = binOpExpr.getOperator();
+    public BoolQueryBuilder parseBoolQueryExpr(SQLExpr conditionExpr, String queryAs, ElasticDslContext dslContext) {
+        return parseBoolQueryExpr(conditionExpr, queryAs, true, dslContext);
+    }
 
-            if (SQLBinaryOperator.BooleanAnd == binOperator || SQLBinaryOperator.BooleanOr == binOperator) {
-                SqlBoolOperator operator = SQLBinaryOperator.BooleanAnd == binOperator ? SqlBoolOperator.AND : SqlBoolOperator.OR;
+    /**
+     * 解析不参与打分的条件(where条件最终放在filter中),优化器可以做更多的等价变换
+     */
+    public BoolQueryBuilder parseFilterBoolQueryExpr(SQLExpr conditionExpr, ElasticDslContext dslContext) {
+        return parseBoolQueryExpr(conditionExpr, dslContext.getQueryAs(), false, dslContext);
+    }
 
-                SqlCondition leftCondition = recursiveParseBoolQueryExpr(binOpExpr.getLeft(), queryAs);
-                SqlCondition rightCondition = recursiveParseBoolQueryExpr(binOpExpr.getRight(), queryAs);
+    /**
+     * @param scoring 条件是否参与打分,不打分时nested等查询使用ScoreMode.None
+     */
+    public BoolQueryBuilder parseBoolQueryExpr(SQLExpr conditionExpr, String queryAs, boolean scoring, ElasticDslContext dslContext) {
+        SqlCondition sqlCondition = compileBoolQueryExpr(conditionExpr, queryAs, scoring, dslContext);
+        SqlBoolOperator operator = sqlCondition.getOperator();
 
-                List<AtomicQuery> mergedQueryList = Lists.newArrayList();
-                combineQueryBuilder(mergedQueryList, leftCondition, operator);
-                combineQueryBuilder(mergedQueryList, rightCondition, operator);
+        if (SqlConditionType.Atom == sqlCondition.getConditionType()) {
+            operator = SqlBoolOperator.AND;
+        }
+        BoolQueryBuilder boolQuery = mergeAtomicQuery(sqlCondition.getQueryList(), operator, scoring, dslContext);
+        return dslContext.getQueryOptimizer().optimize(boolQuery, scoring);
+    }
 
-                return new SqlCondition(mergedQueryList, operator);
+    /**
+     * 使用显式栈编译AND/OR/NOT表达式,机器生成的上万个条件也不会栈溢出
+     * <p>
+     * Druid把a or b or c解析为左深树,连续相同的运算符一次展开为同一层,每个AtomicQuery只追加一次,
+     * 时间和内存都与表达式的大小成线性关系
+     */
+    private SqlCondition compileBoolQueryExpr(SQLExpr conditionExpr, String queryAs, boolean scoring, ElasticDslContext dslContext) {
+        BoolFrame root = new BoolFrame(null, false, scoring, Collections.singletonList(conditionExpr), dslContext);
+        Deque<BoolFrame> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            BoolFrame frame = stack.peek();
+            if (!frame.hasNext()) {
+                stack.pop();
+                if (frame != root) {
+                    stack.peek().combine(frame.toCondition());
+                }
+                continue;
+            }
+            SQLExpr expr = frame.next();
+            SqlBoolOperator operator = boolOperatorOf(expr);
+            if (operator != null) {
+                stack.push(new BoolFrame(operator, false, frame.scoring, flatten((SQLBinaryOpExpr) expr), dslContext));
+            }
+            else if (expr instanceof SQLNotExpr) {
+                //must_not中的子句不打分
+                stack.push(new BoolFrame(null, true, false, Collections.singletonList(((SQLNotExpr) expr).getExpr()), dslContext));
+            }
+            else {
+                frame.combine(new SqlCondition(parseAtomQueryCondition(expr, queryAs, frame.scoring, dslContext), SqlConditionType.Atom));
             }
         }
-        else if (conditionExpr instanceof SQLNotExpr) {
-            SqlCondition innerSQLCondition = recursiveParseBoolQueryExpr(((SQLNotExpr) conditionExpr).getExpr(), queryAs);
+        return root.toCondition();
+    }
 
-            SqlBoolOperator operator = innerSQLCondition.getOperator();
-            if (SqlConditionType.Atom == innerSQLCondition.getConditionType()) {
-                operator = SqlBoolOperator.AND;
+    private static SqlBoolOperator boolOperatorOf(SQLExpr expr) {
+        if (expr instanceof SQLBinaryOpExpr) {
+            SQLBinaryOperator binOperator = ((SQLBinaryOpExpr) expr).getOperator();
+            if (SQLBinaryOperator.BooleanAnd == binOperator) {
+                return SqlBoolOperator.AND;
+            }
+            if (SQLBinaryOperator.BooleanOr == binOperator) {
+                return SqlBoolOperator.OR;
             }
-
-            BoolQueryBuilder boolQuery = mergeAtomicQuery(innerSQLCondition.getQueryList(), operator);
-            boolQuery = QueryBuilders.boolQuery().mustNot(boolQuery);
-
-            return new SqlCondition(new AtomicQuery(boolQuery), SqlConditionType.Atom);
         }
-        return new SqlCondition(parseAtomQueryCondition(conditionExpr, queryAs), SqlConditionType.Atom);
+        return null;
     }
 
-    private AtomicQuery parseAtomQueryCondition(SQLExpr sqlConditionExpr, String queryAs) {
-        if (sqlConditionExpr instanceof SQLMethodInvokeExpr) {
-            SQLMethodInvokeExpr methodQueryExpr = (SQLMethodInvokeExpr) sqlConditionExpr;
-
-            MethodInvocation methodInvocation = new MethodInvocation(methodQueryExpr, queryAs);
-
-            if (scriptQueryParser.isMatchMethodInvocation(methodInvocation)) {
-                return scriptQueryParser.parseMethodQuery(methodInvocation);
+    /**
+     * 按从左到右的顺序展开运算符相同的连续AND/OR节点
+     */
+    private static List<SQLExpr> flatten(SQLBinaryOpExpr binOpExpr) {
+        SQLBinaryOperator binOperator = binOpExpr.getOperator();
+        List<SQLExpr> operands = new ArrayList<>();
+        Deque<SQLExpr> pending = new ArrayDeque<>();
+        pending.push(binOpExpr);
+        while (!pending.isEmpty()) {
+            SQLExpr expr = pending.pop();
+            if (expr instanceof SQLBinaryOpExpr && ((SQLBinaryOpExpr) expr).getOperator() == binOperator) {
+                pending.push(((SQLBinaryOpExpr) expr).getRight());
+                pending.push(((SQLBinaryOpExpr) expr).getLeft());
             }
-
-            if (fullTextAtomQueryParser.isFulltextAtomQuery(methodInvocation)) {
-                return fullTextAtomQueryParser.parseFullTextAtomQuery(methodQueryExpr, queryAs);
+            else {
+                operands.add(expr);
             }
+        }
+        return operands;
+    }
 
-            if (termLevelAtomicQueryParser.isTermLevelAtomQuery(methodInvocation)) {
-                return termLevelAtomicQueryParser.parseTermLevelAtomQuery(methodQueryExpr, queryAs);
-            }
+    private AtomicQuery parseAtomQueryCondition(SQLExpr sqlConditionExpr, String queryAs, boolean scoring, ElasticDslContext dslContext) {
+        if (sqlConditionExpr instanceof SQLMethodInvokeExpr) {
+            SQLMethodInvokeExpr methodQueryExpr = (SQLMethodInvokeExpr) sqlConditionExpr;
 
-            if (joinAtomQueryParser.isJoinAtomQuery(methodInvocation)) {
-                return joinAtomQueryParser.parseJoinAtomQuery(methodQueryExpr, queryAs);
-            }
+            MethodInvocation methodInvocation = new MethodInvocation(methodQueryExpr, queryAs, scoring, dslContext);
 
-            if(scoreQueryParser.isScoreAtomQuery(methodInvocation)){
-                return scoreQueryParser.parseScoreAtomQuery(methodQueryExpr,queryAs);
+            MethodQueryParser methodQueryParser = METHOD_QUERY_PARSERS.lookup(methodInvocation);
+            if (methodQueryParser != null) {
+                return methodQueryParser.parseMethodQuery(methodInvocation);
             }
+            throw new ElasticSql2DslException(
+                    String.format("[syntax error] Can not support method query expr[%s] condition", methodInvocation.getMethodName()));
         }
         else if (sqlConditionExpr instanceof SQLBinaryOpExpr) {
-            return binaryQueryParser.parseBinaryQuery((SQLBinaryOpExpr) sqlConditionExpr, queryAs);
+            return binaryQueryParser.parseBinaryQuery((SQLBinaryOpExpr) sqlConditionExpr, queryAs, dslContext);
         }
         else if (sqlConditionExpr instanceof SQLInListExpr) {
-            return inListQueryParser.parseInListQuery((SQLInListExpr) sqlConditionExpr, queryAs);
+            return inListQueryParser.parseInListQuery((SQLInListExpr) sqlConditionExpr, queryAs, dslContext.getParameters());
         }
         else if (sqlConditionExpr instanceof SQLBetweenExpr) {
-            return betweenAndQueryParser.parseBetweenAndQuery((SQLBetweenExpr) sqlConditionExpr, queryAs);
+            return betweenAndQueryParser.parseBetweenAndQuery((SQLBetweenExpr) sqlConditionExpr, queryAs, dslContext.getParameters());
         }
 
         throw new ElasticSql2DslException(String.format("[syntax error] Can not support query condition type[%s]", sqlConditionExpr.toString()));
     }
 
-    private void combineQueryBuilder(List<AtomicQuery> combiner, SqlCondition sqlCondition, SqlBoolOperator binOperator) {
-        if (SqlConditionType.Atom == sqlCondition.getConditionType() || sqlCondition.getOperator() == binOperator) {
-            combiner.addAll(sqlCondition.getQueryList());
-        }
-        else {
-            BoolQueryBuilder boolQuery = mergeAtomicQuery(sqlCondition.getQueryList(), sqlCondition.getOperator());
-            combiner.add(new AtomicQuery(boolQuery));
-        }
-    }
-
-    private BoolQueryBuilder mergeAtomicQuery(List<AtomicQuery> atomQueryList, SqlBoolOperator operator) {
+    private BoolQueryBuilder mergeAtomicQuery(List<AtomicQuery> atomQueryList, SqlBoolOperator operator, boolean scoring, ElasticDslContext dslContext) {
+        //不打分时nested查询不需要计算子文档的得分
+        ScoreMode scoreMode = scoring ? ScoreMode.Avg : ScoreMode.None;
+        //OR中文本和参数相同的match合并为一个multi_match
+        boolean mergeMatch = operator == SqlBoolOperator.OR && dslContext.getQueryOptimizer().isEnabled(BoolQueryRule.MERGE_MATCH);
         BoolQueryBuilder subBoolQuery = QueryBuilders.boolQuery();
-        ListMultimap<AtomicQuery, QueryBuilder> listMultiMap = ArrayListMultimap.create();
+        List<QueryBuilder> clauses = new ArrayList<>(atomQueryList.size());
+        NestedPathNode nestedRoot = new NestedPathNode(null);
 
         for (AtomicQuery atomQuery : atomQueryList) {
             if(CollectionUtils.isNotEmpty(atomQuery.getHighlighter())&&!atomQuery.isNestedQuery()){
-                highlighter.addAll(atomQuery.getHighlighter());
+                dslContext.getHighlighter().addAll(atomQuery.getHighlighter());
             }
             if (Boolean.FALSE == atomQuery.isNestedQuery()) {
-                if (operator == SqlBoolOperator.AND) {
-                    subBoolQuery.must(atomQuery.getQueryBuilder());
-                }
-                if (operator == SqlBoolOperator.OR) {
-                    subBoolQuery.should(atomQuery.getQueryBuilder());
-                }
+                clauses.add(atomQuery.getQueryBuilder());
             }
             else {
-                listMultiMap.put(atomQuery, atomQuery.getQueryBuilder());
-            }
-        }
-
-        for (AtomicQuery atomicQuery : listMultiMap.keySet()) {
-            List<QueryBuilder> nestedQueryList = listMultiMap.get(atomicQuery);
-            ArrayList<String> nestedDocPrefix=atomicQuery.getNestedQueryPath();
-            if (nestedQueryList.size() == 1) {
-                if (operator == SqlBoolOperator.AND) {
-                    if(nestedDocPrefix.size()==1) {
-                        if(CollectionUtils.isNotEmpty(atomicQuery.getHighlighter())){
-                            HighlightBuilder highlightBuilder= HighlightBuilders.highlighter(atomicQuery.getHighlighter());
-                            InnerHitBuilder innerHitBuilder=new InnerHitBuilder(atomicQuery.getQueryBuilder().getName()+"_highlighter").setHighlightBuilder(highlightBuilder);
-                            subBoolQuery.must(QueryBuilders.nestedQuery(nestedDocPrefix.get(0), nestedQueryList.get(0), ScoreMode.Avg).innerHit(innerHitBuilder));
-                        }else {
-                            subBoolQuery.must(QueryBuilders.nestedQuery(nestedDocPrefix.get(0), nestedQueryList.get(0), ScoreMode.Avg));
-                        }
-                    }else if(nestedDocPrefix.size()==2){
-                        if(CollectionUtils.isNotEmpty(atomicQuery.getHighlighter())){
-                            HighlightBuilder highlightBuilder= HighlightBuilders.highlighter(atomicQuery.getHighlighter());
-                            InnerHitBuilder innerHitBuilder=new InnerHitBuilder(atomicQuery.getQueryBuilder().getName()+"_highlighter").setHighlightBuilder(highlightBuilder);
-                            subBoolQuery.must(QueryBuilders.nestedQuery(nestedDocPrefix.get(0), QueryBuilders.nestedQuery(nestedDocPrefix.get(1), nestedQueryList.get(0), ScoreMode.Avg).innerHit(innerHitBuilder), ScoreMode.Avg));
-                        }else {
-                            subBoolQuery.must(QueryBuilders.nestedQuery(nestedDocPrefix.get(0), QueryBuilders.nestedQuery(nestedDocPrefix.get(1), nestedQueryList.get(0), ScoreMode.Avg), ScoreMode.Avg));
-                        }
-                    }
-                }
-                if (operator == SqlBoolOperator.OR) {
-                    if(nestedDocPrefix.size()==1) {
-                        if(CollectionUtils.isNotEmpty(atomicQuery.getHighlighter())){
-                            HighlightBuilder highlightBuilder= HighlightBuilders.highlighter(atomicQuery.getHighlighter());
-                            InnerHitBuilder innerHitBuilder=new InnerHitBuilder(atomicQuery.getQueryBuilder().getName()+"_highlighter").setHighlightBuilder(highlightBuilder);
-                            subBoolQuery.should(QueryBuilders.nestedQuery(nestedDocPrefix.get(0), nestedQueryList.get(0), ScoreMode.Avg).innerHit(innerHitBuilder));
-                        }else {
-                            subBoolQuery.should(QueryBuilders.nestedQuery(nestedDocPrefix.get(0), nestedQueryList.get(0), ScoreMode.Avg));
-                        }
-                    }else if(nestedDocPrefix.size()==2){
-                        if(CollectionUtils.isNotEmpty(atomicQuery.getHighlighter())){
-                            HighlightBuilder highlightBuilder= HighlightBuilders.highlighter(atomicQuery.getHighlighter());
-                            InnerHitBuilder innerHitBuilder=new InnerHitBuilder(atomicQuery.getQueryBuilder().queryName()+"_highlighter").setHighlightBuilder(highlightBuilder);
-                            subBoolQuery.should(QueryBuilders.nestedQuery(nestedDocPrefix.get(0), QueryBuilders.nestedQuery(nestedDocPrefix.get(1), nestedQueryList.get(0), ScoreMode.Avg).innerHit(innerHitBuilder), ScoreMode.Avg));
-                        }else {
-                            subBoolQuery.should(QueryBuilders.nestedQuery(nestedDocPrefix.get(0), QueryBuilders.nestedQuery(nestedDocPrefix.get(1), nestedQueryList.get(0), ScoreMode.Avg), ScoreMode.Avg));
-                        }
-                    }
-                }
-                continue;
+                nestedRoot.add(atomQuery);
             }
+        }
+        if (mergeMatch) {
+            clauses = MatchQueryMerger.merge(clauses);
+        }
+        clauses.forEach(clause -> addClause(subBoolQuery, clause, operator));
 
-            BoolQueryBuilder boolNestedQuery = QueryBuilders.boolQuery();
-            for (QueryBuilder nestedQueryItem : nestedQueryList) {
-                if (operator == SqlBoolOperator.AND) {
-                    boolNestedQuery.must(nestedQueryItem);
-                }
-                if (operator == SqlBoolOperator.OR) {
-                    boolNestedQuery.should(nestedQueryItem);
-                }
-            }
+        //同一nested path下的条件合并为一个nested查询,子path的nested查询嵌套在父path的nested查询中
+        for (NestedPathNode node : nestedRoot.children.values()) {
+            addClause(subBoolQuery, node.toNestedQuery(operator, scoreMode, mergeMatch), operator);
+        }
+        return subBoolQuery;
+    }
 
-            if (operator == SqlBoolOperator.AND) {
-                if(nestedDocPrefix.size()==1) {
-                    subBoolQuery.must(QueryBuilders.nestedQuery(nestedDocPrefix.get(0), boolNestedQuery, ScoreMode.Avg));
-                }else if(nestedDocPrefix.size()==2){
-                    subBoolQuery.must(QueryBuilders.nestedQuery(nestedDocPrefix.get(0), QueryBuilders.nestedQuery(nestedDocPrefix.get(1),boolNestedQuery,ScoreMode.Avg), ScoreMode.Avg));
-                }
+    private static void addClause(BoolQueryBuilder boolQuery, QueryBuilder clause, SqlBoolOperator operator) {
+        if (operator == SqlBoolOperator.AND) {
+            boolQuery.must(clause);
+        }
+        if (operator == SqlBoolOperator.OR) {
+            boolQuery.should(clause);
+        }
+    }
+
+    /**
+     * 编译栈中的一层: AND/OR展开后的操作数,NOT或者整个表达式(operator为null,只有一个操作数)
+     */
+    private class BoolFrame {
+        private final SqlBoolOperator operator;
+        private final boolean negated;
+        private final boolean scoring;
+        private final List<SQLExpr> operands;
+        private final ElasticDslContext dslContext;
+        private final List<AtomicQuery> queryList = new ArrayList<>();
+        private SqlCondition inner;
+        private int position;
+
+        private BoolFrame(SqlBoolOperator operator, boolean negated, boolean scoring, List<SQLExpr> operands, ElasticDslContext dslContext) {
+            this.operator = operator;
+            this.negated = negated;
+            this.scoring = scoring;
+            this.operands = operands;
+            this.dslContext = dslContext;
+        }
+
+        private boolean hasNext() {
+            return position < operands.size();
+        }
+
+        private SQLExpr next() {
+            return operands.get(position++);
+        }
+
+        /**
+         * 运算符相同的子条件直接追加,不同的先合并为一个bool查询
+         */
+        private void combine(SqlCondition sqlCondition) {
+            if (operator == null) {
+                inner = sqlCondition;
             }
-            if (operator == SqlBoolOperator.OR) {
-                if(nestedDocPrefix.size()==1) {
-                    subBoolQuery.should(QueryBuilders.nestedQuery(nestedDocPrefix.get(0), boolNestedQuery, ScoreMode.Avg));
-                }else if(nestedDocPrefix.size()==2){
-                    subBoolQuery.should(QueryBuilders.nestedQuery(nestedDocPrefix.get(0), QueryBuilders.nestedQuery(nestedDocPrefix.get(1),boolNestedQuery,ScoreMode.Avg), ScoreMode.Avg));
-                }
+            else if (SqlConditionType.Atom == sqlCondition.getConditionType() || sqlCondition.getOperator() == operator) {
+                queryList.addAll(sqlCondition.getQueryList());
             }
+            else {
+                BoolQueryBuilder boolQuery = mergeAtomicQuery(sqlCondition.getQueryList(), sqlCondition.getOperator(), scoring, dslContext);
+                queryList.add(new AtomicQuery(boolQuery));
+            }
+        }
 
+        private SqlCondition toCondition() {
+            if (operator != null) {
+                return new SqlCondition(queryList, operator);
+            }
+            if (!negated) {
+                return inner;
+            }
+            SqlBoolOperator innerOperator = inner.getOperator();
+            if (SqlConditionType.Atom == inner.getConditionType()) {
+                innerOperator = SqlBoolOperator.AND;
+            }
+            BoolQueryBuilder boolQuery = mergeAtomicQuery(inner.getQueryList(), innerOperator, false, dslContext);
+            return new SqlCondition(new AtomicQuery(QueryBuilders.boolQuery().mustNot(boolQuery)), SqlConditionType.Atom);
         }
-        return subBoolQuery;
     }
 
+    /**
+     * 按nested path组织的前缀树,每个节点对应一层nested path
+     */
+    private static class NestedPathNode {
+        private final String path;
+        private final List<QueryBuilder> queryList = new ArrayList<>();
+        private final Set<String> highlighter = new LinkedHashSet<>();
+        private final Map<String, NestedPathNode> children = new LinkedHashMap<>();
+
+        private NestedPathNode(String path) {
+            this.path = path;
+        }
 
+        private void add(AtomicQuery atomicQuery) {
+            NestedPathNode node = this;
+            for (String nestedPath : atomicQuery.getNestedQueryPath()) {
+                node = node.children.computeIfAbsent(nestedPath, NestedPathNode::new);
+            }
+            node.queryList.add(atomicQuery.getQueryBuilder());
+            node.highlighter.addAll(atomicQuery.getHighlighter());
+        }
+
+        private NestedQueryBuilder toNestedQuery(SqlBoolOperator operator, ScoreMode scoreMode, boolean mergeMatch) {
+            List<QueryBuilder> clauses = new ArrayList<>(mergeMatch ? MatchQueryMerger.merge(queryList) : queryList);
+            for (NestedPathNode child : children.values()) {
+                clauses.add(child.toNestedQuery(operator, scoreMode, mergeMatch));
+            }
+            QueryBuilder innerQuery;
+            if (clauses.size() == 1) {
+                innerQuery = clauses.get(0);
+            } else {
+                BoolQueryBuilder boolNestedQuery = QueryBuilders.boolQuery();
+                clauses.forEach(clause -> addClause(boolNestedQuery, clause, operator));
+                innerQuery = boolNestedQuery;
+            }
+            NestedQueryBuilder nestedQuery = QueryBuilders.nestedQuery(path, innerQuery, scoreMode);
+            if (!highlighter.isEmpty()) {
+                HighlightBuilder highlightBuilder = HighlightBuilders.highlighter(highlighter);
+                nestedQuery.innerHit(new InnerHitBuilder(path + "_highlighter").setHighlightBuilder(highlightBuilder));
+            }
+            return nestedQuery;
+        }
+    }
+
+    private static class SharedInstanceHolder {
+        private static final BoolExpressionParser INSTANCE = new BoolExpressionParser();
+    }
 }
@@ -22,10 +22,10 @@ public class QueryLimitSizeParser implements QueryParser {
         if (dslContext.getSqlObject() instanceof SQLQueryExpr) {
             ElasticSqlSelectQueryBlock queryBlock = (ElasticSqlSelectQueryBlock) ((SQLQueryExpr) dslContext.getSqlObject()).getSubQuery().getQuery();
             if (queryBlock.getLimit0() != null) {
-                Integer from = parseLimitInteger(queryBlock.getLimit0().getOffset());
+                Integer from = parseLimitInteger(queryBlock.getLimit0().getOffset(), dslContext);
                 dslContext.getParseResult().setFrom(from);
 
-                Integer size = parseLimitInteger(queryBlock.getLimit0().getRowCount());
+                Integer size = parseLimitInteger(queryBlock.getLimit0().getRowCount(), dslContext);
                 dslContext.getParseResult().setSize(size);
             } else {
                 dslContext.getParseResult().setFrom(0);
@@ -34,16 +34,16 @@ public class QueryLimitSizeParser implements QueryParser {
         }
     }
 
-    private Integer parseLimitInteger(SQLExpr limitInt) {
+    private Integer parseLimitInteger(SQLExpr limitInt, ElasticDslContext dslContext) {
         if (limitInt instanceof SQLIntegerExpr) {
             return ((SQLIntegerExpr) limitInt).getNumber().intValue();
         } else if (limitInt instanceof SQLVariantRefExpr) {
             SQLVariantRefExpr varLimitExpr = (SQLVariantRefExpr) limitInt;
-            Object targetVal = ElasticSqlArgConverter.convertSqlArg(varLimitExpr);
-            if (!(targetVal instanceof Integer)) {
+            Object targetVal = ElasticSqlArgConverter.convertSqlArg(varLimitExpr, dslContext.getParameters());
+            if (!(targetVal instanceof Long) || (Long) targetVal < 0) {
                 throw new ElasticSql2DslException("[syntax error] Sql limit expr should be a non-negative number");
             }
-            return Integer.valueOf(targetVal.toString());
+            return ((Long) targetVal).intValue();
         } else {
             throw new ElasticSql2DslException("[syntax error] Sql limit expr should be a non-negative number");
         }
@@ -17,10 +17,9 @@ public class QueryMatchConditionParser extends BoolExpressionParser implements Q
         if(dslContext.getSqlObject() instanceof SQLQueryExpr) {
             ElasticSqlSelectQueryBlock queryBlock = (ElasticSqlSelectQueryBlock) ((SQLQueryExpr) dslContext.getSqlObject()).getSubQuery().getQuery();
             if (queryBlock.getMatchQuery() != null) {
-                String queryAs = dslContext.getParseResult().getQueryAs();
-                BoolQueryBuilder matchQuery = parseBoolQueryExpr(queryBlock.getMatchQuery(), queryAs);
+                BoolQueryBuilder matchQuery = parseBoolQueryExpr(queryBlock.getMatchQuery(), dslContext);
+                matchQuery = dslContext.getQueryOptimizer().filterExactClauses(matchQuery);
                 dslContext.getParseResult().setMatchCondition(matchQuery);
-                dslContext.getParseResult().getHighlighter().addAll(this.getHighlighter());
             }
         }
     }
@@ -11,6 +11,7 @@ import com.google.common.collect.Lists;
 import io.github.iamazy.elasticsearch.dsl.sql.druid.ElasticSqlSelectQueryBlock;
 import io.github.iamazy.elasticsearch.dsl.sql.exception.ElasticSql2DslException;
 import io.github.iamazy.elasticsearch.dsl.sql.parser.query.method.MethodInvocation;
+import io.github.iamazy.elasticsearch.dsl.sql.parser.query.method.expr.MethodExpressionRegistry;
 import io.github.iamazy.elasticsearch.dsl.sql.parser.sql.sort.*;
 import io.github.iamazy.elasticsearch.dsl.sql.model.ElasticDslContext;
 import io.github.iamazy.elasticsearch.dsl.sql.model.ElasticSqlQueryField;
@@ -25,15 +26,20 @@ import java.util.List;
 public class QueryOrderConditionParser implements QueryParser {
 
 
-    private List<MethodSortParser> methodSortParsers;
-
-    public QueryOrderConditionParser() {
-
-        methodSortParsers = ImmutableList.of(
-                new NvlMethodSortParser(),
-                new ScriptMethodSortParser(),
-                new NestedSortMethodParser()
-        );
+    /**
+     * 排序方法(含别名)到解析器的索引,可通过META-INF/services/...MethodSortParser扩展
+     */
+    private static final MethodExpressionRegistry<MethodSortParser> METHOD_SORT_PARSERS = MethodExpressionRegistry.load(
+            MethodSortParser.class,
+            ImmutableList.of(
+                    new NvlMethodSortParser(),
+                    new ScriptMethodSortParser(),
+                    new NestedSortMethodParser()
+            )
+    );
+
+    public static MethodExpressionRegistry<MethodSortParser> getMethodSortParsers() {
+        return METHOD_SORT_PARSERS;
     }
 
     @Override
@@ -46,7 +52,7 @@ public class QueryOrderConditionParser implements QueryParser {
             String queryAs = dslContext.getParseResult().getQueryAs();
 
             for (SQLSelectOrderByItem orderByItem : sqlOrderBy.getItems()) {
-                SortBuilder orderBy = parseOrderCondition(orderByItem, queryAs);
+                SortBuilder orderBy = parseOrderCondition(orderByItem, queryAs, dslContext);
                 if (orderBy != null) {
                     orderByList.add(orderBy);
                 }
@@ -55,7 +61,7 @@ public class QueryOrderConditionParser implements QueryParser {
         }
     }
 
-    private SortBuilder parseOrderCondition(SQLSelectOrderByItem orderByItem, String queryAs) {
+    private SortBuilder parseOrderCondition(SQLSelectOrderByItem orderByItem, String queryAs, ElasticDslContext dslContext) {
 
         SortOrder order = orderByItem.getType() == SQLOrderingSpecification.ASC ? SortOrder.ASC : SortOrder.DESC;
 
@@ -66,11 +72,10 @@ public class QueryOrderConditionParser implements QueryParser {
         }
 
         if (ParseSortBuilderHelper.isMethodInvokeExpr(orderByItem.getExpr())) {
-            MethodInvocation sortMethodInvocation = new MethodInvocation((SQLMethodInvokeExpr) orderByItem.getExpr(), queryAs);
-            for (MethodSortParser methodSortParser : methodSortParsers) {
-                if (methodSortParser.isMatchMethodInvocation(sortMethodInvocation)) {
-                    return methodSortParser.parseMethodSortBuilder(sortMethodInvocation, order);
-                }
+            MethodInvocation sortMethodInvocation = new MethodInvocation((SQLMethodInvokeExpr) orderByItem.getExpr(), queryAs, false, dslContext);
+            MethodSortParser methodSortParser = METHOD_SORT_PARSERS.lookup(sortMethodInvocation);
+            if (methodSortParser != null) {
+                return methodSortParser.parseMethodSortBuilder(sortMethodInvocation, order);
             }
         }
 
@@ -28,7 +28,7 @@ public class QueryRoutingValParser implements QueryParser {
                     if (routingVal instanceof SQLCharExpr) {
                         routingStringValues.add(((SQLCharExpr) routingVal).getText());
                     } else if (routingVal instanceof SQLVariantRefExpr) {
-                        Object targetVal = ElasticSqlArgConverter.convertSqlArg(routingVal);
+                        Object targetVal = ElasticSqlArgConverter.convertSqlArg(routingVal, dslContext.getParameters());
                         routingStringValues.add(targetVal.toString());
                     } else {
                         throw new ElasticSql2DslException("[syntax error] Index routing val must be a string");
@@ -16,19 +16,16 @@ public class QueryWhereConditionParser extends BoolExpressionParser implements Q
 
         if(dslContext.getSqlObject() instanceof SQLDeleteStatement){
             SQLDeleteStatement sqlDeleteStatement = (SQLDeleteStatement) dslContext.getSqlObject();
-            String queryAs=dslContext.getParseResult().getQueryAs();
             SQLExpr sqlExpr=sqlDeleteStatement.getWhere();
-            BoolQueryBuilder matchQuery=parseBoolQueryExpr(sqlExpr,queryAs);
+            BoolQueryBuilder matchQuery=parseFilterBoolQueryExpr(sqlExpr,dslContext);
             dslContext.getParseResult().setMatchCondition(matchQuery);
         }
         if(dslContext.getSqlObject() instanceof SQLQueryExpr) {
             ElasticSqlSelectQueryBlock queryBlock = (ElasticSqlSelectQueryBlock) ((SQLQueryExpr) dslContext.getSqlObject()).getSubQuery().getQuery();
 
             if (queryBlock.getWhere() != null) {
-                String queryAs = dslContext.getParseResult().getQueryAs();
-                BoolQueryBuilder whereQuery = parseBoolQueryExpr(queryBlock.getWhere(), queryAs);
+                BoolQueryBuilder whereQuery = parseFilterBoolQueryExpr(queryBlock.getWhere(), dslContext);
                 dslContext.getParseResult().setWhereCondition(whereQuery);
-                dslContext.getParseResult().getHighlighter().addAll(this.getHighlighter());
             }
         }
     }
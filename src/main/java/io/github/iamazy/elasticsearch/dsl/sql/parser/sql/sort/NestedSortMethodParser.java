@@ -66,11 +66,9 @@ public class NestedSortMethodParser extends AbstractMethodSortParser {
             if (hasFilterExpr) {
                 SQLExpr filterExpr = invocation.getParameter(3);
 
-                BoolExpressionParser boolExpressionParser = new BoolExpressionParser();
-
                 String queryAs = invocation.getQueryAs();
 
-                filter = boolExpressionParser.parseBoolQueryExpr(filterExpr, queryAs);
+                filter = BoolExpressionParser.getInstance().parseBoolQueryExpr(filterExpr, queryAs, invocation.isScoring(), invocation.getContext());
             }
 
             if(sortField.getNestedDocContextPath().size()==1) {
@@ -0,0 +1,186 @@
+package io.github.iamazy.elasticsearch.dsl.plugin;
+
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.ParseField;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.xcontent.ContextParser;
+import org.elasticsearch.common.xcontent.DeprecationHandler;
+import org.elasticsearch.common.xcontent.NamedXContentRegistry;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.json.JsonXContent;
+import org.elasticsearch.search.aggregations.Aggregation;
+import org.elasticsearch.search.aggregations.bucket.nested.ParsedNested;
+import org.elasticsearch.search.aggregations.bucket.terms.ParsedLongTerms;
+import org.elasticsearch.search.aggregations.bucket.terms.ParsedStringTerms;
+import org.elasticsearch.search.aggregations.metrics.ParsedExtendedStats;
+import org.elasticsearch.search.aggregations.metrics.ParsedMax;
+import org.elasticsearch.search.aggregations.metrics.ParsedMin;
+import org.elasticsearch.search.aggregations.metrics.ParsedStats;
+import org.elasticsearch.search.aggregations.metrics.ParsedTDigestPercentiles;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @author iamazy
+ * @date 2019/5/21
+ * @descrition
+ **/
+public class SqlResponseWriterTest {
+
+    private static final NamedXContentRegistry REGISTRY = new NamedXContentRegistry(Arrays.asList(
+            aggregation("sterms", ParsedStringTerms::fromXContent),
+            aggregation("lterms", ParsedLongTerms::fromXContent),
+            aggregation("max", ParsedMax::fromXContent),
+            aggregation("min", ParsedMin::fromXContent),
+            aggregation("stats", ParsedStats::fromXContent),
+            aggregation("extended_stats", ParsedExtendedStats::fromXContent),
+            aggregation("tdigest_percentiles", ParsedTDigestPercentiles::fromXContent),
+            aggregation("nested", ParsedNested::fromXContent)));
+
+    private static final String HITS = "{\"took\":3,\"timed_out\":false,"
+            + "\"_shards\":{\"total\":1,\"successful\":1,\"skipped\":0,\"failed\":0},"
+            + "\"hits\":{\"total\":{\"value\":3,\"relation\":\"eq\"},\"max_score\":1.0,\"hits\":["
+            + "{\"_index\":\"fruits\",\"_type\":\"_doc\",\"_id\":\"1\",\"_score\":1.0,\"_source\":{\"name\":\"apple\",\"price\":{\"value\":5,\"currency\":\"CNY\"},\"tags\":[\"red\",\"sweet\"]}},"
+            + "{\"_index\":\"fruits\",\"_type\":\"_doc\",\"_id\":\"2\",\"_score\":1.0,\"_source\":{\"name\":\"pear\",\"price\":{\"value\":3}}},"
+            + "{\"_index\":\"fruits\",\"_type\":\"_doc\",\"_id\":\"3\",\"_score\":1.0,\"_source\":{\"name\":\"apple\",\"weight\":1.5}}"
+            + "]}}";
+
+    private static final String BUCKETS = "{\"took\":3,\"timed_out\":false,"
+            + "\"_shards\":{\"total\":1,\"successful\":1,\"skipped\":0,\"failed\":0},"
+            + "\"hits\":{\"total\":{\"value\":3,\"relation\":\"eq\"},\"max_score\":null,\"hits\":[]},"
+            + "\"aggregations\":{\"sterms#color\":{\"doc_count_error_upper_bound\":0,\"sum_other_doc_count\":0,\"buckets\":["
+            + "{\"key\":\"red\",\"doc_count\":2,\"max#max_price\":{\"value\":5.0},\"stats#price\":{\"count\":2,\"min\":3.0,\"max\":5.0,\"avg\":4.0,\"sum\":8.0}},"
+            + "{\"key\":\"green\",\"doc_count\":0,\"max#max_price\":{\"value\":null},\"stats#price\":{\"count\":0,\"min\":null,\"max\":null,\"avg\":null,\"sum\":0.0}}"
+            + "]}}}";
+
+    @Test
+    public void rowsHits() throws IOException {
+        Assert.assertEquals("{\"took\":3,\"timed_out\":false,\"total\":3,"
+                        + "\"columns\":[\"name\",\"price.value\"],"
+                        + "\"rows\":[[\"apple\",5],[\"pear\",3],[\"apple\",null]]}",
+                rows(HITS, Arrays.asList("name", "price.value")));
+    }
+
+    @Test
+    public void rowsSelectAll() throws IOException {
+        Assert.assertEquals("{\"took\":3,\"timed_out\":false,\"total\":3,"
+                        + "\"columns\":[\"name\",\"price.value\",\"price.currency\",\"tags\",\"weight\"],"
+                        + "\"rows\":[[\"apple\",5,\"CNY\",[\"red\",\"sweet\"],null],[\"pear\",3,null,null,null],[\"apple\",null,null,null,1.5]]}",
+                rows(HITS, Collections.emptyList()));
+    }
+
+    @Test
+    public void rowsWildcard() throws IOException {
+        Assert.assertEquals("{\"took\":3,\"timed_out\":false,\"total\":3,"
+                        + "\"columns\":[\"name\",\"price.value\",\"price.currency\"],"
+                        + "\"rows\":[[\"apple\",5,\"CNY\"],[\"pear\",3,null],[\"apple\",null,null]]}",
+                rows(HITS, Arrays.asList("name", "price.*")));
+    }
+
+    @Test
+    public void columnarHits() throws IOException {
+        //name中apple重复,按字典输出;price.currency只有一个字符串,没有重复,按值输出;price.value是数字
+        Assert.assertEquals("{\"took\":3,\"timed_out\":false,\"total\":3,\"size\":3,\"columns\":["
+                        + "{\"name\":\"name\",\"dictionary\":[\"apple\",\"pear\"],\"codes\":[0,1,0]},"
+                        + "{\"name\":\"price.value\",\"values\":[5,3,null]},"
+                        + "{\"name\":\"price.currency\",\"values\":[\"CNY\",null,null]}]}",
+                columnar(HITS, Arrays.asList("name", "price.*")));
+    }
+
+    @Test
+    public void columnarMixedTypes() throws IOException {
+        String json = "{\"took\":1,\"timed_out\":false,"
+                + "\"_shards\":{\"total\":1,\"successful\":1,\"skipped\":0,\"failed\":0},"
+                + "\"hits\":{\"total\":{\"value\":3,\"relation\":\"eq\"},\"max_score\":1.0,\"hits\":["
+                + "{\"_index\":\"fruits\",\"_type\":\"_doc\",\"_id\":\"1\",\"_score\":1.0,\"_source\":{\"code\":\"a\"}},"
+                + "{\"_index\":\"fruits\",\"_type\":\"_doc\",\"_id\":\"2\",\"_score\":1.0,\"_source\":{\"code\":\"a\"}},"
+                + "{\"_index\":\"fruits\",\"_type\":\"_doc\",\"_id\":\"3\",\"_score\":1.0,\"_source\":{\"code\":7}}"
+                + "]}}";
+        //出现非字符串的值时不做字典编码
+        Assert.assertEquals("{\"took\":1,\"timed_out\":false,\"total\":3,\"size\":3,\"columns\":["
+                        + "{\"name\":\"code\",\"values\":[\"a\",\"a\",7]}]}",
+                columnar(json, Collections.singletonList("code")));
+    }
+
+    @Test
+    public void rowsBuckets() throws IOException {
+        //没有文档的桶中max是-Infinity,stats的min/max/avg是Infinity/NaN,都输出null
+        Assert.assertEquals("{\"took\":3,\"timed_out\":false,\"total\":3,\"columns\":[],\"rows\":[],"
+                        + "\"aggregations\":{"
+                        + "\"columns\":[\"color\",\"max_price\",\"price.count\",\"price.min\",\"price.max\",\"price.avg\",\"price.sum\",\"doc_count\"],"
+                        + "\"rows\":[[\"red\",5.0,2,3.0,5.0,4.0,8.0,2],[\"green\",null,0,null,null,null,0.0,0]]}}",
+                rows(BUCKETS, Collections.emptyList()));
+    }
+
+    @Test
+    public void columnarBuckets() throws IOException {
+        Assert.assertEquals("{\"took\":3,\"timed_out\":false,\"total\":3,\"size\":0,\"columns\":[],"
+                        + "\"aggregations\":{\"size\":2,\"columns\":["
+                        + "{\"name\":\"color\",\"values\":[\"red\",\"green\"]},"
+                        + "{\"name\":\"max_price\",\"values\":[5.0,null]},"
+                        + "{\"name\":\"price.count\",\"values\":[2,0]},"
+                        + "{\"name\":\"price.min\",\"values\":[3.0,null]},"
+                        + "{\"name\":\"price.max\",\"values\":[5.0,null]},"
+                        + "{\"name\":\"price.avg\",\"values\":[4.0,null]},"
+                        + "{\"name\":\"price.sum\",\"values\":[8.0,0.0]},"
+                        + "{\"name\":\"doc_count\",\"values\":[2,0]}]}}",
+                columnar(BUCKETS, Collections.emptyList()));
+    }
+
+    @Test
+    public void rowsNestedBuckets() throws IOException {
+        String json = "{\"took\":3,\"timed_out\":false,"
+                + "\"_shards\":{\"total\":1,\"successful\":1,\"skipped\":0,\"failed\":0},"
+                + "\"hits\":{\"total\":{\"value\":4,\"relation\":\"eq\"},\"max_score\":null,\"hits\":[]},"
+                + "\"aggregations\":{\"nested#apples\":{\"doc_count\":4,"
+                + "\"lterms#year\":{\"doc_count_error_upper_bound\":0,\"sum_other_doc_count\":0,\"buckets\":["
+                + "{\"key\":2018,\"doc_count\":3,\"sterms#color\":{\"doc_count_error_upper_bound\":0,\"sum_other_doc_count\":0,\"buckets\":["
+                + "{\"key\":\"red\",\"doc_count\":2,\"min#min_price\":{\"value\":3.0}},{\"key\":\"green\",\"doc_count\":1,\"min#min_price\":{\"value\":4.0}}]}},"
+                + "{\"key\":2019,\"doc_count\":1,\"sterms#color\":{\"doc_count_error_upper_bound\":0,\"sum_other_doc_count\":0,\"buckets\":["
+                + "{\"key\":\"red\",\"doc_count\":1,\"min#min_price\":{\"value\":6.0}}]}}"
+                + "]}},"
+                + "\"tdigest_percentiles#latency\":{\"values\":{\"50.0\":12.5,\"99.0\":\"Infinity\"}},"
+                + "\"extended_stats#weight\":{\"count\":4,\"min\":1.0,\"max\":4.0,\"avg\":2.5,\"sum\":10.0,\"sum_of_squares\":30.0,\"variance\":1.25,\"std_deviation\":1.118,"
+                + "\"std_deviation_bounds\":{\"upper\":4.736,\"lower\":0.264}}}}";
+        //多值指标展开为<聚合名>.<指标名>,与桶同级的指标出现在每一行中
+        Assert.assertEquals("{\"took\":3,\"timed_out\":false,\"total\":4,\"columns\":[],\"rows\":[],"
+                        + "\"aggregations\":{"
+                        + "\"columns\":[\"latency.50.0\",\"latency.99.0\",\"weight.count\",\"weight.min\",\"weight.max\",\"weight.avg\",\"weight.sum\","
+                        + "\"weight.sum_of_squares\",\"weight.variance\",\"weight.std_deviation\",\"year\",\"color\",\"min_price\",\"doc_count\"],"
+                        + "\"rows\":["
+                        + "[12.5,null,4,1.0,4.0,2.5,10.0,30.0,1.25,1.118,2018,\"red\",3.0,2],"
+                        + "[12.5,null,4,1.0,4.0,2.5,10.0,30.0,1.25,1.118,2018,\"green\",4.0,1],"
+                        + "[12.5,null,4,1.0,4.0,2.5,10.0,30.0,1.25,1.118,2019,\"red\",6.0,1]]}}",
+                rows(json, Collections.emptyList()));
+    }
+
+    private static String rows(String json, List<String> selectFields) throws IOException {
+        XContentBuilder builder = XContentFactory.jsonBuilder();
+        SqlResponseWriter.writeRows(builder, response(json), new ArrayList<>(selectFields));
+        return Strings.toString(builder);
+    }
+
+    private static String columnar(String json, List<String> selectFields) throws IOException {
+        XContentBuilder builder = XContentFactory.jsonBuilder();
+        SqlResponseWriter.writeColumnar(builder, response(json), new ArrayList<>(selectFields));
+        return Strings.toString(builder);
+    }
+
+    private static SearchResponse response(String json) throws IOException {
+        try (XContentParser parser = JsonXContent.jsonXContent.createParser(REGISTRY, DeprecationHandler.THROW_UNSUPPORTED_OPERATION, json)) {
+            return SearchResponse.fromXContent(parser);
+        }
+    }
+
+    private static NamedXContentRegistry.Entry aggregation(String type, ContextParser<String, ? extends Aggregation> parser) {
+        return new NamedXContentRegistry.Entry(Aggregation.class, new ParseField(type), (p, c) -> parser.parse(p, (String) c));
+    }
+}
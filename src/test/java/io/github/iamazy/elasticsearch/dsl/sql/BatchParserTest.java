@@ -0,0 +1,52 @@
+package io.github.iamazy.elasticsearch.dsl.sql;
+
+import io.github.iamazy.elasticsearch.dsl.sql.batch.ElasticSqlBatchItem;
+import io.github.iamazy.elasticsearch.dsl.sql.batch.ElasticSqlBatchParser;
+import io.github.iamazy.elasticsearch.dsl.sql.batch.ElasticSqlBatchResult;
+import io.github.iamazy.elasticsearch.dsl.sql.exception.ElasticSql2DslException;
+import io.github.iamazy.elasticsearch.dsl.sql.model.ElasticSqlParseResult;
+import io.github.iamazy.elasticsearch.dsl.sql.parser.ElasticSql2DslParser;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author iamazy
+ * @date 2019/5/11
+ * @descrition
+ **/
+public class BatchParserTest {
+
+    @Test
+    public void ordered() {
+        List<String> sqls = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            if (i % 50 == 0) {
+                sqls.add("select * from fruit where");
+            } else {
+                sqls.add("select * from fruit where weight>" + i + " and match(h#name,'apple') limit 0," + (i % 100 + 1));
+            }
+        }
+        ElasticSql2DslParser sql2DslParser = new ElasticSql2DslParser();
+        try (ElasticSqlBatchParser batchParser = ElasticSqlBatchParser.builder().parallelism(4).threshold(8).build()) {
+            ElasticSqlBatchResult batchResult = batchParser.parse(sqls.stream());
+            Assert.assertEquals(500, batchResult.size());
+            Assert.assertEquals(10, batchResult.getFailureCount());
+            for (int i = 0; i < sqls.size(); i++) {
+                ElasticSqlBatchItem item = batchResult.getItems().get(i);
+                Assert.assertEquals(i, item.getIndex());
+                Assert.assertSame(sqls.get(i), item.getSql());
+                if (i % 50 == 0) {
+                    Assert.assertTrue(item.getFailure() instanceof ElasticSql2DslException);
+                } else {
+                    ElasticSqlParseResult expected = sql2DslParser.parse(sqls.get(i));
+                    ElasticSqlParseResult actual = item.getParseResult();
+                    Assert.assertEquals(expected.toDsl(expected.toRequest()), actual.toDsl(actual.toRequest()));
+                }
+            }
+            System.out.println(batchResult);
+        }
+    }
+}
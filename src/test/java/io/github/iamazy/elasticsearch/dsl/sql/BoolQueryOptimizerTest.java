@@ -0,0 +1,138 @@
+package io.github.iamazy.elasticsearch.dsl.sql;
+
+import io.github.iamazy.elasticsearch.dsl.sql.enums.BoolQueryRule;
+import io.github.iamazy.elasticsearch.dsl.sql.listener.ParseStageListener;
+import io.github.iamazy.elasticsearch.dsl.sql.model.ElasticSqlParseResult;
+import io.github.iamazy.elasticsearch.dsl.sql.optimizer.BoolQueryOptimizer;
+import io.github.iamazy.elasticsearch.dsl.sql.parser.ElasticSql2DslParser;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.index.query.RangeQueryBuilder;
+import org.elasticsearch.index.query.TermQueryBuilder;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+/**
+ * @author iamazy
+ * @date 2019/5/17
+ * @descrition
+ **/
+public class BoolQueryOptimizerTest {
+
+    private static final QueryBuilder A = QueryBuilders.termQuery("a", "1");
+    private static final QueryBuilder B = QueryBuilders.termQuery("b", "2");
+    private static final QueryBuilder C = QueryBuilders.matchQuery("c", "3");
+
+    @Test
+    public void flatten() {
+        BoolQueryBuilder query = QueryBuilders.boolQuery().must(QueryBuilders.boolQuery().must(A).must(B)).must(C);
+        assertDsl(QueryBuilders.boolQuery().must(A).must(B).must(C), BoolQueryOptimizer.DEFAULT.optimize(query, true));
+        assertDsl(query, BoolQueryOptimizer.DEFAULT.without(BoolQueryRule.FLATTEN).optimize(query, true));
+        //must中只有filter的bool得分为0,提升为filter
+        BoolQueryBuilder filterQuery = QueryBuilders.boolQuery().must(QueryBuilders.boolQuery().filter(A).filter(B)).must(C);
+        assertDsl(QueryBuilders.boolQuery().must(C).filter(A).filter(B), BoolQueryOptimizer.DEFAULT.optimize(filterQuery, true));
+    }
+
+    @Test
+    public void unwrapSingleClause() {
+        BoolQueryBuilder query = QueryBuilders.boolQuery().should(QueryBuilders.boolQuery().must(A)).should(C);
+        assertDsl(QueryBuilders.boolQuery().should(A).should(C), BoolQueryOptimizer.DEFAULT.optimize(query, true));
+        assertDsl(query, BoolQueryOptimizer.of(BoolQueryRule.FLATTEN).optimize(query, true));
+    }
+
+    @Test
+    public void mergeTerms() {
+        BoolQueryBuilder query = QueryBuilders.boolQuery()
+                .should(QueryBuilders.termQuery("name", "apple"))
+                .should(QueryBuilders.termQuery("price", 10))
+                .should(QueryBuilders.termQuery("name", "banana"))
+                .should(QueryBuilders.termsQuery("name", "apple", "pear"));
+        assertDsl(QueryBuilders.boolQuery()
+                        .should(QueryBuilders.termsQuery("name", Arrays.asList("apple", "banana", "pear")))
+                        .should(QueryBuilders.termQuery("price", 10)),
+                BoolQueryOptimizer.DEFAULT.optimize(query, false));
+        //打分时term和terms的得分不同,不合并
+        assertDsl(query, BoolQueryOptimizer.DEFAULT.optimize(query, true));
+        //minimum_should_match计数会改变,不合并
+        query.minimumShouldMatch(2);
+        assertDsl(query, BoolQueryOptimizer.DEFAULT.optimize(query, false));
+    }
+
+    @Test
+    public void mergeRanges() {
+        BoolQueryBuilder query = QueryBuilders.boolQuery()
+                .filter(QueryBuilders.rangeQuery("price").gte(10))
+                .filter(QueryBuilders.termQuery("name", "apple"))
+                .filter(QueryBuilders.rangeQuery("price").lt(20))
+                .filter(QueryBuilders.rangeQuery("price").gt(10.0).lte(30));
+        assertDsl(QueryBuilders.boolQuery()
+                        .filter(QueryBuilders.rangeQuery("price").gt(10.0).lt(20))
+                        .filter(QueryBuilders.termQuery("name", "apple")),
+                BoolQueryOptimizer.DEFAULT.optimize(query, true));
+        assertDsl(query, BoolQueryOptimizer.DEFAULT.without(BoolQueryRule.MERGE_RANGES).optimize(query, true));
+        //无法比较大小的边界不合并
+        BoolQueryBuilder incomparable = QueryBuilders.boolQuery()
+                .filter(QueryBuilders.rangeQuery("name").gte("a"))
+                .filter(QueryBuilders.rangeQuery("name").gte("b"));
+        assertDsl(incomparable, BoolQueryOptimizer.DEFAULT.optimize(incomparable, false));
+    }
+
+    @Test
+    public void mergeDateRanges() {
+        BoolQueryBuilder whereCondition = new ElasticSql2DslParser()
+                .parse("select * from fruits where ts between '2019-01-01' and '2019-03-01' and ts > '2019-02-01 12:00:00' and price >= 10 and price < 20")
+                .getWhereCondition();
+        Assert.assertEquals(2, whereCondition.must().size());
+        RangeQueryBuilder tsRange = (RangeQueryBuilder) whereCondition.must().get(0);
+        Assert.assertFalse(tsRange.includeLower());
+        Assert.assertTrue(tsRange.includeUpper());
+        Assert.assertTrue(tsRange.from().toString().startsWith("2019-02-01T12:00:00"));
+        Assert.assertTrue(tsRange.to().toString().startsWith("2019-03-01T00:00:00"));
+    }
+
+    @Test
+    public void dedupe() {
+        BoolQueryBuilder query = QueryBuilders.boolQuery().must(C).must(C).filter(A).filter(A);
+        assertDsl(QueryBuilders.boolQuery().must(C).must(C).filter(A), BoolQueryOptimizer.DEFAULT.optimize(query, true));
+        assertDsl(QueryBuilders.boolQuery().must(C).filter(A), BoolQueryOptimizer.DEFAULT.optimize(query, false));
+    }
+
+    @Test
+    public void doubleNegation() {
+        BoolQueryBuilder query = QueryBuilders.boolQuery().mustNot(QueryBuilders.boolQuery().mustNot(A)).must(C);
+        assertDsl(QueryBuilders.boolQuery().must(C).filter(A), BoolQueryOptimizer.DEFAULT.optimize(query, true));
+        assertDsl(query, BoolQueryOptimizer.DEFAULT.without(BoolQueryRule.DOUBLE_NEGATION).optimize(query, true));
+    }
+
+    @Test
+    public void keepShouldSemantics() {
+        //提升must_not后父bool没有must/filter,should会从可选变为必须匹配
+        BoolQueryBuilder query = QueryBuilders.boolQuery().must(QueryBuilders.boolQuery().mustNot(A)).should(B).should(C);
+        assertDsl(query, BoolQueryOptimizer.DEFAULT.optimize(query, false));
+    }
+
+    @Test
+    public void sql() {
+        ElasticSqlParseResult parseResult = new ElasticSql2DslParser()
+                .parse("select * from fruits where name='apple' or name='banana' or name='pear'");
+        assertDsl(QueryBuilders.boolQuery().should(QueryBuilders.termsQuery("name", Arrays.asList("apple", "banana", "pear"))),
+                parseResult.getWhereCondition());
+
+        parseResult = new ElasticSql2DslParser().parse("select * from fruits where not (name != 'apple') and price > 10");
+        BoolQueryBuilder whereCondition = parseResult.getWhereCondition();
+        Assert.assertEquals(1, whereCondition.must().size());
+        Assert.assertEquals(1, whereCondition.filter().size());
+        Assert.assertTrue(whereCondition.filter().get(0) instanceof TermQueryBuilder);
+
+        ElasticSqlParseResult unoptimized = new ElasticSql2DslParser(ParseStageListener.NOOP, BoolQueryOptimizer.NONE)
+                .parse("select * from fruits where name='apple' or name='banana' or name='pear'");
+        Assert.assertEquals(3, unoptimized.getWhereCondition().should().size());
+    }
+
+    private static void assertDsl(QueryBuilder expected, QueryBuilder actual) {
+        Assert.assertEquals(expected.toString(), actual.toString());
+    }
+}
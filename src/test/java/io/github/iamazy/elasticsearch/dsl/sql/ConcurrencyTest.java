@@ -0,0 +1,78 @@
+package io.github.iamazy.elasticsearch.dsl.sql;
+
+import io.github.iamazy.elasticsearch.dsl.sql.model.ElasticSqlParseResult;
+import io.github.iamazy.elasticsearch.dsl.sql.parser.ElasticSql2DslParser;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多个线程共享同一个解析器,结果需要与单线程解析一致
+ *
+ * @author iamazy
+ * @date 2019/5/9
+ * @descrition
+ **/
+public class ConcurrencyTest {
+
+    private static final String[] SQLS = new String[]{
+            "select * from fruit where match(h#$aaaaa.bb,'fdsfdsfdsf') and fuzzy(h#bbb,'fdsfdf') and h#name is not null and color is not null group by terms(weight,5000),terms(category,100) limit 0,0",
+            "select * from fruit query match(h#name,'苹果','prefix_length:21,boost:2.0f') and term(weight,80)",
+            "select * from fruit where has_child('apple',h#price in (10,20,30),1,4)",
+            "select * from fruit query boosting(h#name='apple',h#weight>100,0.2)",
+            "select * from fruit where match_phrase(name,'苹果') or match_phrase(h#$aaa$bbb.mac,'0x10192j') order by lastModified desc limit 0,10",
+            "select * from aa where bb not like '%dfs_fsdf%' and cc in (1,2,3,4) order by nvl(weight,0) asc",
+            "select * from regions group by terms(country)>terms(province)"
+    };
+
+    @Test
+    public void sharedParser() throws Exception {
+        ElasticSql2DslParser sql2DslParser = new ElasticSql2DslParser();
+        List<String> expectedDsl = new ArrayList<>(SQLS.length);
+        List<Set<String>> expectedHighlighter = new ArrayList<>(SQLS.length);
+        for (String sql : SQLS) {
+            ElasticSqlParseResult parseResult = sql2DslParser.parse(sql);
+            expectedDsl.add(parseResult.toPrettyDsl(parseResult.toRequest()));
+            expectedHighlighter.add(new HashSet<>(parseResult.getHighlighter()));
+        }
+
+        int threads = 16;
+        int rounds = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> futures = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            final int offset = t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                int mismatch = 0;
+                for (int i = 0; i < rounds; i++) {
+                    int idx = (offset + i) % SQLS.length;
+                    ElasticSqlParseResult parseResult = sql2DslParser.parse(SQLS[idx]);
+                    if (!expectedDsl.get(idx).equals(parseResult.toPrettyDsl(parseResult.toRequest()))
+                            || !expectedHighlighter.get(idx).equals(parseResult.getHighlighter())) {
+                        mismatch++;
+                    }
+                }
+                return mismatch;
+            }));
+        }
+        start.countDown();
+        int mismatch = 0;
+        for (Future<Integer> future : futures) {
+            mismatch += future.get();
+        }
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        Assert.assertEquals(0, mismatch);
+    }
+}
@@ -0,0 +1,92 @@
+package io.github.iamazy.elasticsearch.dsl.sql;
+
+import io.github.iamazy.elasticsearch.dsl.sql.enums.BoolQueryRule;
+import io.github.iamazy.elasticsearch.dsl.sql.listener.ParseStageListener;
+import io.github.iamazy.elasticsearch.dsl.sql.model.ElasticSqlPlan;
+import io.github.iamazy.elasticsearch.dsl.sql.optimizer.BoolQueryOptimizer;
+import io.github.iamazy.elasticsearch.dsl.sql.parser.ElasticSql2DslParser;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.MatchNoneQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+
+/**
+ * @author iamazy
+ * @date 2019/5/19
+ * @descrition
+ **/
+public class ContradictionTest {
+
+    private static final BoolQueryOptimizer OPTIMIZER = BoolQueryOptimizer.DEFAULT.with(BoolQueryRule.CONTRADICTION);
+
+    private final ElasticSql2DslParser parser = new ElasticSql2DslParser(ParseStageListener.NOOP, OPTIMIZER);
+
+    @Test
+    public void contradiction() {
+        Assert.assertTrue(plan("select * from fruits where status='A' and status='B'").isEmpty());
+        Assert.assertTrue(plan("select * from fruits where price > 10 and price < 5").isEmpty());
+        Assert.assertTrue(plan("select * from fruits where price > 10 and price = 5").isEmpty());
+        Assert.assertTrue(plan("select * from fruits where color is null and color = 'red'").isEmpty());
+        Assert.assertTrue(plan("select * from fruits where status in ('A','B') and status = 'C'").isEmpty());
+        Assert.assertTrue(plan("select * from fruits where (status='A' and status='B') or (price > 10 and price < 5)").isEmpty());
+        Assert.assertTrue(plan("select * from fruits query match(name,'apple') where name = 'apple' and name != 'apple'").isEmpty());
+
+        Assert.assertFalse(plan("select * from fruits where status in ('A','B') and status = 'B'").isEmpty());
+        Assert.assertFalse(plan("select * from fruits where price >= 10 and price <= 10").isEmpty());
+        Assert.assertFalse(plan("select * from fruits where status='A' or status='B'").isEmpty());
+    }
+
+    @Test
+    public void emptyTerms() {
+        BoolQueryBuilder query = QueryBuilders.boolQuery()
+                .filter(QueryBuilders.termsQuery("id", Collections.emptyList()))
+                .filter(QueryBuilders.termQuery("name", "apple"));
+        Assert.assertTrue(BoolQueryOptimizer.isEmpty(OPTIMIZER.optimize(query, false)));
+        //not in ()对结果没有影响
+        query = QueryBuilders.boolQuery()
+                .filter(QueryBuilders.termQuery("name", "apple"))
+                .mustNot(QueryBuilders.termsQuery("id", Collections.emptyList()));
+        Assert.assertEquals(QueryBuilders.boolQuery().filter(QueryBuilders.termQuery("name", "apple")),
+                OPTIMIZER.optimize(query, false));
+    }
+
+    @Test
+    public void tautology() {
+        ElasticSqlPlan plan = plan("select * from fruits where color is null or color is not null");
+        Assert.assertFalse(plan.isEmpty());
+        Assert.assertFalse(plan.getWhereCondition().hasClauses());
+
+        plan = plan("select * from fruits where price > 10 and (color is null or color is not null)");
+        Assert.assertEquals(1, plan.getWhereCondition().must().size());
+    }
+
+    @Test
+    public void localResponse() throws IOException {
+        ElasticSqlPlan plan = plan("select * from fruits where status='A' and status='B'");
+        Assert.assertTrue(plan.toRequest().source().query() instanceof MatchNoneQueryBuilder);
+        //不会访问ES
+        Assert.assertTrue(plan.canRespondLocally());
+        SearchResponse response = plan.toResponse(null, null);
+        Assert.assertEquals(0, response.getHits().getHits().length);
+        //有聚合时仍然需要请求ES
+        Assert.assertFalse(plan("select * from fruits where status='A' and status='B' group by terms(color)").canRespondLocally());
+    }
+
+    @Test
+    public void disabledByDefault() {
+        //多值字段上tags='a' and tags='b'可以匹配,默认不能当作矛盾在本地返回空结果
+        ElasticSqlPlan plan = new ElasticSql2DslParser().parse("select * from fruits where tags='a' and tags='b'").toPlan();
+        Assert.assertFalse(plan.isEmpty());
+        Assert.assertFalse(plan.canRespondLocally());
+        Assert.assertFalse(BoolQueryOptimizer.DEFAULT.isEnabled(BoolQueryRule.CONTRADICTION));
+    }
+
+    private ElasticSqlPlan plan(String sql) {
+        return parser.parse(sql).toPlan();
+    }
+}
@@ -0,0 +1,66 @@
+package io.github.iamazy.elasticsearch.dsl.sql;
+
+import io.github.iamazy.elasticsearch.dsl.cons.CoreConstants;
+import io.github.iamazy.elasticsearch.dsl.sql.model.ElasticSqlParseResult;
+import io.github.iamazy.elasticsearch.dsl.sql.parser.ElasticSql2DslParser;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * @author iamazy
+ * @date 2019/5/14
+ * @descrition
+ **/
+public class DateParseTest {
+
+    private static String expected(String pattern, String date) throws Exception {
+        Date parsed = new SimpleDateFormat(pattern).parse(date);
+        return new SimpleDateFormat(CoreConstants.DEFAULT_ES_DATE_FORMAT).format(parsed);
+    }
+
+    private static String dsl(String sql, Object... parameters) {
+        ElasticSql2DslParser sql2DslParser = new ElasticSql2DslParser();
+        ElasticSqlParseResult parseResult = sql2DslParser.prepare(sql).bind(parameters);
+        return parseResult.toDsl(parseResult.toRequest());
+    }
+
+    @Test
+    public void literal() throws Exception {
+        Assert.assertTrue(dsl("select * from fruit where lastModified>'2019-05-14 13:20:01'")
+                .contains(expected("yyyy-MM-dd HH:mm:ss", "2019-05-14 13:20:01")));
+        Assert.assertTrue(dsl("select * from fruit where lastModified>'2019-05-14 13:20'")
+                .contains(expected("yyyy-MM-dd HH:mm", "2019-05-14 13:20")));
+        Assert.assertTrue(dsl("select * from fruit where lastModified>'2019-05-14'")
+                .contains(expected("yyyy-MM-dd", "2019-05-14")));
+        //超出范围的字段与SimpleDateFormat一样进位
+        Assert.assertTrue(dsl("select * from fruit where lastModified>'2019-02-30'")
+                .contains(expected("yyyy-MM-dd", "2019-02-30")));
+        //不是日期的字符串保持原样
+        Assert.assertTrue(dsl("select * from fruit where name='2019-05-1a'").contains("2019-05-1a"));
+    }
+
+    @Test
+    public void dateMethod() throws Exception {
+        Assert.assertTrue(dsl("select * from fruit where lastModified>date('yyyy/MM/dd HH:mm','2019/05/14 13:20')")
+                .contains(expected("yyyy/MM/dd HH:mm", "2019/05/14 13:20")));
+        Assert.assertTrue(dsl("select * from fruit where lastModified>date('dd MMM yyyy','14 May 2019')")
+                .contains(expected("dd MMM yyyy", "14 May 2019")));
+    }
+
+    @Test
+    public void boundDate() throws Exception {
+        Date now = new Date();
+        Assert.assertTrue(dsl("select * from fruit where lastModified>?", now)
+                .contains(new SimpleDateFormat(CoreConstants.DEFAULT_ES_DATE_FORMAT).format(now)));
+    }
+
+    @Test
+    public void dateRangeAgg() {
+        String dsl = dsl("select * from fruit group by range(lastModified,segment('2019-01-01','2019-02-01'),segment('2019-02-01 00:00:00','2019-03-01 12:00'))");
+        Assert.assertTrue(dsl.contains("[2019-01-01 00:00:00]-[2019-02-01 00:00:00]"));
+        Assert.assertTrue(dsl.contains("[2019-02-01 00:00:00]-[2019-03-01 12:00:00]"));
+    }
+}
@@ -0,0 +1,56 @@
+package io.github.iamazy.elasticsearch.dsl.sql;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.github.iamazy.elasticsearch.dsl.cons.CoreConstants;
+import io.github.iamazy.elasticsearch.dsl.sql.model.ElasticSqlParseResult;
+import io.github.iamazy.elasticsearch.dsl.sql.parser.ElasticSql2DslParser;
+import org.elasticsearch.action.search.SearchRequest;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @author iamazy
+ * @date 2019/5/15
+ * @descrition
+ **/
+public class DslRenderTest {
+
+    private static final String SQL = "select * from fruits query match(h#productName,'苹果') where price between 10 and 20 and name in ('a','b') order by price desc limit 0,10";
+
+    @Test
+    public void prettyDsl() throws IOException {
+        ElasticSqlParseResult parseResult = new ElasticSql2DslParser().parse(SQL);
+        SearchRequest searchRequest = parseResult.toRequest();
+        String prettyDsl = parseResult.toPrettyDsl(searchRequest);
+        System.out.println(prettyDsl);
+        Assert.assertTrue(prettyDsl.contains("\n"));
+        Assert.assertEquals(readTree(parseResult.toDsl(searchRequest)), readTree(prettyDsl));
+    }
+
+    @Test
+    public void writeDsl() throws IOException {
+        ElasticSqlParseResult parseResult = new ElasticSql2DslParser().parse(SQL);
+        SearchRequest searchRequest = parseResult.toRequest();
+        JsonNode expected = readTree(parseResult.toDsl(searchRequest));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        parseResult.writeDsl(searchRequest, out, false);
+        //输出流没有被关闭,还可以继续写入
+        out.write('\n');
+        Assert.assertEquals(expected, readTree(new String(out.toByteArray(), StandardCharsets.UTF_8)));
+
+        StringWriter writer = new StringWriter();
+        parseResult.writeDsl(searchRequest, writer, true);
+        Assert.assertEquals(expected, readTree(writer.toString()));
+        Assert.assertTrue(writer.toString().contains("苹果"));
+    }
+
+    private static JsonNode readTree(String dsl) throws IOException {
+        return CoreConstants.OBJECT_MAPPER.readTree(dsl);
+    }
+}
@@ -0,0 +1,55 @@
+package io.github.iamazy.elasticsearch.dsl.sql;
+
+import io.github.iamazy.elasticsearch.dsl.sql.fingerprint.ElasticSqlFingerprint;
+import io.github.iamazy.elasticsearch.dsl.sql.parser.ElasticSql2DslParser;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+/**
+ * @author iamazy
+ * @date 2019/5/15
+ * @descrition
+ **/
+public class FingerprintTest {
+
+    private final ElasticSql2DslParser parser = new ElasticSql2DslParser();
+
+    @Test
+    public void sameShape() {
+        ElasticSqlFingerprint first = parser.fingerprint("select * from fruits where name='apple' and price>10 and termsQuery(tag,'a','b') limit 0,10");
+        ElasticSqlFingerprint second = parser.fingerprint("SELECT *   FROM fruits\n WHERE terms(tag,'c','d') AND price > 25.5 AND name = 'banana' LIMIT 20, 10");
+        System.out.println(first);
+        Assert.assertEquals(first, second);
+        Assert.assertEquals(first.getHash(), second.getHash());
+        Assert.assertEquals(Arrays.asList("a", "b", 0, 10), first.getLiterals().subList(2, 6));
+    }
+
+    @Test
+    public void inList() {
+        ElasticSqlFingerprint first = parser.fingerprint("select * from fruits where id in (1,2,3)");
+        ElasticSqlFingerprint second = parser.fingerprint("select * from fruits where id in (4)");
+        Assert.assertEquals(first.getHash(), second.getHash());
+        Assert.assertEquals(3, first.getLiterals().size());
+    }
+
+    @Test
+    public void differentShape() {
+        ElasticSqlFingerprint and = parser.fingerprint("select * from fruits where name='apple' and price>10");
+        ElasticSqlFingerprint or = parser.fingerprint("select * from fruits where name='apple' or price>10");
+        ElasticSqlFingerprint field = parser.fingerprint("select * from fruits where name='apple' and weight>10");
+        ElasticSqlFingerprint order = parser.fingerprint("select * from fruits where name='apple' and price>10 order by price desc");
+        Assert.assertNotEquals(and.getHash(), or.getHash());
+        Assert.assertNotEquals(and.getHash(), field.getHash());
+        Assert.assertNotEquals(and.getHash(), order.getHash());
+    }
+
+    @Test
+    public void delete() {
+        ElasticSqlFingerprint first = parser.fingerprint("delete from fruits where name='apple' limit 10");
+        ElasticSqlFingerprint second = parser.prepare("delete from fruits where name=? limit ?").fingerprint();
+        Assert.assertEquals(first.getShape(), second.getShape());
+        Assert.assertTrue(second.getLiterals().isEmpty());
+    }
+}
@@ -0,0 +1,59 @@
+package io.github.iamazy.elasticsearch.dsl.sql;
+
+import io.github.iamazy.elasticsearch.dsl.sql.parser.ElasticSql2DslParser;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.index.query.TermsQueryBuilder;
+import org.elasticsearch.indices.TermsLookup;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author iamazy
+ * @date 2019/5/20
+ * @descrition
+ **/
+public class InListQueryTest {
+
+    private final ElasticSql2DslParser parser = new ElasticSql2DslParser();
+
+    @Test
+    public void sortAndDedupe() {
+        Assert.assertEquals(QueryBuilders.termsQuery("id", new Object[]{1L, 2L, 3L}),
+                parser.parse("select * from fruits where id in (3,1,2,3,1)").getWhereCondition().must().get(0));
+        Assert.assertEquals(QueryBuilders.termsQuery("name", "apple", "pear"),
+                parser.parse("select * from fruits where name in ('pear','apple','pear')").getWhereCondition().must().get(0));
+        Assert.assertEquals(QueryBuilders.termsQuery("price", new Object[]{1.5, 2L}),
+                parser.parse("select * from fruits where price in (1.5,2,1.5)").getWhereCondition().must().get(0));
+        Assert.assertEquals(QueryBuilders.termsQuery("id", new Object[]{1L, 2L}),
+                parser.prepare("select * from fruits where id in (?,?,?)").bind(2, 1, 2).getWhereCondition().must().get(0));
+    }
+
+    @Test
+    public void termsLookup() {
+        BoolQueryBuilder whereCondition = parser.parse("select * from fruits where id in (lookup('users','1','fruit_ids')) " +
+                "and color not in (terms_lookup('users','2','colors','r1'))").getWhereCondition();
+        Assert.assertEquals(QueryBuilders.termsLookupQuery("id", new TermsLookup("users", "1", "fruit_ids")),
+                whereCondition.must().get(0));
+        Assert.assertEquals(QueryBuilders.termsLookupQuery("color", new TermsLookup("users", "2", "colors").routing("r1")),
+                whereCondition.mustNot().get(0));
+    }
+
+    @Test
+    public void chunk() {
+        int count = 70000;
+        StringBuilder ids = new StringBuilder();
+        for (int i = count; i > 0; i--) {
+            ids.append(i == count ? "" : ",").append(i);
+        }
+        BoolQueryBuilder whereCondition = parser.parse("select * from fruits where id in (" + ids + ")").getWhereCondition();
+        BoolQueryBuilder chunks = (BoolQueryBuilder) whereCondition.must().get(0);
+        Assert.assertEquals(2, chunks.should().size());
+        Assert.assertEquals(65536, ((TermsQueryBuilder) chunks.should().get(0)).values().size());
+        Assert.assertEquals(1L, ((TermsQueryBuilder) chunks.should().get(0)).values().get(0));
+        Assert.assertEquals(count - 65536, ((TermsQueryBuilder) chunks.should().get(1)).values().size());
+
+        whereCondition = parser.parse("select * from fruits where id not in (" + ids + ")").getWhereCondition();
+        Assert.assertEquals(2, whereCondition.mustNot().size());
+    }
+}
@@ -0,0 +1,74 @@
+package io.github.iamazy.elasticsearch.dsl.sql;
+
+import io.github.iamazy.elasticsearch.dsl.sql.listener.ParseStageListener;
+import io.github.iamazy.elasticsearch.dsl.sql.optimizer.BoolQueryOptimizer;
+import io.github.iamazy.elasticsearch.dsl.sql.parser.ElasticSql2DslParser;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.index.query.TermsQueryBuilder;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author iamazy
+ * @date 2019/5/19
+ * @descrition
+ **/
+public class LargePredicateTest {
+
+    private static final int COUNT = 10000;
+
+    @Test
+    public void largeOr() {
+        BoolQueryBuilder whereCondition = new ElasticSql2DslParser(ParseStageListener.NOOP, BoolQueryOptimizer.NONE)
+                .parse(generated("or", "=")).getWhereCondition();
+        Assert.assertEquals(COUNT, whereCondition.should().size());
+        Assert.assertEquals(QueryBuilders.termQuery("field0", 0L), whereCondition.should().get(0));
+        Assert.assertEquals(QueryBuilders.termQuery("field99", COUNT - 1L), whereCondition.should().get(COUNT - 1));
+
+        //同一字段的term合并为terms
+        whereCondition = new ElasticSql2DslParser().parse(generated("or", "=")).getWhereCondition();
+        Assert.assertEquals(100, whereCondition.should().size());
+        Assert.assertEquals(COUNT / 100, ((TermsQueryBuilder) whereCondition.should().get(0)).values().size());
+    }
+
+    @Test
+    public void largeAnd() {
+        BoolQueryBuilder whereCondition = new ElasticSql2DslParser(ParseStageListener.NOOP, BoolQueryOptimizer.NONE)
+                .parse(generated("and", "!=")).getWhereCondition();
+        Assert.assertEquals(COUNT, whereCondition.must().size());
+
+        whereCondition = new ElasticSql2DslParser().parse(generated("and", "!=")).getWhereCondition();
+        Assert.assertEquals(100, whereCondition.mustNot().size());
+    }
+
+    @Test
+    public void mixed() {
+        StringBuilder sql = new StringBuilder("select * from fruit where ");
+        for (int i = 0; i < COUNT; i++) {
+            if (i > 0) {
+                sql.append(" and ");
+            }
+            sql.append("(color='red' or not weight>").append(i).append(")");
+        }
+        BoolQueryBuilder whereCondition = new ElasticSql2DslParser(ParseStageListener.NOOP, BoolQueryOptimizer.NONE)
+                .parse(sql.toString()).getWhereCondition();
+        Assert.assertEquals(COUNT, whereCondition.must().size());
+        BoolQueryBuilder orQuery = (BoolQueryBuilder) whereCondition.must().get(COUNT - 1);
+        Assert.assertEquals(QueryBuilders.termQuery("color", "red"), orQuery.should().get(0));
+        BoolQueryBuilder notQuery = (BoolQueryBuilder) orQuery.should().get(1);
+        Assert.assertEquals(QueryBuilders.boolQuery().must(QueryBuilders.rangeQuery("weight").gt(COUNT - 1L)),
+                notQuery.mustNot().get(0));
+    }
+
+    private static String generated(String operator, String comparison) {
+        StringBuilder sql = new StringBuilder("select * from fruit where ");
+        for (int i = 0; i < COUNT; i++) {
+            if (i > 0) {
+                sql.append(' ').append(operator).append(' ');
+            }
+            sql.append("field").append(i % 100).append(comparison).append(i);
+        }
+        return sql.toString();
+    }
+}
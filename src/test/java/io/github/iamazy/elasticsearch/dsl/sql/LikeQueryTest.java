@@ -0,0 +1,64 @@
+package io.github.iamazy.elasticsearch.dsl.sql;
+
+import io.github.iamazy.elasticsearch.dsl.sql.helper.ElasticSqlLikeHelper;
+import io.github.iamazy.elasticsearch.dsl.sql.model.ElasticSqlParseResult;
+import io.github.iamazy.elasticsearch.dsl.sql.parser.ElasticSql2DslParser;
+import org.elasticsearch.index.query.*;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author iamazy
+ * @date 2019/5/18
+ * @descrition
+ **/
+public class LikeQueryTest {
+
+    @Test
+    public void planner() {
+        Assert.assertEquals(QueryBuilders.termQuery("name", "abc"), ElasticSqlLikeHelper.buildLikeQuery("name", "abc"));
+        Assert.assertEquals(QueryBuilders.prefixQuery("name", "abc"), ElasticSqlLikeHelper.buildLikeQuery("name", "abc%"));
+        Assert.assertEquals(QueryBuilders.prefixQuery("name", "abc"), ElasticSqlLikeHelper.buildLikeQuery("name", "abc%%"));
+        Assert.assertEquals(QueryBuilders.wildcardQuery("name", "a*b?c"), ElasticSqlLikeHelper.buildLikeQuery("name", "a%b_c"));
+        Assert.assertEquals(QueryBuilders.wildcardQuery("name", "abc?"), ElasticSqlLikeHelper.buildLikeQuery("name", "abc_"));
+        Assert.assertEquals(QueryBuilders.existsQuery("name"), ElasticSqlLikeHelper.buildLikeQuery("name", "%"));
+        Assert.assertEquals(QueryBuilders.regexpQuery("name", "ab.*c"), ElasticSqlLikeHelper.buildLikeQuery("name", "ab.*c"));
+        Assert.assertEquals(QueryBuilders.regexpQuery("name", "[0-9]+"), ElasticSqlLikeHelper.buildLikeQuery("name", "[0-9]+"));
+    }
+
+    @Test
+    public void escape() {
+        Assert.assertEquals(QueryBuilders.termQuery("name", "100%"), ElasticSqlLikeHelper.buildLikeQuery("name", "100\\%"));
+        Assert.assertEquals(QueryBuilders.prefixQuery("name", "a_b"), ElasticSqlLikeHelper.buildLikeQuery("name", "a\\_b%"));
+        //like中的*是普通字符,'*a%'是前缀查询
+        Assert.assertEquals(QueryBuilders.prefixQuery("name", "*a"), ElasticSqlLikeHelper.buildLikeQuery("name", "*a%"));
+        Assert.assertEquals(QueryBuilders.termQuery("name", "a.b"), ElasticSqlLikeHelper.buildLikeQuery("name", "a.b"));
+    }
+
+    @Test
+    public void leadingWildcard() {
+        Assert.assertTrue(ElasticSqlLikeHelper.isLeadingWildcard("%abc"));
+        Assert.assertTrue(ElasticSqlLikeHelper.isLeadingWildcard("_abc"));
+        Assert.assertTrue(ElasticSqlLikeHelper.isLeadingWildcard(".*abc"));
+        Assert.assertFalse(ElasticSqlLikeHelper.isLeadingWildcard("abc%"));
+        Assert.assertFalse(ElasticSqlLikeHelper.isLeadingWildcard("\\%abc"));
+        Assert.assertFalse(ElasticSqlLikeHelper.isLeadingWildcard("%"));
+    }
+
+    @Test
+    public void sql() {
+        ElasticSql2DslParser parser = new ElasticSql2DslParser();
+        ElasticSqlParseResult parseResult = parser.parse("select * from fruits where h#name like 'apple%' and $product.name not like '%pear'");
+        BoolQueryBuilder whereCondition = parseResult.getWhereCondition();
+        Assert.assertEquals(QueryBuilders.prefixQuery("name", "apple"), whereCondition.must().get(0));
+        NestedQueryBuilder nestedQuery = (NestedQueryBuilder) whereCondition.must().get(1);
+        Assert.assertEquals(QueryBuilders.wildcardQuery("product.name", "*pear"), ((BoolQueryBuilder) nestedQuery.query()).mustNot().get(0));
+        Assert.assertTrue(parseResult.getHighlighter().contains("name"));
+        Assert.assertTrue(parseResult.toPlan().hasLeadingWildcard());
+        Assert.assertTrue(parseResult.getLeadingWildcardFields().contains("product.name"));
+
+        Assert.assertFalse(parser.parse("select * from fruits where name like 'apple%'").toPlan().hasLeadingWildcard());
+        Assert.assertEquals(QueryBuilders.prefixQuery("name", "apple"),
+                parser.prepare("select * from fruits where name like ?").bind("apple%").getWhereCondition().must().get(0));
+    }
+}
@@ -0,0 +1,53 @@
+package io.github.iamazy.elasticsearch.dsl.sql;
+
+import io.github.iamazy.elasticsearch.dsl.sql.enums.BoolQueryRule;
+import io.github.iamazy.elasticsearch.dsl.sql.listener.ParseStageListener;
+import io.github.iamazy.elasticsearch.dsl.sql.model.ElasticSqlParseResult;
+import io.github.iamazy.elasticsearch.dsl.sql.optimizer.BoolQueryOptimizer;
+import io.github.iamazy.elasticsearch.dsl.sql.parser.ElasticSql2DslParser;
+import org.elasticsearch.index.query.*;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author iamazy
+ * @date 2019/5/18
+ * @descrition
+ **/
+public class MatchMergeTest {
+
+    private final ElasticSql2DslParser parser = new ElasticSql2DslParser();
+
+    @Test
+    public void merge() {
+        ElasticSqlParseResult parseResult = parser.parse("select * from fruits query match(h#title,'apple') or match(body,'apple','boost:2.0') or match(tags,'apple') or match(title,'pear')");
+        BoolQueryBuilder matchCondition = parseResult.getMatchCondition();
+        Assert.assertEquals(2, matchCondition.should().size());
+        MultiMatchQueryBuilder multiMatchQuery = (MultiMatchQueryBuilder) matchCondition.should().get(0);
+        Assert.assertEquals(MultiMatchQueryBuilder.Type.MOST_FIELDS, multiMatchQuery.type());
+        Assert.assertEquals("apple", multiMatchQuery.value());
+        Assert.assertEquals(3, multiMatchQuery.fields().size());
+        Assert.assertEquals(2.0f, multiMatchQuery.fields().get("body"), 0.0f);
+        Assert.assertEquals(1.0f, multiMatchQuery.fields().get("title"), 0.0f);
+        Assert.assertTrue(matchCondition.should().get(1) instanceof MatchQueryBuilder);
+        Assert.assertTrue(parseResult.getHighlighter().contains("title"));
+    }
+
+    @Test
+    public void differentOptions() {
+        BoolQueryBuilder matchCondition = parser.parse("select * from fruits query match(title,'apple','operator:and') or match(body,'apple')").getMatchCondition();
+        Assert.assertEquals(2, matchCondition.should().size());
+        Assert.assertTrue(matchCondition.should().get(0) instanceof MatchQueryBuilder);
+
+        //AND中的match不合并
+        matchCondition = parser.parse("select * from fruits query match(title,'apple') and match(body,'apple')").getMatchCondition();
+        Assert.assertEquals(2, matchCondition.must().size());
+    }
+
+    @Test
+    public void disabled() {
+        BoolQueryBuilder matchCondition = new ElasticSql2DslParser(ParseStageListener.NOOP, BoolQueryOptimizer.DEFAULT.without(BoolQueryRule.MERGE_MATCH))
+                .parse("select * from fruits query match(title,'apple') or match(body,'apple')").getMatchCondition();
+        Assert.assertEquals(2, matchCondition.should().size());
+    }
+}
@@ -0,0 +1,48 @@
+package io.github.iamazy.elasticsearch.dsl.sql;
+
+import com.google.common.collect.ImmutableList;
+import io.github.iamazy.elasticsearch.dsl.sql.exception.ElasticSql2DslException;
+import io.github.iamazy.elasticsearch.dsl.sql.model.ElasticSqlParseResult;
+import io.github.iamazy.elasticsearch.dsl.sql.parser.ElasticSql2DslParser;
+import io.github.iamazy.elasticsearch.dsl.sql.parser.query.method.MethodQueryParser;
+import io.github.iamazy.elasticsearch.dsl.sql.parser.query.method.expr.MethodExpressionRegistry;
+import io.github.iamazy.elasticsearch.dsl.sql.parser.query.method.term.TermQueryParser;
+import io.github.iamazy.elasticsearch.dsl.sql.parser.sql.BoolExpressionParser;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author iamazy
+ * @date 2019/5/10
+ * @descrition
+ **/
+public class MethodRegistryTest {
+
+    @Test
+    public void lookup() {
+        MethodExpressionRegistry<MethodQueryParser> registry = BoolExpressionParser.getMethodQueryParsers();
+        Assert.assertSame(registry.lookup("match_phrase"), registry.lookup("MATCH_PHRASE"));
+        Assert.assertSame(registry.lookup("termsQuery"), registry.lookup("terms_query"));
+        Assert.assertSame(registry.lookup("termsquery"), registry.lookup("terms"));
+        Assert.assertNull(registry.lookup("not_exists"));
+    }
+
+    @Test
+    public void ignoreCase() {
+        ElasticSql2DslParser sql2DslParser = new ElasticSql2DslParser();
+        ElasticSqlParseResult lower = sql2DslParser.parse("select * from fruit where match_phrase(name,'apple') and terms(color,'red','green') group by top_hits(3) order by nvl(price,0) asc");
+        ElasticSqlParseResult upper = sql2DslParser.parse("select * from fruit where MATCH_PHRASE(name,'apple') and TermsQuery(color,'red','green') group by TOP_HITS(3) order by NVL(price,0) asc");
+        Assert.assertEquals(lower.toDsl(lower.toRequest()), upper.toDsl(upper.toRequest()));
+    }
+
+    @Test(expected = ElasticSql2DslException.class)
+    public void unknownMethod() {
+        ElasticSql2DslParser sql2DslParser = new ElasticSql2DslParser();
+        sql2DslParser.parse("select * from fruit where not_exists(name,'apple')");
+    }
+
+    @Test(expected = ElasticSql2DslException.class)
+    public void duplicateMethod() {
+        MethodExpressionRegistry.load(MethodQueryParser.class, ImmutableList.of(new TermQueryParser(), new TermQueryParser()));
+    }
+}
@@ -0,0 +1,50 @@
+package io.github.iamazy.elasticsearch.dsl.sql;
+
+import io.github.iamazy.elasticsearch.dsl.sql.parser.ElasticSql2DslParser;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.NestedQueryBuilder;
+import org.elasticsearch.index.query.RangeQueryBuilder;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author iamazy
+ * @date 2019/5/18
+ * @descrition
+ **/
+public class NestedQueryTest {
+
+    private final ElasticSql2DslParser parser = new ElasticSql2DslParser();
+
+    @Test
+    public void samePath() {
+        BoolQueryBuilder whereCondition = parser.parse("select * from fruits where $product.name='apple' and weight > 1 and $product.price > 10 and $product.color='red'").getWhereCondition();
+        Assert.assertEquals(2, whereCondition.must().size());
+        Assert.assertTrue(whereCondition.must().get(0) instanceof RangeQueryBuilder);
+        NestedQueryBuilder nestedQuery = (NestedQueryBuilder) whereCondition.must().get(1);
+        Assert.assertEquals(3, ((BoolQueryBuilder) nestedQuery.query()).must().size());
+
+        whereCondition = parser.parse("select * from fruits where $product.name='apple' or $product.name='banana'").getWhereCondition();
+        Assert.assertEquals(1, whereCondition.should().size());
+        nestedQuery = (NestedQueryBuilder) whereCondition.should().get(0);
+        Assert.assertEquals(2, ((BoolQueryBuilder) nestedQuery.query()).should().size());
+    }
+
+    @Test
+    public void childPath() {
+        BoolQueryBuilder whereCondition = parser.parse("select * from fruits where $product.name='apple' and $product$apple.color='red' and $product$apple.price > 10").getWhereCondition();
+        Assert.assertEquals(1, whereCondition.must().size());
+        NestedQueryBuilder nestedQuery = (NestedQueryBuilder) whereCondition.must().get(0);
+        BoolQueryBuilder productQuery = (BoolQueryBuilder) nestedQuery.query();
+        Assert.assertEquals(2, productQuery.must().size());
+        NestedQueryBuilder appleQuery = (NestedQueryBuilder) productQuery.must().get(1);
+        Assert.assertEquals(2, ((BoolQueryBuilder) appleQuery.query()).must().size());
+    }
+
+    @Test
+    public void highlighter() {
+        BoolQueryBuilder whereCondition = parser.parse("select * from fruits where h#$product.name='apple' and $product.price > 10").getWhereCondition();
+        NestedQueryBuilder nestedQuery = (NestedQueryBuilder) whereCondition.must().get(0);
+        Assert.assertEquals("product_highlighter", nestedQuery.innerHit().getName());
+    }
+}
@@ -0,0 +1,119 @@
+package io.github.iamazy.elasticsearch.dsl.sql;
+
+import io.github.iamazy.elasticsearch.dsl.sql.cache.ElasticSqlParseCache;
+import io.github.iamazy.elasticsearch.dsl.sql.cache.ElasticSqlParseCacheStats;
+import io.github.iamazy.elasticsearch.dsl.sql.exception.ElasticSql2DslException;
+import io.github.iamazy.elasticsearch.dsl.sql.model.ElasticSqlParseResult;
+import io.github.iamazy.elasticsearch.dsl.sql.parser.ElasticSql2DslParser;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author iamazy
+ * @date 2019/5/6
+ * @descrition
+ **/
+public class ParseCacheTest {
+
+    @Test
+    public void hit(){
+        ElasticSqlParseCache parseCache = ElasticSqlParseCache.builder().maximumSize(10).build();
+        ElasticSqlParseResult first = parseCache.parse("select * from fruits where name='apple' and price>10 order by price desc limit 0,20");
+        ElasticSqlParseResult second = parseCache.parse("  select *  from fruits\n where name='apple' and price>10 order by price desc limit 0,20 ");
+        second.setSize(100);
+        ElasticSqlParseResult third = parseCache.parse("select * from fruits where name='apple' and price>10 order by price desc limit 0,20");
+        Assert.assertEquals(first.toDsl(first.toRequest()), third.toDsl(third.toRequest()));
+        ElasticSqlParseCacheStats stats = parseCache.stats();
+        Assert.assertEquals(1, stats.getSize());
+        Assert.assertEquals(2, stats.getHitCount());
+        Assert.assertEquals(1, stats.getMissCount());
+        Assert.assertEquals(20, parseCache.toRequest("select * from fruits where name='apple' and price>10 order by price desc limit 0,20").source().size());
+        System.out.println(first.toPrettyDsl(first.toRequest()));
+    }
+
+    @Test
+    public void negative(){
+        ElasticSqlParseCache parseCache = ElasticSqlParseCache.builder().build();
+        String sql = "select * from fruits where";
+        List<ElasticSql2DslException> failures = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            try {
+                parseCache.parse(sql);
+                Assert.fail();
+            } catch (ElasticSql2DslException ex) {
+                failures.add(ex);
+            }
+        }
+        Assert.assertEquals(1, parseCache.stats().getNegativeSize());
+        Assert.assertEquals(2, parseCache.stats().getNegativeHitCount());
+        //每次抛出的都是新的异常
+        Assert.assertNotSame(failures.get(1), failures.get(2));
+        Assert.assertEquals(failures.get(0).getMessage(), failures.get(2).getMessage());
+    }
+
+    @Test
+    public void eviction(){
+        ElasticSqlParseCache parseCache = ElasticSqlParseCache.builder().maximumWeight(60).concurrencyLevel(1).build();
+        for (int i = 0; i < 10; i++) {
+            parseCache.parse("select * from fruits where id=" + i);
+        }
+        Assert.assertTrue(parseCache.stats().getEvictionCount() > 0);
+    }
+
+    @Test
+    public void memoryBytes(){
+        ElasticSqlParseCache parseCache = ElasticSqlParseCache.builder().maximumMemoryBytes(2048).concurrencyLevel(1).build();
+        for (int i = 0; i < 20; i++) {
+            parseCache.parse("select * from fruits where id=" + i);
+        }
+        Assert.assertTrue(parseCache.stats().getEvictionCount() > 0);
+        Assert.assertTrue(parseCache.stats().getSize() < 20);
+
+        //0表示不缓存
+        parseCache = ElasticSqlParseCache.builder().maximumMemoryBytes(0).build();
+        parseCache.parse("select * from fruits where id=1");
+        parseCache.parse("select * from fruits where id=1");
+        Assert.assertEquals(0, parseCache.stats().getSize());
+        Assert.assertEquals(0, parseCache.stats().getHitCount());
+    }
+
+    @Test
+    public void concurrentMiss() throws Exception {
+        AtomicInteger parseCount = new AtomicInteger();
+        ElasticSql2DslParser parser = new ElasticSql2DslParser() {
+            @Override
+            public ElasticSqlParseResult parse(String sql) throws ElasticSql2DslException {
+                parseCount.incrementAndGet();
+                return super.parse(sql);
+            }
+        };
+        ElasticSqlParseCache parseCache = ElasticSqlParseCache.builder().parser(parser).build();
+        String sql = "select * from fruits where name='apple' and price>10";
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<ElasticSqlParseResult>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                return parseCache.parse(sql);
+            }));
+        }
+        start.countDown();
+        //同一条SQL只解析一次,其余线程等待它的结果
+        String dsl = futures.get(0).get().toDsl(futures.get(0).get().toRequest());
+        for (Future<ElasticSqlParseResult> future : futures) {
+            Assert.assertEquals(dsl, future.get().toDsl(future.get().toRequest()));
+        }
+        executor.shutdown();
+        Assert.assertEquals(1, parseCount.get());
+    }
+}
@@ -0,0 +1,38 @@
+package io.github.iamazy.elasticsearch.dsl.sql;
+
+import io.github.iamazy.elasticsearch.dsl.sql.listener.ParseStageListener;
+import io.github.iamazy.elasticsearch.dsl.sql.listener.ParseStageMetrics;
+import io.github.iamazy.elasticsearch.dsl.sql.listener.ParseStageSnapshot;
+import io.github.iamazy.elasticsearch.dsl.sql.model.ElasticSqlParseResult;
+import io.github.iamazy.elasticsearch.dsl.sql.parser.ElasticSql2DslParser;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Map;
+
+/**
+ * @author iamazy
+ * @date 2019/5/13
+ * @descrition
+ **/
+public class ParseStageMetricsTest {
+
+    @Test
+    public void stages() {
+        ParseStageMetrics metrics = new ParseStageMetrics();
+        ElasticSql2DslParser sql2DslParser = new ElasticSql2DslParser(metrics);
+        for (int i = 0; i < 10; i++) {
+            ElasticSqlParseResult parseResult = sql2DslParser.parse("select * from fruit where weight>" + i + " group by terms(color) limit 0,10");
+            parseResult.toRequest();
+        }
+        Map<String, ParseStageSnapshot> snapshots = metrics.snapshot();
+        Assert.assertEquals(10, snapshots.get(ParseStageListener.STAGE_LEX).getCount());
+        Assert.assertEquals(10, snapshots.get("QueryWhereConditionParser").getCount());
+        Assert.assertEquals(10, snapshots.get("GroupByAggregationParser").getCount());
+        Assert.assertEquals(10, snapshots.get(ParseStageListener.STAGE_TO_REQUEST).getCount());
+        ParseStageSnapshot lex = snapshots.get(ParseStageListener.STAGE_LEX);
+        Assert.assertTrue(lex.percentileNanos(0.5) <= lex.percentileNanos(0.99));
+        Assert.assertTrue(lex.percentileNanos(0.99) <= lex.getMaxNanos());
+        snapshots.values().forEach(System.out::println);
+    }
+}
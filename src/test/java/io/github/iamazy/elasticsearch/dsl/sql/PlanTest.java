@@ -0,0 +1,88 @@
+package io.github.iamazy.elasticsearch.dsl.sql;
+
+import io.github.iamazy.elasticsearch.dsl.sql.model.ElasticSqlParseResult;
+import io.github.iamazy.elasticsearch.dsl.sql.model.ElasticSqlPlan;
+import io.github.iamazy.elasticsearch.dsl.sql.parser.ElasticSql2DslParser;
+import org.elasticsearch.action.search.SearchRequest;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * @author iamazy
+ * @date 2019/5/16
+ * @descrition
+ **/
+public class PlanTest {
+
+    private static final String SQL = "select * from fruits where name='apple' and price>10 order by price desc routing by 'r1' limit 0,20";
+
+    @Test
+    public void override() {
+        ElasticSqlPlan plan = new ElasticSql2DslParser().parse(SQL).toPlan();
+        ElasticSqlPlan page = plan.withFrom(40).withSize(10);
+        ElasticSqlPlan scroll = plan.withScroll("1m", null);
+
+        Assert.assertEquals(0, plan.toRequest().source().from());
+        Assert.assertEquals(20, plan.toRequest().source().size());
+        Assert.assertEquals(40, page.toRequest().source().from());
+        Assert.assertEquals(10, page.toRequest().source().size());
+        Assert.assertNull(plan.toRequest().scroll());
+        Assert.assertEquals("1m", scroll.toRequest().scroll().keepAlive().getStringRep());
+        Assert.assertSame(plan, plan.withSize(20));
+        Assert.assertEquals(plan.toRequest().source().query(), page.toRequest().source().query());
+    }
+
+    @Test
+    public void immutable() {
+        ElasticSqlParseResult parseResult = new ElasticSql2DslParser().parse(SQL);
+        ElasticSqlPlan plan = parseResult.toPlan();
+        String dsl = plan.toDsl();
+        //修改解析结果和生成的请求都不会影响计划
+        parseResult.setSize(100);
+        parseResult.getHighlighter().add("name");
+        SearchRequest searchRequest = plan.toRequest();
+        searchRequest.source().size(1);
+        searchRequest.indices("vegetables");
+        Assert.assertEquals(dsl, plan.toRequest().source().toString());
+        Assert.assertArrayEquals(new String[]{"fruits"}, plan.toRequest().indices());
+        //解析结果只编译一次计划,之后的修改不再生效,需要修改时从计划拷贝出新的解析结果
+        Assert.assertSame(plan, parseResult.toPlan());
+        Assert.assertEquals(20, parseResult.toRequest().source().size());
+        ElasticSqlParseResult copy = plan.toParseResult();
+        copy.setSize(100);
+        Assert.assertEquals(100, copy.toRequest().source().size());
+    }
+
+    @Test
+    public void concurrent() throws Exception {
+        ElasticSqlPlan plan = new ElasticSql2DslParser().parse(SQL).toPlan();
+        String expected = plan.toRequest().source().toString();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                int from = i;
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < 100; j++) {
+                        if (!expected.equals(plan.toRequest().source().toString())
+                                || plan.withFrom(from).toRequest().source().from() != from) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> future : futures) {
+                Assert.assertTrue(future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package io.github.iamazy.elasticsearch.dsl.sql;
+
+import io.github.iamazy.elasticsearch.dsl.sql.exception.ElasticSql2DslException;
+import io.github.iamazy.elasticsearch.dsl.sql.model.ElasticSqlParseResult;
+import io.github.iamazy.elasticsearch.dsl.sql.parser.ElasticSql2DslParser;
+import io.github.iamazy.elasticsearch.dsl.sql.parser.ElasticSqlPreparedStatement;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author iamazy
+ * @date 2019/5/8
+ * @descrition
+ **/
+public class PreparedStatementTest {
+
+    @Test
+    public void bind(){
+        ElasticSql2DslParser elasticSql2DslParser=new ElasticSql2DslParser();
+        ElasticSqlPreparedStatement statement = elasticSql2DslParser.prepare("select * from fruits where name=? and price between ? and ? limit ?,?");
+        Assert.assertEquals(5, statement.getParameterCount());
+        SearchRequest apple = statement.bindRequest("apple", 10, 20.5, 0, 10);
+        SearchRequest banana = statement.bindRequest("banana", 1, 2, 10, 30);
+
+        ElasticSqlParseResult expected = elasticSql2DslParser.parse("select * from fruits where name='apple' and price between 10 and 20.5 limit 0,10");
+        Assert.assertEquals(expected.toDsl(expected.toRequest()), apple.source().toString());
+        Assert.assertEquals(10, banana.source().from());
+        Assert.assertEquals(30, banana.source().size());
+        ElasticSqlParseResult expectedBanana = elasticSql2DslParser.parse("select * from fruits where name='banana' and price between 1 and 2 limit 10,30");
+        Assert.assertEquals(expectedBanana.toRequest().source().query(), banana.source().query());
+    }
+
+    @Test
+    public void bindMethodParameter(){
+        ElasticSql2DslParser elasticSql2DslParser=new ElasticSql2DslParser();
+        ElasticSqlPreparedStatement statement = elasticSql2DslParser.prepare("select * from fruits query match(h#productName, ?) where id in (?, ?) routing by ?");
+        ElasticSqlParseResult first = statement.bind("iphone", 1, 2, "r1");
+        ElasticSqlParseResult second = statement.bind("huawei", 3, 4, "r2");
+        //Sql语法树不会被第一次bind修改,高亮字段在每次bind时都存在
+        Assert.assertTrue(second.getHighlighter().contains("productName"));
+        Assert.assertEquals("r2", second.getRoutingBy().get(0));
+        ElasticSqlParseResult expectedFirst = elasticSql2DslParser.parse("select * from fruits query match(h#productName, 'iphone') where id in (1, 2) routing by 'r1'");
+        ElasticSqlParseResult expectedSecond = elasticSql2DslParser.parse("select * from fruits query match(h#productName, 'huawei') where id in (3, 4) routing by 'r2'");
+        Assert.assertEquals(expectedFirst.toRequest().source().query(), first.toRequest().source().query());
+        Assert.assertEquals(expectedSecond.toRequest().source().query(), second.toRequest().source().query());
+        Assert.assertEquals(QueryBuilders.matchQuery("productName", "huawei"), second.getMatchCondition().must().get(0));
+    }
+
+    @Test
+    public void delete(){
+        ElasticSql2DslParser elasticSql2DslParser=new ElasticSql2DslParser();
+        ElasticSqlPreparedStatement statement = elasticSql2DslParser.prepare("DELETE from fruits where name=? limit ?");
+        Assert.assertTrue(statement.isDelete());
+        Assert.assertEquals(100, statement.bindDelRequest("apple", 100).getSize());
+    }
+
+    @Test(expected = ElasticSql2DslException.class)
+    public void parameterCount(){
+        new ElasticSql2DslParser().prepare("select * from fruits where name=?").bind();
+    }
+}
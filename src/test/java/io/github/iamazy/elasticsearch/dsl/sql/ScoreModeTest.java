@@ -0,0 +1,66 @@
+package io.github.iamazy.elasticsearch.dsl.sql;
+
+import io.github.iamazy.elasticsearch.dsl.sql.model.ElasticSqlParseResult;
+import io.github.iamazy.elasticsearch.dsl.sql.parser.ElasticSql2DslParser;
+import org.apache.lucene.search.join.ScoreMode;
+import org.elasticsearch.index.query.*;
+import org.elasticsearch.join.query.HasChildQueryBuilder;
+import org.elasticsearch.join.query.HasParentQueryBuilder;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author iamazy
+ * @date 2019/5/18
+ * @descrition
+ **/
+public class ScoreModeTest {
+
+    private final ElasticSql2DslParser parser = new ElasticSql2DslParser();
+
+    @Test
+    public void nested() {
+        ElasticSqlParseResult parseResult = parser.parse("select * from fruits where $product.name='apple'");
+        Assert.assertEquals(ScoreMode.None, ((NestedQueryBuilder) parseResult.getWhereCondition().must().get(0)).scoreMode());
+
+        parseResult = parser.parse("select * from fruits query $product.name='apple'");
+        Assert.assertEquals(ScoreMode.Avg, ((NestedQueryBuilder) parseResult.getMatchCondition().must().get(0)).scoreMode());
+    }
+
+    @Test
+    public void join() {
+        ElasticSqlParseResult parseResult = parser.parse("select * from fruits where has_child('apple',price > 10) and has_parent('shop',city='hz')");
+        BoolQueryBuilder whereCondition = parseResult.getWhereCondition();
+        Assert.assertEquals(ScoreMode.None, ((HasChildQueryBuilder) whereCondition.must().get(0)).scoreMode());
+        Assert.assertFalse(((HasParentQueryBuilder) whereCondition.must().get(1)).score());
+
+        parseResult = parser.parse("select * from fruits query has_child('apple',price > 10) and has_parent('shop',city='hz')");
+        BoolQueryBuilder matchCondition = parseResult.getMatchCondition();
+        Assert.assertEquals(ScoreMode.Avg, ((HasChildQueryBuilder) matchCondition.must().get(0)).scoreMode());
+        Assert.assertTrue(((HasParentQueryBuilder) matchCondition.must().get(1)).score());
+    }
+
+    @Test
+    public void exactToFilter() {
+        ElasticSqlParseResult parseResult = parser.parse("select * from fruits query match(name,'apple') and price > 10 and color is not null");
+        BoolQueryBuilder matchCondition = parseResult.getMatchCondition();
+        Assert.assertEquals(1, matchCondition.must().size());
+        Assert.assertTrue(matchCondition.must().get(0) instanceof MatchQueryBuilder);
+        Assert.assertEquals(2, matchCondition.filter().size());
+        Assert.assertTrue(parseResult.toRequest().source().query() instanceof BoolQueryBuilder);
+    }
+
+    @Test
+    public void constantScore() {
+        QueryBuilder query = parser.parse("select * from fruits where price > 10").toRequest().source().query();
+        Assert.assertTrue(query instanceof ConstantScoreQueryBuilder);
+
+        query = parser.parse("select * from fruits query price > 10 and name='apple'").toRequest().source().query();
+        Assert.assertTrue(query instanceof ConstantScoreQueryBuilder);
+        BoolQueryBuilder innerQuery = (BoolQueryBuilder) ((ConstantScoreQueryBuilder) query).innerQuery();
+        Assert.assertEquals(2, innerQuery.filter().size());
+
+        query = parser.parse("select * from fruits").toRequest().source().query();
+        Assert.assertTrue(query instanceof MatchAllQueryBuilder);
+    }
+}